@@ -24,6 +24,8 @@
 package com.bobbyloujo.blogbuilder.activity;
 
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.design.widget.FloatingActionButton;
 import android.support.v7.app.AppCompatActivity;
@@ -32,16 +34,25 @@ import android.view.View;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.ListView;
+import android.widget.Toast;
 
 import com.bobbyloujo.blogbuilder.application.ActivityStarter;
+import com.bobbyloujo.blogbuilder.application.MediaSweeper;
+import com.bobbyloujo.blogbuilder.application.SiteExporter;
 import com.bobbyloujo.blogbuilder.post.Post;
 import com.bobbyloujo.blogbuilder.R;
 import com.bobbyloujo.blogbuilder.view.PostSummaryListAdapter;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * An Activity that displays a list of the saved blog Posts.
  */
 public class BlogPostListActivity extends AppCompatActivity {
+	private static final String SITE_DIRECTORY_NAME = "site";   // The name of the directory the blog is exported to.
+	private static final String LAST_SWEEP = "last media sweep";   // Key of the time media was last swept in the shared preferences.
+	private static final long SWEEP_INTERVAL = 24 * 60 * 60 * 1000;   // The time in milliseconds between sweeps of unused media.
 
     private PostSummaryListAdapter postSummaryListAdapter;  // The adapter for the ListView.
 
@@ -63,6 +74,10 @@ public class BlogPostListActivity extends AppCompatActivity {
         ListView summaryList = (ListView) findViewById(R.id.summarylistview);
         postSummaryListAdapter = new PostSummaryListAdapter(this);
         summaryList.setAdapter(postSummaryListAdapter);
+
+		if (savedInstanceState == null) {
+			sweepMedia();
+		}
     }
 
 	@Override
@@ -92,11 +107,74 @@ public class BlogPostListActivity extends AppCompatActivity {
 			Intent settings = new Intent(this, BlogSettingsActivity.class);
 			startActivity(settings);
             return true;
-        }
+        } else if (id == R.id.action_export) {
+			exportSite();
+			return true;
+		}
 
         return super.onOptionsItemSelected(item);
     }
 
+	/**
+	 * Export the blog as a static site in the background. The site is written to
+	 * external storage when it is available so it can be copied off the device.
+	 */
+	private void exportSite() {
+		File directory = getExternalFilesDir(SITE_DIRECTORY_NAME);
+		String blogTitle = getSharedPreferences(BlogSettingsActivity.PREFERENCES, MODE_PRIVATE).getString(BlogSettingsActivity.BLOG_TITLE, getResources().getString(R.string.defBlogTitle));
+
+		if (directory == null) {
+			directory = new File(getFilesDir(), SITE_DIRECTORY_NAME);
+		}
+
+		final SiteExporter exporter = new SiteExporter(directory, blogTitle);
+
+		Toast.makeText(this, R.string.export_started, Toast.LENGTH_SHORT).show();
+
+		new AsyncTask<Void, Void, Integer>() {
+			@Override protected Integer doInBackground(Void... params) {
+				try {
+					return exporter.export();
+				} catch (IOException e) {
+					e.printStackTrace();
+					return null;
+				}
+			}
+
+			@Override protected void onPostExecute(Integer written) {
+				if (written != null) {
+					Toast.makeText(BlogPostListActivity.this, getString(R.string.export_finished, written, exporter.getDirectory().getPath()), Toast.LENGTH_LONG).show();
+				} else {
+					Toast.makeText(BlogPostListActivity.this, R.string.export_failed, Toast.LENGTH_LONG).show();
+				}
+			}
+		}.execute();
+	}
+
+	/**
+	 * Delete the image renditions and video posters no Post uses any more in the
+	 * background, at most once per SWEEP_INTERVAL, because every Post is read.
+	 */
+	private void sweepMedia() {
+		SharedPreferences preferences = getSharedPreferences(BlogSettingsActivity.PREFERENCES, MODE_PRIVATE);
+		long now = System.currentTimeMillis();
+
+		if (Math.abs(now - preferences.getLong(LAST_SWEEP, 0)) < SWEEP_INTERVAL) {
+			return;
+		}
+
+		final MediaSweeper sweeper = new MediaSweeper(this);
+
+		preferences.edit().putLong(LAST_SWEEP, now).apply();
+
+		new AsyncTask<Void, Void, Void>() {
+			@Override protected Void doInBackground(Void... params) {
+				sweeper.sweep();
+				return null;
+			}
+		}.execute();
+	}
+
 	/**
 	 * The Floating Action Button was pressed. Create a new Post!
 	 */
@@ -26,7 +26,7 @@ package com.bobbyloujo.blogbuilder.activity;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.BitmapFactory;
+import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -46,10 +46,13 @@ import android.widget.Toast;
 import com.bobbyloujo.blogbuilder.R;
 import com.bobbyloujo.blogbuilder.application.PathUtil;
 import com.bobbyloujo.blogbuilder.application.PostLoader;
+import com.bobbyloujo.blogbuilder.media.BitmapDecoder;
+import com.bobbyloujo.blogbuilder.media.ImageImporter;
 import com.bobbyloujo.blogbuilder.post.ImageElement;
 import com.bobbyloujo.blogbuilder.post.Post;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * An Activity for editing an ImageElement.
@@ -69,6 +72,8 @@ public class EditImageElementActivity extends AppCompatActivity {
 	private ImageElement imageElement;  // The ImageElement being edited.
 
 	private String imagePath;           // The path of the captured image.
+	private ImageImporter.Renditions renditions;   // The renditions of the chosen local image, or null if they aren't written yet.
+	private boolean saved;              // Flag indicating that the ImageElement was saved while its image was still being imported.
 
 	private RadioButton localButton;    // The local storage radio button
 	private RadioButton internetButton; // The internet radio button
@@ -79,6 +84,7 @@ public class EditImageElementActivity extends AppCompatActivity {
 	private Button saveButton;          // The save button
 	private Button cancelButton;        // The cancel button
 	private ImageView imageView;        // The image view for displaying local images
+	private Bitmap shownImage;          // The image decoded into the image view, or null
 
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
@@ -150,7 +156,12 @@ public class EditImageElementActivity extends AppCompatActivity {
 				imageView.setVisibility(View.VISIBLE);
 
 				if (imageElement.getSrc() != null) {
-					imageView.setImageBitmap(BitmapFactory.decodeFile(imageElement.getSrc()));
+					showImage(imageElement.getSrc());
+
+					if (imageElement.getSizedSrcs() == null) {   // Imported before it had renditions, so import it again.
+						imagePath = imageElement.getSrc();
+						importImage(imagePath);
+					}
 				}
 			} else if (imageElement.getLocation() == ImageElement.INTERNET) {  // Show and hide the correct views for a web image
 				internetButton.setChecked(true);
@@ -165,6 +176,61 @@ public class EditImageElementActivity extends AppCompatActivity {
 		}
 	}
 
+	/**
+	 * Show a local image in the image view, decoded no larger than needed to
+	 * fill the width of the screen. The memory of the image shown before is
+	 * reused if it can be.
+	 * @param path The path of the image.
+	 */
+	private void showImage(String path) {
+		Bitmap previous = shownImage;
+
+		imageView.setImageBitmap(null);   // Release the previous image so the decode may reuse it.
+		shownImage = BitmapDecoder.decodeFile(path, getResources().getDisplayMetrics().widthPixels, 0, previous);
+		imageView.setImageBitmap(shownImage);
+	}
+
+	/**
+	 * Import a local image in the background, so the Post shows a web sized,
+	 * upright rendition of it instead of the original.
+	 * @param path The path of the image.
+	 */
+	private void importImage(String path) {
+		renditions = null;
+
+		ImageImporter.getInstance(this).importImage(path, new ImageImporter.Callback() {
+			@Override public void onImported(ImageImporter.Renditions imported) {
+				if (imported.getSource().equals(imagePath)) {
+					renditions = imported;
+
+					if (saved) {
+						applyRenditions();
+					}
+				}
+			}
+
+			@Override public void onFailed(String path, IOException e) {
+				// The Post shows the original image instead.
+			}
+		});
+	}
+
+	/**
+	 * Record the renditions on the ImageElement if they are of its current image.
+	 * If the ImageElement was already saved, the change is recorded in the edit session.
+	 */
+	private void applyRenditions() {
+		if (renditions != null && imageElement.getLocation() == ImageElement.LOCAL
+				&& renditions.getSource().equals(imageElement.getSrc())) {
+			imageElement.setRenditions(renditions.getWebPath(), renditions.getThumbnailPath(), renditions.getWidth(), renditions.getHeight());
+			imageElement.setSizedRenditions(renditions.getSizedPaths(), renditions.getSizedWidths());
+
+			if (saved && post.getElementList().contains(imageElement)) {   // It may have been removed while it was imported.
+				PostLoader.getInstance().getEditSession().replaceElement(imageElement);
+			}
+		}
+	}
+
 	/**
 	 * Starts the file browser activity.
 	 */
@@ -246,13 +312,11 @@ public class EditImageElementActivity extends AppCompatActivity {
 				imageElement.setSrcURL(imagePath);
 			}
 
-			if (!post.getElementList().contains(imageElement)) {
-				post.getElementList().addElement(imageElement);
-			}
+			applyRenditions();
+			saved = true;
+			PostLoader.getInstance().getEditSession().replaceElement(imageElement);
 		}
 
-		PostLoader.getInstance().saveTempPost(post);
-
 		finish();
 	}
 
@@ -285,12 +349,19 @@ public class EditImageElementActivity extends AppCompatActivity {
 			case GET_LOCAL_IMAGE:                                   // Browse file system activity finished
 				if (data != null && resultCode == RESULT_OK) {
 					imagePath = PathUtil.getPath(this, data.getData());
-					imageView.setImageURI(data.getData());
+
+					if (imagePath != null) {
+						showImage(imagePath);
+						importImage(imagePath);
+					} else {
+						imageView.setImageURI(data.getData());
+					}
 				}
 				break;
 			case CAPTURE_IMAGE:                                // A new image may have been taken.
 				if (resultCode == RESULT_OK) {                 // Change the path to the new image if a new image was taken
-					imageView.setImageBitmap(BitmapFactory.decodeFile(imagePath));
+					showImage(imagePath);
+					importImage(imagePath);
 				} else {
 					imagePath = null;
 					Toast.makeText(this, "Failed to take picture.", Toast.LENGTH_LONG).show();
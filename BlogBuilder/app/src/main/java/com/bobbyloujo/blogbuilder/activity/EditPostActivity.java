@@ -121,6 +121,13 @@ public class EditPostActivity extends AppCompatActivity {
 		super.onPause();
 		FloatingActionsMenu fam = (FloatingActionsMenu) findViewById(R.id.add_element_fab);
 		fam.collapse();
+
+		// Persist the title with the rest of the edit session.
+		String title = ((EditText) findViewById(R.id.titleEditText)).getText().toString();
+
+		if (post != null && !title.equals(post.getTitle())) {
+			postLoader.getEditSession().setTitle(title);
+		}
 	}
 
 	@Override
@@ -229,13 +229,9 @@ public class EditTextElementActivity extends AppCompatActivity {
 
 			textElement.setText(Html.toHtml(editText.getText()));
 
-			if (!post.getElementList().contains(textElement)) {
-				post.getElementList().addElement(textElement);
-			}
+			PostLoader.getInstance().getEditSession().replaceElement(textElement);
 		}
 
-		PostLoader.getInstance().saveTempPost(post);
-
 		editText.setSelection(editText.getText().length(), editText.getText().length()); // Fixes SpannableStringBuilder bug on some devices.
 		finish();
 	}
@@ -40,9 +40,12 @@ import android.widget.Toast;
 import com.bobbyloujo.blogbuilder.R;
 import com.bobbyloujo.blogbuilder.application.PathUtil;
 import com.bobbyloujo.blogbuilder.application.PostLoader;
+import com.bobbyloujo.blogbuilder.media.PosterExtractor;
 import com.bobbyloujo.blogbuilder.post.Post;
 import com.bobbyloujo.blogbuilder.post.VideoElement;
 
+import java.io.IOException;
+
 /**
  * An Activity for editing a VideoElement.
  */
@@ -56,6 +59,9 @@ public class EditVideoElementActivity extends AppCompatActivity {
 	private VideoElement videoElement; // The VideoElement to edit.
 
 	private String videoPath;            // The path to the video file
+	private String posterPath;           // The path of the poster of the chosen local video, or null if it isn't extracted yet.
+	private String posterSource;         // The path of the video the poster was extracted from.
+	private boolean saved;               // Flag indicating that the VideoElement was saved while its poster was still being extracted.
 
 	private RadioButton localButton;     // The local storage radio button
 	private RadioButton internetButton;  // The internet radio button
@@ -124,6 +130,11 @@ public class EditVideoElementActivity extends AppCompatActivity {
 				urlTextView.setVisibility(View.GONE);
 				pathEditText.setVisibility(View.GONE);
 				findViewById(R.id.pathTextView).setVisibility(View.VISIBLE);
+
+				if (videoElement.getPosterSrc() == null && videoElement.getSrcURL().length() > 0) {   // Added before videos had posters.
+					videoPath = videoElement.getSrcURL();
+					extractPoster(videoPath);
+				}
 			} else if (videoElement.getLocation() == VideoElement.INTERNET) {                  // Show the appropriate views for a video from the internet
 				internetButton.setChecked(true);
 				browseButton.setVisibility(View.GONE);
@@ -136,6 +147,46 @@ public class EditVideoElementActivity extends AppCompatActivity {
 		}
 	}
 
+	/**
+	 * Extract the poster of a local video in the background.
+	 * @param path The path of the video.
+	 */
+	private void extractPoster(String path) {
+		posterPath = null;
+
+		PosterExtractor.getInstance(this).extract(path, new PosterExtractor.Callback() {
+			@Override public void onExtracted(String path, String poster) {
+				if (path.equals(videoPath)) {
+					posterPath = poster;
+					posterSource = path;
+
+					if (saved) {
+						applyPoster();
+					}
+				}
+			}
+
+			@Override public void onFailed(String path, IOException e) {
+				// The video is shown without a poster instead.
+			}
+		});
+	}
+
+	/**
+	 * Record the poster on the VideoElement if it is of its current video. If the
+	 * VideoElement was already saved, the change is recorded in the edit session.
+	 */
+	private void applyPoster() {
+		if (posterPath != null && videoElement.getLocation() == VideoElement.LOCAL
+				&& posterSource.equals(videoElement.getSrcURL())) {
+			videoElement.setPosterSrc(posterPath);
+
+			if (saved && post.getElementList().contains(videoElement)) {   // It may have been removed while the poster was extracted.
+				PostLoader.getInstance().getEditSession().replaceElement(videoElement);
+			}
+		}
+	}
+
 	/**
 	 * Starts the browse file system activity.
 	 */
@@ -204,13 +255,11 @@ public class EditVideoElementActivity extends AppCompatActivity {
 				videoElement.setSrcURL(videoPath);
 			}
 
-			if (!post.getElementList().contains(videoElement)) {
-				post.getElementList().addElement(videoElement);
-			}
+			applyPoster();
+			saved = true;
+			PostLoader.getInstance().getEditSession().replaceElement(videoElement);
 		}
 
-		PostLoader.getInstance().saveTempPost(post);
-
 		finish();
 	}
 
@@ -244,6 +293,10 @@ public class EditVideoElementActivity extends AppCompatActivity {
 					videoPath = PathUtil.getPath(this, data.getData());
 					((TextView) findViewById(R.id.pathTextView)).setText(videoPath);
 					findViewById(R.id.pathTextView).setVisibility(View.VISIBLE);
+
+					if (videoPath != null) {
+						extractPoster(videoPath);
+					}
 				}
 				break;
 		}
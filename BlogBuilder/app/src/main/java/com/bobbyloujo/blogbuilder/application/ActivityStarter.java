@@ -71,12 +71,11 @@ public class ActivityStarter {
 	/**
 	 * Starts an Activity to edit a TextElement.
 	 * @param context Context with which to launch the Activity.
-	 * @param post Post containing the TextElement
+	 * @param post Post containing the TextElement. This should be the temp Post.
 	 * @param textElement The TextElement to edit. If null, a new TextElement will be created.
 	 */
 	public static void startEditTextElementActivity(Context context, Post post, TextElement textElement) {
 		Intent intent = new Intent(context, EditTextElementActivity.class);
-		PostLoader.getInstance().saveTempPost(post);
 		intent.putExtra(EditTextElementActivity.ELEMENT_INDEX_EXTRA, post.getElementList().getElementIndex(textElement));
 		intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
 		context.startActivity(intent);
@@ -85,12 +84,11 @@ public class ActivityStarter {
 	/**
 	 * Starts an Activity to edit a ImageElement.
 	 * @param context Context with which to launch the Activity.
-	 * @param post Post containing the ImageElement
+	 * @param post Post containing the ImageElement. This should be the temp Post.
 	 * @param imageElement The ImageElement to edit. If null, a new ImageElement will be created.
 	 */
 	public static void startEditImageElementActivity(Context context, Post post, ImageElement imageElement) {
 		Intent intent = new Intent(context, EditImageElementActivity.class);
-		PostLoader.getInstance().saveTempPost(post);
 		intent.putExtra(EditImageElementActivity.ELEMENT_INDEX_EXTRA, post.getElementList().getElementIndex(imageElement));
 		intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
 		context.startActivity(intent);
@@ -99,12 +97,11 @@ public class ActivityStarter {
 	/**
 	 * Starts an Activity to edit a VideoElement.
 	 * @param context Context with which to launch the Activity.
-	 * @param post Post containing the VideoElement
+	 * @param post Post containing the VideoElement. This should be the temp Post.
 	 * @param videoElement The VideoElement to edit. If null, a new VideoElement will be created.
 	 */
 	public static void startEditVideoElementActivity(Context context, Post post, VideoElement videoElement) {
 		Intent intent = new Intent(context, EditVideoElementActivity.class);
-		PostLoader.getInstance().saveTempPost(post);
 		intent.putExtra(EditVideoElementActivity.ELEMENT_INDEX_EXTRA, post.getElementList().getElementIndex(videoElement));
 		intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
 		context.startActivity(intent);
@@ -25,6 +25,8 @@ package com.bobbyloujo.blogbuilder.application;
 
 import android.app.Application;
 
+import com.bobbyloujo.blogbuilder.R;
+
 /**
  * An Android application created by Benjamin Blaszczak.
  * This application is a prototype blog creation tool.
@@ -34,6 +36,16 @@ import android.app.Application;
 public class BlogBuilderApplication extends Application {
 	public BlogBuilderApplication() {
 		super();
-		PostLoader.init(this);
+	}
+
+	/**
+	 * Initialize the PostLoader. It uses the files directory right away, which
+	 * isn't available until the application has been attached to its Context.
+	 * The store mode is chosen by the segmented_post_store resource.
+	 */
+	@Override
+	public void onCreate() {
+		super.onCreate();
+		PostLoader.init(this, getResources().getBoolean(R.bool.segmented_post_store) ? PostLoader.STORE_SEGMENTS : PostLoader.STORE_FILES);
 	}
 }
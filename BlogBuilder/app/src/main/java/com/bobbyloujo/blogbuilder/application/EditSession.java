@@ -0,0 +1,416 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import com.bobbyloujo.blogbuilder.post.Element;
+import com.bobbyloujo.blogbuilder.post.ElementList;
+import com.bobbyloujo.blogbuilder.post.Post;
+import com.bobbyloujo.blogbuilder.post.PostCodec;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+/**
+ * The Post that is currently being edited. The Post is persisted as a snapshot
+ * plus a log of the edits made since the snapshot was written. Each edit appends
+ * a small record to the log instead of rewriting the whole Post. Once the log
+ * grows past COMPACT_THRESHOLD bytes, a new snapshot is written and the log is
+ * cleared. After the app restarts, the Post is recovered by replaying the log
+ * over the snapshot.
+ *
+ * The snapshot and the log both start with a generation number. The log is
+ * only replayed when its generation matches the snapshot's, so a log that was
+ * already folded into a newer snapshot is never applied twice.
+ */
+public class EditSession {
+	static final String SNAPSHOT_NAME = "edit-snapshot";   // The filename of the snapshot of the Post.
+	static final String LOG_NAME = "edit-log";             // The filename of the log of edits made since the snapshot.
+
+	private static final int COMPACT_THRESHOLD = 64 * 1024;   // The size of the log in bytes at which a new snapshot is written.
+	private static final int BUFFER_SIZE = 8192;              // The size of the buffer used when reading the snapshot and log.
+
+	private static final byte OP_ADD = 1;         // An Element was added to the end of the list.
+	private static final byte OP_REMOVE = 2;      // The Element at an index was removed.
+	private static final byte OP_MOVE = 3;        // The Element at an index was moved to another index.
+	private static final byte OP_REPLACE = 4;     // The Element at an index was changed.
+	private static final byte OP_SET_TITLE = 5;   // The title was changed.
+
+	private final PostWriter writer; // Writes the snapshot and log in the background.
+
+	private Post post;              // The Post being edited.
+	private int generation;         // The generation of the current snapshot and log.
+	private long logSize;           // The number of bytes in the log.
+
+	/**
+	 * Create a new EditSession.
+	 * @param writer The PostWriter used to write the snapshot and log. They are read from its store.
+	 */
+	EditSession(PostWriter writer) {
+		this.writer = writer;
+		this.generation = new Random().nextInt();  // Start somewhere unlikely to match a log left by an earlier process.
+	}
+
+	/**
+	 * Start editing a copy of the specified Post. A snapshot of the copy is written
+	 * and the log is cleared.
+	 * @param post The Post to edit.
+	 * @return A Future that completes when the snapshot has been written.
+	 */
+	public Future<?> begin(Post post) {
+		this.post = post.copy();
+		return writeSnapshot();
+	}
+
+	/**
+	 * Get the Post being edited. If the app was restarted, the Post is recovered
+	 * from the snapshot and log.
+	 * @return The Post being edited or null if there is none.
+	 */
+	public Post getPost() {
+		if (post == null) {
+			recover();
+		}
+
+		return post;
+	}
+
+	/**
+	 * Add an Element to the end of the Post.
+	 * @param e The Element to add.
+	 */
+	public void addElement(Element e) {
+		post.getElementList().addElement(e);
+		appendElementRecord(OP_ADD, -1, e);
+	}
+
+	/**
+	 * Remove an Element from the Post.
+	 * @param e The Element to remove.
+	 */
+	public void removeElement(Element e) {
+		ElementList list = post.getElementList();
+		int index = list.getElementIndex(e);
+
+		if (index >= 0) {
+			list.removeElement(e);
+			appendMoveRecord(OP_REMOVE, index, -1);
+		}
+	}
+
+	/**
+	 * Move an Element up in the order of the Post.
+	 * @param e The Element to move up.
+	 */
+	public void moveElementUp(Element e) {
+		ElementList list = post.getElementList();
+		int index = list.getElementIndex(e);
+
+		list.moveElementUp(e);
+
+		if (index >= 0 && list.getElementIndex(e) != index) {
+			appendMoveRecord(OP_MOVE, index, index - 1);
+		}
+	}
+
+	/**
+	 * Move an Element down in the order of the Post.
+	 * @param e The Element to move down.
+	 */
+	public void moveElementDown(Element e) {
+		ElementList list = post.getElementList();
+		int index = list.getElementIndex(e);
+
+		list.moveElementDown(e);
+
+		if (index >= 0 && list.getElementIndex(e) != index) {
+			appendMoveRecord(OP_MOVE, index, index + 1);
+		}
+	}
+
+	/**
+	 * Record that an Element of the Post was changed. If the Element isn't in the
+	 * Post yet, it is added.
+	 * @param e The Element that was changed.
+	 */
+	public void replaceElement(Element e) {
+		int index = post.getElementList().getElementIndex(e);
+
+		if (index < 0) {
+			addElement(e);
+		} else {
+			appendElementRecord(OP_REPLACE, index, e);
+		}
+	}
+
+	/**
+	 * Change the title of the Post.
+	 * @param title The new title.
+	 */
+	public void setTitle(String title) {
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(record);
+
+		post.setTitle(title);
+
+		try {
+			data.writeByte(OP_SET_TITLE);
+			PostCodec.writeString(data, title);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		append(record);
+	}
+
+	/**
+	 * Append a record that contains an Element.
+	 * @param op The operation.
+	 * @param index The index of the Element, or -1 if the operation has none.
+	 * @param e The Element.
+	 */
+	private void appendElementRecord(byte op, int index, Element e) {
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(record);
+
+		try {
+			data.writeByte(op);
+			data.writeInt(index);
+			PostCodec.writeElement(data, e);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+
+		append(record);
+	}
+
+	/**
+	 * Append a record that contains one or two indices.
+	 * @param op The operation.
+	 * @param from The index of the Element.
+	 * @param to The index the Element was moved to, or -1 if the operation has none.
+	 */
+	private void appendMoveRecord(byte op, int from, int to) {
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(record);
+
+		try {
+			data.writeByte(op);
+			data.writeInt(from);
+			data.writeInt(to);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		append(record);
+	}
+
+	/**
+	 * Append a record to the log, prefixed by its length. Writes a new snapshot
+	 * if the log has grown past COMPACT_THRESHOLD.
+	 * @param record The record to append.
+	 */
+	private void append(final ByteArrayOutputStream record) {
+		writer.append(LOG_NAME, new PostWriter.Content() {
+			@Override public void writeTo(OutputStream outputStream) throws IOException {
+				DataOutputStream data = new DataOutputStream(outputStream);
+				data.writeInt(record.size());
+				record.writeTo(data);
+				data.flush();
+			}
+		});
+
+		logSize += 4 + record.size();
+
+		if (logSize > COMPACT_THRESHOLD) {
+			writeSnapshot();
+		}
+	}
+
+	/**
+	 * Write a snapshot of the Post with a new generation and start a new, empty log.
+	 * The snapshot is encoded right away and written before the log is cleared.
+	 * @return A Future that completes when the snapshot and log have been written.
+	 */
+	private Future<?> writeSnapshot() {
+		final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+		final int generation = ++this.generation;
+
+		try {
+			DataOutputStream data = new DataOutputStream(snapshot);
+			data.writeInt(generation);
+			PostCodec.writePost(post, data);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		writer.write(SNAPSHOT_NAME, new PostWriter.Content() {
+			@Override public void writeTo(OutputStream outputStream) throws IOException {
+				snapshot.writeTo(outputStream);
+			}
+		});
+
+		logSize = 0;
+
+		return writer.write(LOG_NAME, new PostWriter.Content() {
+			@Override public void writeTo(OutputStream outputStream) throws IOException {
+				DataOutputStream data = new DataOutputStream(outputStream);
+				data.writeInt(generation);
+				data.flush();
+			}
+		});
+	}
+
+	/**
+	 * Recover the Post from the snapshot and replay the log over it. A new snapshot
+	 * is then written, so edits are never appended to a log whose records were
+	 * encoded by an older version of PostCodec.
+	 */
+	private void recover() {
+		BufferedInputStream bufferedInputStream;
+		DataInputStream inputStream;
+		int version;
+
+		try {
+			bufferedInputStream = new BufferedInputStream(writer.getStore().open(SNAPSHOT_NAME), BUFFER_SIZE);
+			inputStream = new DataInputStream(bufferedInputStream);
+
+			try {
+				generation = inputStream.readInt();
+				version = PostCodec.peekVersion(bufferedInputStream);
+				post = PostCodec.readPost(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		} catch (FileNotFoundException e) {
+			return;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		try {
+			inputStream = new DataInputStream(new BufferedInputStream(writer.getStore().open(LOG_NAME), BUFFER_SIZE));
+
+			try {
+				if (inputStream.readInt() == generation) {
+					replay(inputStream, version);
+				}
+			} finally {
+				inputStream.close();
+			}
+		} catch (FileNotFoundException e) {
+			// No edits were made after the snapshot.
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		writeSnapshot();
+	}
+
+	/**
+	 * Apply every complete record in the log to the Post. A record that was only
+	 * partly written, or that can't be applied to the Post, ends the replay and
+	 * the edits replayed before it are kept.
+	 * @param inputStream The log, positioned after its generation.
+	 * @param version The PostCodec format version the log was written with.
+	 * @throws IOException If the log can't be read.
+	 */
+	private void replay(DataInputStream inputStream, int version) throws IOException {
+		while (true) {
+			byte[] record;
+
+			try {
+				record = new byte[inputStream.readInt()];
+				inputStream.readFully(record);
+			} catch (EOFException | NegativeArraySizeException e) {
+				return;
+			}
+
+			try {
+				apply(new DataInputStream(new ByteArrayInputStream(record)), version);
+			} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+				e.printStackTrace();   // The record is corrupt, so the records after it can't be trusted either.
+				return;
+			}
+
+			logSize += 4 + record.length;
+		}
+	}
+
+	/**
+	 * Apply one record of the log to the Post.
+	 * @param data The record.
+	 * @param version The PostCodec format version the record was written with.
+	 * @throws IOException If the record can't be read.
+	 */
+	private void apply(DataInputStream data, int version) throws IOException {
+		ElementList list = post.getElementList();
+		byte op = data.readByte();
+
+		switch (op) {
+			case OP_ADD:
+				data.readInt();
+				list.addElement(PostCodec.readElement(data, version));
+				break;
+			case OP_REMOVE:
+				list.removeElement(list.getElement(data.readInt()));
+				break;
+			case OP_MOVE: {
+				Element e = list.getElement(data.readInt());
+				int to = data.readInt();
+
+				if (to < 0 || to >= list.getSize()) {
+					throw new IndexOutOfBoundsException("Can't move an element to " + to + ".");
+				}
+
+				while (list.getElementIndex(e) > to) {
+					list.moveElementUp(e);
+				}
+
+				while (list.getElementIndex(e) < to) {
+					list.moveElementDown(e);
+				}
+				break;
+			}
+			case OP_REPLACE: {
+				int index = data.readInt();
+				list.setElement(index, PostCodec.readElement(data, version));
+				break;
+			}
+			case OP_SET_TITLE:
+				post.setTitle(PostCodec.readString(data));
+				break;
+			default:
+				throw new IOException("Unknown edit operation " + op + ".");
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import com.bobbyloujo.blogbuilder.post.PostCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * The record of what a SiteExporter last wrote to a directory: a hash of the
+ * content and media of each Post page, a hash of the minified page that was
+ * compressed, and a hash of the index page. It is kept
+ * in the exported directory so that the next export only writes the pages whose
+ * hash changed and deletes the pages of Posts that were removed.
+ */
+class ExportManifest {
+	static final String FILE_NAME = ".export-manifest";   // The filename of the manifest in the exported directory.
+
+	private static final int MAGIC = 0x4242584D;   // "BBXM". Marks a manifest file.
+	private static final int VERSION = 6;          // The format version of the manifest and of the pages it describes. Bumped whenever the rendered markup changes, so every page is written again.
+	private static final int BUFFER_SIZE = 8192;   // The size of the buffer used when reading and writing the manifest.
+
+	private final HashMap<String, Entry> entries = new HashMap<>();   // The entry of each exported Post keyed by filename.
+	private byte[] indexHash;                                         // The hash of the index page, or null if it wasn't written.
+
+	/**
+	 * What was exported for one Post.
+	 */
+	static class Entry {
+		final String fileName;      // The filename of the Post.
+		final long modified;        // The modified time of the Post's summary when it was exported.
+		final byte[] contentHash;   // The hash of the title and HTML of the Post.
+		final String[] mediaPaths;  // The local media files the Post references.
+		final byte[] mediaHash;     // The hash of the size and modified time of the media files.
+		final byte[] pageHash;      // The hash of the minified page, which determines its compressed sibling.
+
+		/**
+		 * Create a new Entry.
+		 * @param fileName The filename of the Post.
+		 * @param modified The modified time of the Post's summary when it was exported.
+		 * @param contentHash The hash of the title and HTML of the Post.
+		 * @param mediaPaths The local media files the Post references.
+		 * @param mediaHash The hash of the size and modified time of the media files.
+		 * @param pageHash The hash of the minified page.
+		 */
+		Entry(String fileName, long modified, byte[] contentHash, String[] mediaPaths, byte[] mediaHash, byte[] pageHash) {
+			this.fileName = fileName;
+			this.modified = modified;
+			this.contentHash = contentHash;
+			this.mediaPaths = mediaPaths;
+			this.mediaHash = mediaHash;
+			this.pageHash = pageHash;
+		}
+
+		/**
+		 * Determine if this Entry describes the same page as another.
+		 * @param other The other Entry. May be null.
+		 * @return True if both Entries have the same content and media hashes, false otherwise.
+		 */
+		boolean hasSameHashes(Entry other) {
+			return other != null && Arrays.equals(contentHash, other.contentHash) && Arrays.equals(mediaHash, other.mediaHash);
+		}
+	}
+
+	/**
+	 * Read the manifest of a directory. A missing, unreadable, or outdated
+	 * manifest is read as an empty one, so everything is exported again.
+	 * @param directory The exported directory.
+	 * @return The manifest of the directory.
+	 */
+	static ExportManifest read(File directory) {
+		ExportManifest manifest = new ExportManifest();
+		DataInputStream data;
+
+		try {
+			data = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(directory, FILE_NAME)), BUFFER_SIZE));
+
+			try {
+				if (data.readInt() == MAGIC && data.readInt() == VERSION) {
+					manifest.indexHash = readHash(data);
+
+					int size = data.readInt();
+
+					for (int i = 0; i < size; i++) {
+						String fileName = PostCodec.readString(data);
+						long modified = data.readLong();
+						byte[] contentHash = readHash(data);
+						String[] mediaPaths = new String[data.readInt()];
+
+						for (int j = 0; j < mediaPaths.length; j++) {
+							mediaPaths[j] = PostCodec.readString(data);
+						}
+
+						byte[] mediaHash = readHash(data);
+
+						manifest.put(new Entry(fileName, modified, contentHash, mediaPaths, mediaHash, readHash(data)));
+					}
+				}
+			} finally {
+				data.close();
+			}
+		} catch (FileNotFoundException e) {
+			// Nothing has been exported to the directory yet.
+		} catch (IOException e) {
+			e.printStackTrace();
+			return new ExportManifest();
+		}
+
+		return manifest;
+	}
+
+	/**
+	 * Write the manifest to a directory. It is written to a temporary file first
+	 * so a failed write leaves the previous manifest in place.
+	 * @param directory The exported directory.
+	 * @throws IOException If the manifest can't be written.
+	 */
+	void write(File directory) throws IOException {
+		File file = new File(directory, FILE_NAME);
+		File temp = new File(directory, FILE_NAME + ".tmp");
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE));
+
+		try {
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+			writeHash(data, indexHash);
+			data.writeInt(entries.size());
+
+			for (Entry entry : entries.values()) {
+				PostCodec.writeString(data, entry.fileName);
+				data.writeLong(entry.modified);
+				writeHash(data, entry.contentHash);
+				data.writeInt(entry.mediaPaths.length);
+
+				for (String path : entry.mediaPaths) {
+					PostCodec.writeString(data, path);
+				}
+
+				writeHash(data, entry.mediaHash);
+				writeHash(data, entry.pageHash);
+			}
+		} finally {
+			data.close();
+		}
+
+		if (!temp.renameTo(file)) {
+			throw new IOException("Unable to replace " + file.getPath());
+		}
+	}
+
+	/**
+	 * Get the entry of a Post.
+	 * @param fileName The filename of the Post.
+	 * @return The entry of the Post or null if it wasn't exported.
+	 */
+	Entry get(String fileName) {
+		return entries.get(fileName);
+	}
+
+	/**
+	 * Add or replace the entry of a Post.
+	 * @param entry The entry.
+	 */
+	void put(Entry entry) {
+		entries.put(entry.fileName, entry);
+	}
+
+	/**
+	 * Remove the entry of a Post.
+	 * @param fileName The filename of the Post.
+	 */
+	void remove(String fileName) {
+		entries.remove(fileName);
+	}
+
+	/**
+	 * Get the filenames of the exported Posts.
+	 * @return The filenames of the exported Posts.
+	 */
+	Set<String> getFileNames() {
+		return entries.keySet();
+	}
+
+	/**
+	 * Get the hash of the index page.
+	 * @return The hash of the index page or null if it wasn't written.
+	 */
+	byte[] getIndexHash() {
+		return indexHash;
+	}
+
+	/**
+	 * Set the hash of the index page.
+	 * @param indexHash The hash of the index page.
+	 */
+	void setIndexHash(byte[] indexHash) {
+		this.indexHash = indexHash;
+	}
+
+	/**
+	 * Write a length-prefixed hash. A null hash is written with length -1.
+	 * @param data The stream to write to.
+	 * @param hash The hash. May be null.
+	 * @throws IOException If the stream can't be written.
+	 */
+	private static void writeHash(DataOutputStream data, byte[] hash) throws IOException {
+		if (hash == null) {
+			data.writeInt(-1);
+		} else {
+			data.writeInt(hash.length);
+			data.write(hash);
+		}
+	}
+
+	/**
+	 * Read a hash written by writeHash.
+	 * @param data The stream to read from.
+	 * @return The hash. May be null.
+	 * @throws IOException If the stream can't be read.
+	 */
+	private static byte[] readHash(DataInputStream data) throws IOException {
+		int length = data.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] hash = new byte[length];
+		data.readFully(hash);
+
+		return hash;
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * The filenames that are in use, kept in memory so that a unique filename can
+ * be allocated without checking the file system. A filename is allocated from a
+ * base name by adding the next unused numeric suffix for that base name, so the
+ * cost of an allocation doesn't grow with the number of files sharing a base name.
+ *
+ * Adding a filename that ends in a number records that number as used for the
+ * rest of the filename, so allocations after the registry is rebuilt start past
+ * the highest suffix in use instead of trying each existing name in turn.
+ *
+ * Within one process, suffixes are never handed out twice for a base name,
+ * even after the file using one is removed, so a Post deleted in this session
+ * doesn't give its filename to a new Post. A later session may reuse the name
+ * of a deleted file if no file with a higher suffix remains.
+ *
+ * An empty base name is replaced by DEFAULT_BASE_NAME, because an empty
+ * filename names the directory itself.
+ */
+public class FileNameRegistry {
+	static final String DEFAULT_BASE_NAME = "post";   // The base name used when the given one is empty.
+
+	private static final int MAX_SUFFIX_DIGITS = 9;   // The most digits read as a suffix, so it always fits in an int.
+
+	private final HashSet<String> names = new HashSet<>();                 // The filenames in use.
+	private final HashMap<String, Integer> nextSuffixes = new HashMap<>(); // The next suffix to try for each base name.
+
+	/**
+	 * Mark a filename as in use.
+	 * @param name The filename.
+	 */
+	public void add(String name) {
+		names.add(name);
+		addSuffix(name);
+	}
+
+	/**
+	 * Mark a filename as no longer in use.
+	 * @param name The filename.
+	 */
+	public void remove(String name) {
+		names.remove(name);
+	}
+
+	/**
+	 * Determine if a filename is in use.
+	 * @param name The filename.
+	 * @return True if the filename is in use, false otherwise.
+	 */
+	public boolean contains(String name) {
+		return names.contains(name);
+	}
+
+	/**
+	 * Get the base name of the filename of a Post: its title without whitespace,
+	 * or DEFAULT_BASE_NAME if nothing is left.
+	 * @param title The title of the Post.
+	 * @return The base name, never empty.
+	 */
+	public static String getBaseName(String title) {
+		String baseName = title.replaceAll("\\s", "");
+
+		return baseName.isEmpty() ? DEFAULT_BASE_NAME : baseName;
+	}
+
+	/**
+	 * Make allocations from the base name of a filename start after the filename's
+	 * suffix. A filename that doesn't end in a number is its own base name with
+	 * suffix 0.
+	 * @param name The filename.
+	 */
+	private void addSuffix(String name) {
+		String baseName = name;
+		int suffix = 0;
+		int start = name.length();
+
+		while (start > 0 && name.length() - start < MAX_SUFFIX_DIGITS && name.charAt(start - 1) >= '0' && name.charAt(start - 1) <= '9') {
+			start--;
+		}
+
+		if (start > 0 && start < name.length() && name.charAt(start) != '0') {
+			baseName = name.substring(0, start);
+			suffix = Integer.parseInt(name.substring(start));
+		}
+
+		Integer nextSuffix = nextSuffixes.get(baseName);
+
+		if (nextSuffix == null || nextSuffix <= suffix) {
+			nextSuffixes.put(baseName, suffix + 1);
+		}
+	}
+
+	/**
+	 * Allocate a filename that isn't in use and mark it as in use. The filename
+	 * is the base name itself the first time it is free, and the base name
+	 * followed by a number after that.
+	 * @param baseName The base name of the filename. DEFAULT_BASE_NAME is used if it is empty.
+	 * @return The allocated filename, never empty.
+	 */
+	public String allocate(String baseName) {
+		if (baseName.isEmpty()) {
+			baseName = DEFAULT_BASE_NAME;
+		}
+
+		Integer nextSuffix = nextSuffixes.get(baseName);
+		int suffix = nextSuffix == null ? 0 : nextSuffix;
+		String name = suffix == 0 ? baseName : baseName.concat(Integer.toString(suffix));
+
+		while (names.contains(name)) {
+			suffix++;
+			name = baseName.concat(Integer.toString(suffix));
+		}
+
+		nextSuffixes.put(baseName, suffix + 1);
+		names.add(name);
+
+		return name;
+	}
+}
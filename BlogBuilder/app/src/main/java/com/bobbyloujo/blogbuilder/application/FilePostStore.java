@@ -0,0 +1,109 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A PostStore that keeps each file as a file in a directory.
+ */
+public class FilePostStore implements PostStore {
+	private static final int BUFFER_SIZE = 8192;       // The size of the buffer used when writing files.
+	private static final String TEMP_SUFFIX = ".tmp";  // Suffix of the file written before it replaces the real file.
+
+	private final File directory;   // The directory containing the files.
+
+	/**
+	 * Create a new FilePostStore.
+	 * @param directory The directory containing the files.
+	 */
+	public FilePostStore(File directory) {
+		this.directory = directory;
+	}
+
+	@Override
+	public InputStream open(String name) throws IOException {
+		return new FileInputStream(new File(directory, name));
+	}
+
+	/**
+	 * Write a file by writing a temporary file first and renaming it over the real
+	 * file, so a failed write never leaves a partly written file behind.
+	 */
+	@Override
+	public void write(String name, PostWriter.Content content) throws IOException {
+		File file = new File(directory, name);
+		File temp = new File(directory, name + TEMP_SUFFIX);
+		FileOutputStream fileOutputStream = new FileOutputStream(temp);
+		OutputStream outputStream = new BufferedOutputStream(fileOutputStream, BUFFER_SIZE);
+
+		try {
+			content.writeTo(outputStream);
+			outputStream.flush();
+			fileOutputStream.getFD().sync();
+		} finally {
+			outputStream.close();
+		}
+
+		if (!temp.renameTo(file)) {
+			throw new IOException("Unable to replace " + file.getPath());
+		}
+	}
+
+	@Override
+	public void append(String name, PostWriter.Content content) throws IOException {
+		OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(new File(directory, name), true), BUFFER_SIZE);
+
+		try {
+			content.writeTo(outputStream);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	@Override
+	public void delete(String name) throws IOException {
+		File file = new File(directory, name);
+
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Unable to delete " + file.getPath());
+		}
+	}
+
+	@Override
+	public boolean contains(String name) {
+		return new File(directory, name).exists();
+	}
+
+	@Override
+	public long lastModified(String name) {
+		return new File(directory, name).lastModified();
+	}
+}
@@ -0,0 +1,348 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+
+/**
+ * Removes the bytes from exported pages that don't change how they are shown:
+ * comments, whitespace around block tags, runs of whitespace in text, empty
+ * size attributes, and the slash that closes void tags. The center tags that
+ * ImageElement and VideoElement wrap their media in are dropped as well. The
+ * page is expected to center top level images and videos with CSS instead, as
+ * the pages written by SiteExporter do.
+ *
+ * The content of pre, textarea, script, and style tags is copied unchanged.
+ */
+final class HtmlMinifier {
+	/* Tags that whitespace around can be removed from without joining words. */
+	private static final HashSet<String> BLOCK_TAGS = new HashSet<>(Arrays.asList(
+			"!doctype", "html", "head", "body", "title", "meta", "link", "style", "script",
+			"h1", "h2", "h3", "h4", "h5", "h6", "p", "div", "blockquote", "ul", "ol", "li",
+			"br", "hr", "center", "table", "tr", "td", "th", "source"));
+
+	/* Tags whose content is copied unchanged. */
+	private static final HashSet<String> RAW_TAGS = new HashSet<>(Arrays.asList(
+			"pre", "textarea", "script", "style"));
+
+	/* Attributes that are dropped when their value is empty. */
+	private static final HashSet<String> EMPTY_ATTRIBUTES = new HashSet<>(Arrays.asList(
+			"height", "width", "poster"));
+
+	private final String html;                                      // The HTML being minified.
+	private final StringBuilder out;                                // The minified HTML.
+	private final ArrayList<Boolean> centers = new ArrayList<>();   // For each open center tag, whether it was dropped.
+	private int position;                                           // The index of the next character of html to read.
+	private boolean space;                                          // Flag indicating that whitespace was read and not written yet.
+	private boolean trim = true;                                    // Flag indicating that whitespace read now can be dropped.
+
+	private HtmlMinifier(String html) {
+		this.html = html;
+		this.out = new StringBuilder(html.length());
+	}
+
+	/**
+	 * Minify HTML.
+	 * @param html The HTML.
+	 * @return The minified HTML.
+	 */
+	static String minify(CharSequence html) {
+		HtmlMinifier minifier = new HtmlMinifier(html.toString());
+
+		minifier.run();
+
+		return minifier.out.toString();
+	}
+
+	/**
+	 * Read the whole HTML and write the minified HTML.
+	 */
+	private void run() {
+		while (position < html.length()) {
+			char c = html.charAt(position);
+
+			if (c == '<' && html.startsWith("<!--", position)) {
+				readComment();
+			} else if (c == '<' && position + 1 < html.length() && isTagStart(html.charAt(position + 1))) {
+				readTag();
+			} else if (Character.isWhitespace(c)) {
+				space = true;
+				position++;
+			} else {
+				writeSpace(false);
+				out.append(c);
+				trim = false;
+				position++;
+			}
+		}
+	}
+
+	/**
+	 * Skip a comment. Conditional comments are copied, because they aren't
+	 * ignored by every browser.
+	 */
+	private void readComment() {
+		int end = html.indexOf("-->", position + 4);
+		end = end < 0 ? html.length() : end + 3;
+
+		if (html.startsWith("<!--[", position)) {
+			writeSpace(false);
+			out.append(html, position, end);
+			trim = false;
+		}
+
+		position = end;
+	}
+
+	/**
+	 * Read a tag and write it without its redundant parts.
+	 */
+	private void readTag() {
+		int end = findTagEnd(position + 1);
+		String tag = html.substring(position + 1, end);
+		String name = getTagName(tag);
+		boolean closing = name.startsWith("/");
+		String bareName = closing ? name.substring(1) : name;
+		boolean block = BLOCK_TAGS.contains(bareName);
+
+		position = Math.min(end + 1, html.length());
+
+		if (bareName.equals("center") && dropCenter(closing)) {
+			return;
+		}
+
+		writeSpace(block);
+		writeTag(tag, name.length());
+		trim = block;
+
+		if (!closing && RAW_TAGS.contains(bareName)) {
+			copyRaw(bareName);
+		}
+	}
+
+	/**
+	 * Decide whether a center tag is dropped. An opening center tag is dropped
+	 * when it directly wraps an image or a video, and a closing center tag is
+	 * dropped when its opening tag was.
+	 * @param closing Flag indicating that the tag is a closing tag.
+	 * @return True if the tag is dropped, false if it is written.
+	 */
+	private boolean dropCenter(boolean closing) {
+		if (closing) {
+			return !centers.isEmpty() && centers.remove(centers.size() - 1);
+		}
+
+		int next = position;
+
+		while (next < html.length() && Character.isWhitespace(html.charAt(next))) {
+			next++;
+		}
+
+		String rest = html.substring(next, Math.min(html.length(), next + 6)).toLowerCase(Locale.US);
+		boolean drop = rest.startsWith("<img") || rest.startsWith("<video");
+
+		centers.add(drop);
+
+		return drop;
+	}
+
+	/**
+	 * Write a tag with its whitespace collapsed, empty size attributes dropped
+	 * and without a closing slash.
+	 * @param tag The text between the angle brackets of the tag.
+	 * @param nameLength The length of the tag name.
+	 */
+	private void writeTag(String tag, int nameLength) {
+		int i = nameLength;
+
+		out.append('<').append(tag, 0, nameLength);
+
+		while (i < tag.length()) {
+			char c = tag.charAt(i);
+
+			if (Character.isWhitespace(c) || c == '/' || c == '=') {
+				i++;
+				continue;
+			}
+
+			int nameEnd = i;
+
+			while (nameEnd < tag.length() && !Character.isWhitespace(tag.charAt(nameEnd))
+					&& tag.charAt(nameEnd) != '=' && tag.charAt(nameEnd) != '/') {
+				nameEnd++;
+			}
+
+			int valueStart = skipWhitespace(tag, nameEnd);
+			int attributeEnd = nameEnd;
+			boolean empty = true;
+
+			if (valueStart < tag.length() && tag.charAt(valueStart) == '=') {
+				valueStart = skipWhitespace(tag, valueStart + 1);
+				attributeEnd = findValueEnd(tag, valueStart);
+				empty = attributeEnd - valueStart <= 2 && attributeEnd > valueStart
+						&& (tag.charAt(valueStart) == '"' || tag.charAt(valueStart) == '\'');
+			} else {
+				valueStart = nameEnd;
+			}
+
+			String attribute = tag.substring(i, nameEnd);
+
+			if (!(empty && EMPTY_ATTRIBUTES.contains(attribute.toLowerCase(Locale.US)))) {
+				out.append(' ').append(attribute);
+
+				if (attributeEnd > nameEnd) {
+					out.append('=').append(tag, valueStart, attributeEnd);
+				}
+			}
+
+			i = Math.max(attributeEnd, nameEnd + 1);
+		}
+
+		out.append('>');
+	}
+
+	/**
+	 * Copy the content of a raw tag up to its closing tag unchanged.
+	 * @param name The lower case name of the tag.
+	 */
+	private void copyRaw(String name) {
+		String closingTag = "</" + name;
+		int end = position;
+
+		while (end < html.length() && !html.regionMatches(true, end, closingTag, 0, closingTag.length())) {
+			end++;
+		}
+
+		out.append(html, position, end);
+		position = end;
+		trim = false;
+	}
+
+	/**
+	 * Write the whitespace that was read before a tag or text, collapsed to
+	 * a single space. Whitespace next to a block tag is dropped.
+	 * @param block Flag indicating that the whitespace is followed by a block tag.
+	 */
+	private void writeSpace(boolean block) {
+		if (space && !trim && !block) {
+			out.append(' ');
+		}
+
+		space = false;
+	}
+
+	/**
+	 * Find the closing angle bracket of a tag, skipping quoted attribute values.
+	 * @param start The index to search from.
+	 * @return The index of the closing angle bracket, or the length of the HTML if there is none.
+	 */
+	private int findTagEnd(int start) {
+		char quote = 0;
+
+		for (int i = start; i < html.length(); i++) {
+			char c = html.charAt(i);
+
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == '>') {
+				return i;
+			}
+		}
+
+		return html.length();
+	}
+
+	/**
+	 * Find the end of an attribute value.
+	 * @param tag The text of the tag.
+	 * @param start The index of the first character of the value.
+	 * @return The index after the last character of the value, including its closing quote.
+	 */
+	private static int findValueEnd(String tag, int start) {
+		if (start >= tag.length()) {
+			return start;
+		}
+
+		char quote = tag.charAt(start);
+
+		if (quote == '"' || quote == '\'') {
+			int end = tag.indexOf(quote, start + 1);
+			return end < 0 ? tag.length() : end + 1;
+		}
+
+		int end = start;
+
+		while (end < tag.length() && !Character.isWhitespace(tag.charAt(end))) {
+			end++;
+		}
+
+		return end;
+	}
+
+	/**
+	 * Get the lower case name of a tag, including the slash of a closing tag.
+	 * @param tag The text between the angle brackets of the tag.
+	 * @return The name of the tag.
+	 */
+	private static String getTagName(String tag) {
+		int end = 1;
+
+		while (end < tag.length() && !Character.isWhitespace(tag.charAt(end))
+				&& tag.charAt(end) != '/' && tag.charAt(end) != '>') {
+			end++;
+		}
+
+		return tag.substring(0, end).toLowerCase(Locale.US);
+	}
+
+	/**
+	 * Skip whitespace.
+	 * @param s The String.
+	 * @param start The index to start at.
+	 * @return The index of the first character after start that isn't whitespace.
+	 */
+	private static int skipWhitespace(String s, int start) {
+		while (start < s.length() && Character.isWhitespace(s.charAt(start))) {
+			start++;
+		}
+
+		return start;
+	}
+
+	/**
+	 * Determine if a character can follow '<' at the start of a tag.
+	 * @param c The character after '<'.
+	 * @return True if '<' starts a tag, false if it is text.
+	 */
+	private static boolean isTagStart(char c) {
+		return Character.isLetter(c) || c == '/' || c == '!';
+	}
+}
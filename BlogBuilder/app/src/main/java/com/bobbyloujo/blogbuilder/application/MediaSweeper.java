@@ -0,0 +1,180 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import android.content.Context;
+
+import com.bobbyloujo.blogbuilder.media.ImageImporter;
+import com.bobbyloujo.blogbuilder.media.PosterExtractor;
+import com.bobbyloujo.blogbuilder.post.Element;
+import com.bobbyloujo.blogbuilder.post.ElementList;
+import com.bobbyloujo.blogbuilder.post.ImageElement;
+import com.bobbyloujo.blogbuilder.post.Post;
+import com.bobbyloujo.blogbuilder.post.VideoElement;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Deletes the renditions of images and the posters of videos that no Post
+ * uses any more. They are left behind when a Post is deleted, or when an
+ * image or video is removed from a Post or replaced.
+ *
+ * The filenames of the Posts and the media of the temp Post are taken from
+ * the PostLoader when the MediaSweeper is created, so it should be created on
+ * the main thread. sweep may then be run on a background thread.
+ *
+ * Files are matched by name rather than by path, because the renditions and
+ * posters are named by hashes, and the path of the files directory a Post was
+ * saved with may differ from the current one.
+ *
+ * Files written or reused within the GRACE_PERIOD are kept even if no saved
+ * Post uses them, because an import that hasn't been added to a Post yet, or
+ * a Post that is being saved, may be about to use them.
+ */
+public class MediaSweeper {
+	static final long GRACE_PERIOD = 24 * 60 * 60 * 1000;   // How long in milliseconds a file is kept after it was last written or reused.
+
+	private final PostLoader postLoader;                        // The PostLoader the Posts are read from.
+	private final File[] directories;                           // The directories of the renditions and posters.
+	private final ArrayList<String> fileNames;                  // The filenames of the Posts.
+	private final HashSet<String> names = new HashSet<>();      // The filenames of the media used by the temp Post.
+
+	/**
+	 * Create a new MediaSweeper for the Posts currently in the post list.
+	 * @param context A Context of the app, used to find the directories of the media.
+	 */
+	public MediaSweeper(Context context) {
+		File filesDir = context.getApplicationContext().getFilesDir();
+		Post tempPost;
+
+		this.postLoader = PostLoader.getInstance();
+		this.directories = new File[] {
+				new File(filesDir, ImageImporter.DIRECTORY_NAME),
+				new File(filesDir, PosterExtractor.DIRECTORY_NAME)
+		};
+		this.fileNames = new ArrayList<>(postLoader.getSize());
+
+		for (int i = 0; i < postLoader.getSize(); i++) {
+			fileNames.add(postLoader.getFileName(i));
+		}
+
+		tempPost = postLoader.getTempPost();
+
+		if (tempPost != null) {
+			addMediaNames(tempPost.getElementList(), names);
+		}
+	}
+
+	/**
+	 * Delete the media files that no Post uses. Reads every Post, so it should
+	 * not be called on the main thread. Nothing is deleted if a Post can't be
+	 * read, because its media would be deleted with it.
+	 * @return The number of files deleted.
+	 */
+	public int sweep() {
+		HashSet<String> used = new HashSet<>(names);
+
+		for (String fileName : fileNames) {
+			Post post = postLoader.peekPost(fileName);
+
+			if (post == null) {
+				return 0;
+			}
+
+			addMediaNames(post.getElementList(), used);
+		}
+
+		return deleteUnused(directories, used, System.currentTimeMillis() - GRACE_PERIOD);
+	}
+
+	/**
+	 * Delete the files in some directories that aren't in a set of filenames
+	 * and weren't modified since a given time.
+	 * @param directories The directories.
+	 * @param used The filenames of the files to keep.
+	 * @param before The time in milliseconds since the epoch that files modified later are kept.
+	 * @return The number of files deleted.
+	 */
+	static int deleteUnused(File[] directories, Set<String> used, long before) {
+		int deleted = 0;
+
+		for (File directory : directories) {
+			File[] files = directory.listFiles();
+
+			if (files == null) {
+				continue;
+			}
+
+			for (File file : files) {
+				if (file.isFile() && !used.contains(file.getName()) && file.lastModified() < before && file.delete()) {
+					deleted++;
+				}
+			}
+		}
+
+		return deleted;
+	}
+
+	/**
+	 * Add the filenames of the renditions and posters used by an ElementList to a set.
+	 * @param list The ElementList.
+	 * @param names The set to add the filenames to.
+	 */
+	static void addMediaNames(ElementList list, Set<String> names) {
+		for (int i = 0; i < list.getSize(); i++) {
+			Element e = list.getElement(i);
+
+			if (e instanceof ImageElement) {
+				ImageElement image = (ImageElement) e;
+
+				addName(image.getWebSrc(), names);
+				addName(image.getThumbnailSrc(), names);
+
+				if (image.getSizedSrcs() != null) {
+					for (String src : image.getSizedSrcs()) {
+						addName(src, names);
+					}
+				}
+			} else if (e instanceof VideoElement) {
+				addName(((VideoElement) e).getPosterSrc(), names);
+			} else if (e instanceof ElementList) {
+				addMediaNames((ElementList) e, names);
+			}
+		}
+	}
+
+	/**
+	 * Add the filename of a path to a set if there is one.
+	 * @param path The path, or null.
+	 * @param names The set to add the filename to.
+	 */
+	private static void addName(String path, Set<String> names) {
+		if (path != null) {
+			names.add(new File(path).getName());
+		}
+	}
+}
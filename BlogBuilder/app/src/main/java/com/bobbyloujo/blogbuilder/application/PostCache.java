@@ -0,0 +1,114 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import android.util.LruCache;
+
+import com.bobbyloujo.blogbuilder.post.Element;
+import com.bobbyloujo.blogbuilder.post.ElementList;
+import com.bobbyloujo.blogbuilder.post.ImageElement;
+import com.bobbyloujo.blogbuilder.post.Post;
+import com.bobbyloujo.blogbuilder.post.TextElement;
+import com.bobbyloujo.blogbuilder.post.VideoElement;
+
+/**
+ * A least recently used cache of loaded Posts keyed by filename. The size of
+ * the cache is an estimate of the number of bytes the cached Posts occupy.
+ *
+ * The size of a Post is measured once, when it is put in the cache, so a
+ * cached Post must never be edited: Posts that are still being edited are
+ * copied before they are put in the cache, and Posts returned by the cache
+ * are shared, so they should be copied before they are edited.
+ */
+public class PostCache extends LruCache<String, Post> {
+	private static final int OBJECT_OVERHEAD = 16;   // Estimated size of an object header in bytes.
+	private static final int STRING_OVERHEAD = 40;   // Estimated size of an empty String in bytes.
+
+	/**
+	 * Create a new PostCache.
+	 * @param maxSize The maximum estimated size of the cached Posts in bytes.
+	 */
+	public PostCache(int maxSize) {
+		super(maxSize);
+	}
+
+	@Override
+	protected int sizeOf(String fileName, Post post) {
+		return estimateSize(post);
+	}
+
+	/**
+	 * Estimate the number of bytes that a Post occupies in memory.
+	 * @param post The Post to measure.
+	 * @return The estimated size of the Post in bytes.
+	 */
+	public static int estimateSize(Post post) {
+		return OBJECT_OVERHEAD + sizeOf(post.getFileName()) + sizeOf(post.getTitle()) + sizeOf(post.getElementList());
+	}
+
+	/**
+	 * Estimate the number of bytes that an Element occupies in memory.
+	 * @param e The Element to measure.
+	 * @return The estimated size of the Element in bytes.
+	 */
+	private static int sizeOf(Element e) {
+		int size = OBJECT_OVERHEAD;
+
+		if (e instanceof ElementList) {
+			ElementList list = (ElementList) e;
+
+			for (int i = 0; i < list.getSize(); i++) {
+				size += sizeOf(list.getElement(i));
+			}
+		} else if (e instanceof ImageElement) {
+			ImageElement image = (ImageElement) e;
+			size += sizeOf(image.getSrc()) + sizeOf(image.getWidth()) + sizeOf(image.getHeight())
+					+ sizeOf(image.getWebSrc()) + sizeOf(image.getThumbnailSrc());
+
+			if (image.getSizedSrcs() != null) {
+				for (String src : image.getSizedSrcs()) {
+					size += sizeOf(src) + 4;
+				}
+			}
+		} else if (e instanceof VideoElement) {
+			VideoElement video = (VideoElement) e;
+			size += sizeOf(video.getSrcURL()) + sizeOf(video.getWidth()) + sizeOf(video.getHeight()) + sizeOf(video.getPosterSrc());
+		} else if (e instanceof TextElement) {
+			size += sizeOf(e.getHtml()) + sizeOf(((TextElement) e).getPlainText());
+		} else {
+			size += sizeOf(e.getHtml());
+		}
+
+		return size;
+	}
+
+	/**
+	 * Estimate the number of bytes that a String occupies in memory.
+	 * @param s The String to measure. May be null.
+	 * @return The estimated size of the String in bytes.
+	 */
+	private static int sizeOf(String s) {
+		return s == null ? 0 : STRING_OVERHEAD + 2 * s.length();
+	}
+}
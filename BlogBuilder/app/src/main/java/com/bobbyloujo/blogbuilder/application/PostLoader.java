@@ -25,16 +25,29 @@ package com.bobbyloujo.blogbuilder.application;
 
 import android.content.Context;
 
+import com.bobbyloujo.blogbuilder.media.ImageImporter;
+import com.bobbyloujo.blogbuilder.media.PosterExtractor;
 import com.bobbyloujo.blogbuilder.post.Post;
-
+import com.bobbyloujo.blogbuilder.post.PostCodec;
+import com.bobbyloujo.blogbuilder.post.PostSummary;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * This class handles data persistence between app sessions and retrieving posts
@@ -44,28 +57,108 @@ import java.util.ArrayList;
  */
 public class PostLoader {
 	private static final String POST_LIST_FILE_NAME = "post-file-names";  // The name of the file containing a list of filenames of the Posts
-	private static final String TEMP_POST_NAME = "temp";                  // The filename of the temporary copy of a post that is currently being edited.
+	private static final String POST_INDEX_FILE_NAME = "post-index";      // The name of the file containing the summaries of the Posts
+	private static final int POST_INDEX_VERSION = 3;                      // The format version of the post index file. Version 2 summarizes images by their thumbnail rendition, version 3 falls back to the poster of a video.
+	private static final int CACHE_MEMORY_FRACTION = 16;                  // The fraction of the maximum heap size used to cache loaded posts.
+	private static final int BUFFER_SIZE = 8192;                          // The size of the buffers used when reading and writing posts.
+	private static final String SEGMENTS_DIRECTORY_NAME = "posts";        // The name of the directory containing the segmented post store.
+	private static final String LEGACY_TEMP_POST_NAME = "temp";           // The filename the temp Post was kept in before it had an EditSession.
+
+	public static final int STORE_FILES = 0;      // Store mode that keeps each Post in its own file.
+	public static final int STORE_SEGMENTS = 1;   // Store mode that keeps all Posts in a SegmentedPostStore.
 
 	private static PostLoader postLoader;                                 // The sole instance of this class.
 
-	private Post tempPost;                     // The temporary copy of a post that is currently being edited.
+	private EditSession editSession;           // The copy of a post that is currently being edited.
 	private Context context;                   // The Context used for CRUDing files.
-	private ArrayList<String> postFileNames;   // The list of Post filenames
+	private PostRegistry postFileNames;        // The list of Post filenames
+	private FileNameRegistry fileNames;        // The filenames in use, used to allocate filenames for new Posts
+	private final HashMap<String, PostSummary> postIndex = new HashMap<>();  // The summaries of the Posts keyed by filename, changed only while holding its lock
+	private PostCache postCache;               // Recently loaded and saved Posts
+	private PostStore fileStore;               // The store of the post list, post index, and edit session
+	private PostWriter fileWriter;             // Writes the files of fileStore in the background
+	private PostStore postStore;               // The store of the Posts
+	private PostWriter postWriter;             // Writes the Posts in the background
+	private PostStore migrationStore;          // The store Posts are moved out of, or null if there is none
+	private PostWriter migrationWriter;        // Deletes the Posts of migrationStore in the background
+
+	/**
+	 * Writes the list of post filenames. The list is copied when the write runs,
+	 * so saves requested while an earlier save is waiting copy it once.
+	 */
+	private final PostWriter.Content postListContent = new PostWriter.Content() {
+		@Override public void writeTo(OutputStream outputStream) throws IOException {
+			ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+			objectOutputStream.writeObject(postFileNames.toList());
+			objectOutputStream.flush();
+		}
+	};
+
+	/**
+	 * Writes the post index. Like postListContent, the index is copied when the
+	 * write runs rather than when it is requested.
+	 */
+	private final PostWriter.Content postIndexContent = new PostWriter.Content() {
+		@Override public void writeTo(OutputStream outputStream) throws IOException {
+			DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+			ArrayList<PostSummary> summaries;
+
+			synchronized (postIndex) {
+				summaries = new ArrayList<>(postIndex.values());
+			}
+
+			dataOutputStream.writeInt(POST_INDEX_VERSION);
+			dataOutputStream.writeInt(summaries.size());
+
+			for (PostSummary summary : summaries) {
+				summary.write(dataOutputStream);
+			}
+
+			dataOutputStream.flush();
+		}
+	};
 
 	/**
 	 * Create a new PostLoader
 	 * @param context Context used for saving, loading, and deleting files.
+	 * @param storeMode STORE_FILES or STORE_SEGMENTS.
 	 */
-	private PostLoader(Context context) {
+	private PostLoader(Context context, int storeMode) {
 		this.context = context;
+		this.postCache = new PostCache((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / CACHE_MEMORY_FRACTION));
+		this.fileStore = new FilePostStore(context.getFilesDir());
+		this.fileWriter = new PostWriter(fileStore);
+		this.postStore = fileStore;
+		this.postWriter = fileWriter;
+		this.editSession = new EditSession(fileWriter);
+
+		File segmentsDirectory = new File(context.getFilesDir(), SEGMENTS_DIRECTORY_NAME);
+
+		try {
+			if (storeMode == STORE_SEGMENTS) {
+				this.postStore = new SegmentedPostStore(segmentsDirectory);
+				this.postWriter = new PostWriter(postStore);
+				this.migrationStore = fileStore;
+				this.migrationWriter = fileWriter;
+			} else if (segmentsDirectory.isDirectory()) {
+				this.migrationStore = new SegmentedPostStore(segmentsDirectory);
+				this.migrationWriter = new PostWriter(migrationStore);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}
 
 	/**
 	 * Initialize the PostLoader.
 	 * @param context Context used for saving, loading, and deleting files.
+	 * @param storeMode STORE_FILES to store each Post in its own file or STORE_SEGMENTS
+	 *                  to store all Posts in a few segment files. Posts kept by the
+	 *                  other mode are moved the first time the post list is loaded, so
+	 *                  the mode can be changed in either direction.
 	 */
-	static void init(Context context) {
-		postLoader = new PostLoader(context);
+	static void init(Context context, int storeMode) {
+		postLoader = new PostLoader(context, storeMode);
 	}
 
 	/**
@@ -93,9 +186,8 @@ public class PostLoader {
 			post.setFileName(generateFileName(post));
 		}
 
-		if (!postFileNames.contains(post.getFileName())) {
-			postFileNames.add(post.getFileName());
-			savePost(post);
+		if (postFileNames.add(post.getFileName())) {
+			fileNames.add(post.getFileName());
 			savePostList();
 		}
 	}
@@ -118,6 +210,25 @@ public class PostLoader {
 		return loadPost(postFileNames.get(i));
 	}
 
+	/**
+	 * Returns the filename of the post at index i in the post list.
+	 * @param i The index of the post.
+	 * @return The filename of the post at index i.
+	 */
+	String getFileName(int i) {
+		return postFileNames.get(i);
+	}
+
+	/**
+	 * Returns the summary of the post at index i in the post list. The summary
+	 * is read from the post index so the post itself is not loaded.
+	 * @param i The index of the post.
+	 * @return The summary of the post at index i or null if the post couldn't be loaded.
+	 */
+	public PostSummary getSummary(int i) {
+		return postIndex.get(postFileNames.get(i));
+	}
+
 	/**
 	 * Get the number of posts in the post list.
 	 * @return The number of posts in the post list.
@@ -127,162 +238,285 @@ public class PostLoader {
 	}
 
 	/**
-	 * Generate a file name for the given Post.
+	 * Generate a file name for the given Post. The name is allocated from the
+	 * registry of filenames in use, so the file system isn't checked.
 	 * @param post The Post for which to generate a filename.
 	 * @return A unique filename for the Post.
 	 */
 	private String generateFileName(Post post) {
-		String fileName = post.getTitle().replaceAll(" ","");
-		File file = new File(context.getFilesDir().getPath() + "/" + fileName);
-		int i = 0;
-
-		while (file.exists()) {
-			i++;
-			file = new File(context.getFilesDir().getPath() + "/" + fileName.concat(Integer.toString(i)));
-		}
-
-		if (i > 0) {
-			fileName = fileName.concat(Integer.toString(i));
-		}
-
-		return fileName;
+		return fileNames.allocate(FileNameRegistry.getBaseName(post.getTitle()));
 	}
 
 	/**
 	 * Saves the specified post so that it may be retrieved later or during
-	 * a different app session.
+	 * a different app session. The post is written in the background. The cache
+	 * keeps a copy of the post, so the caller may go on editing it.
 	 * @param post The Post to save.
+	 * @return A Future that completes when the post has been written.
 	 */
-	public void savePost(Post post) {
-		FileOutputStream outputStream;
-		ObjectOutputStream objectOutputStream;
+	public Future<?> savePost(Post post) {
+		Future<?> future;
 
 		if (!contains(post)) {
 			addPost(post);
 		}
 
+		future = writePostFile(post.getFileName(), post);
+		postCache.put(post.getFileName(), post.copy());
+
+		synchronized (postIndex) {
+			postIndex.put(post.getFileName(), new PostSummary(post, System.currentTimeMillis()));
+		}
+
+		savePostIndex();
+
+		return future;
+	}
+
+	/**
+	 * Wait until every save and delete requested so far has been written.
+	 */
+	public void flush() {
 		try {
-			outputStream = context.openFileOutput(post.getFileName(), Context.MODE_PRIVATE);
-			objectOutputStream = new ObjectOutputStream(outputStream);
-			objectOutputStream.writeObject(post);
+			postWriter.flush().get();
+			fileWriter.flush().get();
 
-			outputStream.close();
-			objectOutputStream.close();
-		} catch (IOException e) {
+			if (migrationWriter != null) {
+				migrationWriter.flush().get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
 			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * Loads a saved Post.
+	 * Loads a saved Post. Recently loaded or saved Posts are returned from memory.
+	 * The returned Post is shared with the cache so it should be copied before it is edited.
 	 * @param fileName The filename of the post to load.
 	 * @return The post saved with the specified filename or null if it doesn't exist.
 	 */
 	public Post loadPost(String fileName) {
-		Post post = null;
-		FileInputStream fileInputStream;
-		ObjectInputStream objectInputStream;
+		Post post = postCache.get(fileName);
 
-		try {
-			fileInputStream = context.openFileInput(fileName);
-			objectInputStream = new ObjectInputStream(fileInputStream);
-			post = (Post) objectInputStream.readObject();
+		if (post == null) {
+			post = readPostFile(fileName);
 
-			fileInputStream.close();
-			objectInputStream.close();
-		} catch (IOException | ClassNotFoundException e) {
-			e.printStackTrace();
+			if (post != null) {
+				postCache.put(fileName, post);
+			}
 		}
 
 		return post;
 	}
 
 	/**
-	 * Deletes the specified post from the post list and the file system.
+	 * Get a saved Post without adding it to the cache, for reading many Posts at
+	 * once. May be called from any thread. A cached Post is copied, because
+	 * Posts and Elements cache their HTML without synchronization, so the
+	 * returned Post is never shared and may be rendered on the calling thread.
+	 * @param fileName The filename of the post to load.
+	 * @return A copy of the post saved with the specified filename or null if it doesn't exist.
+	 */
+	Post peekPost(String fileName) {
+		Post post = postCache.get(fileName);
+
+		if (post != null) {
+			return post.copy();
+		}
+
+		return readPostFile(fileName);
+	}
+
+	/**
+	 * Get the cache of loaded Posts. Its hit, miss, and eviction counts can be
+	 * used to measure how well it performs.
+	 * @return The cache of loaded Posts.
+	 */
+	public PostCache getPostCache() {
+		return postCache;
+	}
+
+	/**
+	 * Deletes the specified post from the post list and the file system. The file
+	 * is deleted in the background.
 	 * @param post The Post to delete.
 	 */
 	public void deletePost(Post post) {
-		if (postFileNames.contains(post.getFileName())) {
-			File file = new File(context.getFilesDir().getPath() + "/" + post.getFileName());
-			boolean deleted = false;
-			deleted = file.delete();
-
-			if (deleted) {
-				postFileNames.remove(post.getFileName());
-				savePostList();
+		if (postFileNames.remove(post.getFileName())) {
+			postWriter.delete(post.getFileName());
+
+			if (migrationStore != null && migrationStore.contains(post.getFileName())) {
+				migrationWriter.delete(post.getFileName());
+			}
+
+			fileNames.remove(post.getFileName());
+
+			synchronized (postIndex) {
+				postIndex.remove(post.getFileName());
 			}
+
+			postCache.remove(post.getFileName());
+			savePostList();
+			savePostIndex();
 		}
 	}
 
 	/**
-	 * Save the specified Post as the temp Post. This post should be a copy
-	 * of the Post that is currently being edited.
-	 * @param post A copy of the post being edited.
+	 * Start editing a copy of the specified Post. The copy becomes the temp Post.
+	 * @param post The post to edit.
+	 * @return A Future that completes when the temp post has been written.
 	 */
-	public void saveTempPost(Post post) {
-		FileOutputStream outputStream;
-		ObjectOutputStream objectOutputStream;
+	public Future<?> saveTempPost(Post post) {
+		return editSession.begin(post);
+	}
 
-		tempPost = post.copy();
+	/**
+	 * Get the temporary post. This is a copy of the post being edited. A temp
+	 * Post left by an older version of the app is moved into the edit session,
+	 * and its file is deleted once the session's snapshot has been written.
+	 * @return A copy of the post being edited.
+	 */
+	public Post getTempPost() {
+		Post post = editSession.getPost();
 
-		try {
-			outputStream = context.openFileOutput(TEMP_POST_NAME, Context.MODE_PRIVATE);
-			objectOutputStream = new ObjectOutputStream(outputStream);
-			objectOutputStream.writeObject(post);
+		if (post == null && fileStore.contains(LEGACY_TEMP_POST_NAME)) {
+			Post legacy = readLegacyTempPost();
 
-			outputStream.close();
-			objectOutputStream.close();
-		} catch (IOException e) {
-			e.printStackTrace();
+			if (legacy != null) {
+				editSession.begin(legacy);
+				post = editSession.getPost();
+			}
+
+			fileWriter.delete(LEGACY_TEMP_POST_NAME);   // Written after the snapshot, by the same writer.
 		}
+
+		return post;
 	}
 
 	/**
-	 * Get the temporary post. This is a copy of the post being edited.
-	 * @return A copy of the post being edited.
+	 * Read the temp Post left by an older version of the app, in either the
+	 * current post format or Java serialization.
+	 * @return The temp Post or null if it couldn't be read.
 	 */
-	public Post getTempPost() {
-		if (tempPost != null) {
-			return tempPost;
+	private Post readLegacyTempPost() {
+		try {
+			BufferedInputStream inputStream = new BufferedInputStream(fileStore.open(LEGACY_TEMP_POST_NAME), BUFFER_SIZE);
+
+			try {
+				if (PostCodec.isEncoded(inputStream)) {
+					return PostCodec.readPost(inputStream);
+				} else {
+					return readLegacyPost(inputStream);
+				}
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			e.printStackTrace();
+			return null;
 		}
+	}
 
+	/**
+	 * Get the edit session of the temp Post. Changes to the temp Post should be
+	 * made through the session so that they are persisted.
+	 * @return The edit session of the temp Post.
+	 */
+	public EditSession getEditSession() {
+		return editSession;
+	}
+
+	/**
+	 * Read a Post from a file, or from the content of a write of the file that
+	 * hasn't finished. Posts saved with Java serialization by older versions
+	 * of the app are migrated to the current format.
+	 * @param fileName The name of the file to read.
+	 * @return The Post read from the file or null if it couldn't be read.
+	 */
+	private Post readPostFile(String fileName) {
 		Post post = null;
-		FileInputStream fileInputStream;
-		ObjectInputStream objectInputStream;
+		boolean legacy = false;
+		PostWriter.Content pending = postWriter.getPending(fileName);
+		BufferedInputStream inputStream;
+
+		if (pending == PostWriter.DELETED) {
+			return null;
+		}
 
 		try {
-			fileInputStream = context.openFileInput(TEMP_POST_NAME);
-			objectInputStream = new ObjectInputStream(fileInputStream);
-			post = (Post) objectInputStream.readObject();
+			if (pending != null) {
+				ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+				pending.writeTo(outputStream);
+				inputStream = new BufferedInputStream(new ByteArrayInputStream(outputStream.toByteArray()), BUFFER_SIZE);
+			} else {
+				inputStream = new BufferedInputStream(postStore.open(fileName), BUFFER_SIZE);
+			}
 
-			fileInputStream.close();
-			objectInputStream.close();
+			try {
+				if (PostCodec.isEncoded(inputStream)) {
+					post = PostCodec.readPost(inputStream);
+				} else {
+					post = readLegacyPost(inputStream);
+					legacy = true;
+				}
+			} finally {
+				inputStream.close();
+			}
 		} catch (IOException | ClassNotFoundException e) {
 			e.printStackTrace();
 		}
 
-		tempPost = post;
+		if (legacy && post != null) {
+			writePostFile(fileName, post);
+		}
 
 		return post;
 	}
 
 	/**
-	 * Save the list of post filenames.
+	 * Write a Post to a file in the current post format. The Post is encoded
+	 * right away so later changes to it are not written, and the file is written
+	 * in the background.
+	 * @param fileName The name of the file to write.
+	 * @param post The Post to write.
+	 * @return A Future that completes when the file has been written.
 	 */
-	public void savePostList() {
-		FileOutputStream outputStream;
-		ObjectOutputStream objectOutputStream;
+	private Future<?> writePostFile(String fileName, Post post) {
+		final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
 
 		try {
-			outputStream = context.openFileOutput(POST_LIST_FILE_NAME, Context.MODE_PRIVATE);
-			objectOutputStream = new ObjectOutputStream(outputStream);
-			objectOutputStream.writeObject(postFileNames);
-
-			outputStream.close();
-			objectOutputStream.close();
+			PostCodec.writePost(post, encoded);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+
+		return postWriter.write(fileName, new PostWriter.Content() {
+			@Override public void writeTo(OutputStream outputStream) throws IOException {
+				encoded.writeTo(outputStream);
+			}
+		});
+	}
+
+	/**
+	 * Read a Post that was saved with Java serialization.
+	 * @param inputStream The stream to read the Post from.
+	 * @return The Post read from the stream.
+	 * @throws IOException If the stream can't be read.
+	 * @throws ClassNotFoundException If the serialized classes can't be found.
+	 */
+	private Post readLegacyPost(InputStream inputStream) throws IOException, ClassNotFoundException {
+		ObjectInputStream objectInputStream = new ObjectInputStream(inputStream);
+
+		return (Post) objectInputStream.readObject();
+	}
+
+	/**
+	 * Save the list of post filenames. The list is written in the background,
+	 * and saves requested before it is written result in one write.
+	 * @return A Future that completes when the list has been written.
+	 */
+	public Future<?> savePostList() {
+		return fileWriter.write(POST_LIST_FILE_NAME, postListContent);
 	}
 
 	/**
@@ -295,14 +529,157 @@ public class PostLoader {
 		try {
 			fileInputStream = context.openFileInput(POST_LIST_FILE_NAME);
 			objectInputStream = new ObjectInputStream(fileInputStream);
-			postFileNames = (ArrayList<String>) objectInputStream.readObject();
+			postFileNames = new PostRegistry((ArrayList<String>) objectInputStream.readObject());
 
 			fileInputStream.close();
 			objectInputStream.close();
 		} catch(FileNotFoundException e) {
-			postFileNames = new ArrayList<>();
+			postFileNames = new PostRegistry();
 		} catch (IOException | ClassNotFoundException e) {
 			e.printStackTrace();
 		}
+
+		loadFileNames();
+		migratePosts();
+		loadPostIndex();
+	}
+
+	/**
+	 * Build the registry of filenames in use from the post list, the names of the
+	 * files the PostLoader keeps besides Posts, the directories imported media is
+	 * written to, and the files that already exist.
+	 */
+	private void loadFileNames() {
+		String[] existing = context.getFilesDir().list();
+
+		fileNames = new FileNameRegistry();
+		fileNames.add(POST_LIST_FILE_NAME);
+		fileNames.add(POST_INDEX_FILE_NAME);
+		fileNames.add(SEGMENTS_DIRECTORY_NAME);
+		fileNames.add(ImageImporter.DIRECTORY_NAME);
+		fileNames.add(PosterExtractor.DIRECTORY_NAME);
+		fileNames.add(EditSession.SNAPSHOT_NAME);
+		fileNames.add(EditSession.LOG_NAME);
+
+		if (existing != null) {
+			for (String name : existing) {
+				fileNames.add(name);
+			}
+		}
+
+		for (String name : postFileNames) {
+			fileNames.add(name);
+		}
+	}
+
+	/**
+	 * Move Posts that are kept by the store of the other store mode into the post
+	 * store. A Post is only deleted from the other store once the post store holds
+	 * a copy at least as new, which may be the next time the list is loaded.
+	 */
+	private void migratePosts() {
+		if (migrationStore == null) {
+			return;
+		}
+
+		for (final String fileName : postFileNames) {
+			if (!migrationStore.contains(fileName)) {
+				continue;
+			}
+
+			if (postStore.contains(fileName) && postStore.lastModified(fileName) >= migrationStore.lastModified(fileName)) {
+				migrationWriter.delete(fileName);
+			} else {
+				final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+				try {
+					InputStream inputStream = migrationStore.open(fileName);
+
+					try {
+						byte[] buffer = new byte[BUFFER_SIZE];
+						int read;
+
+						while ((read = inputStream.read(buffer)) != -1) {
+							content.write(buffer, 0, read);
+						}
+					} finally {
+						inputStream.close();
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+					continue;
+				}
+
+				postWriter.write(fileName, new PostWriter.Content() {
+					@Override public void writeTo(OutputStream outputStream) throws IOException {
+						content.writeTo(outputStream);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Save the summaries of the posts. The index is written in the background,
+	 * and saves requested before it is written result in one write.
+	 */
+	private void savePostIndex() {
+		fileWriter.write(POST_INDEX_FILE_NAME, postIndexContent);
+	}
+
+	/**
+	 * Load the summaries of the posts. Posts that are missing from the index,
+	 * such as those saved by older versions of the app, are loaded once and
+	 * added to it.
+	 */
+	private void loadPostIndex() {
+		DataInputStream inputStream;
+		boolean changed = false;
+
+		synchronized (postIndex) {
+			postIndex.clear();
+		}
+
+		try {
+			inputStream = new DataInputStream(new BufferedInputStream(context.openFileInput(POST_INDEX_FILE_NAME), BUFFER_SIZE));
+
+			try {
+				if (inputStream.readInt() == POST_INDEX_VERSION) {
+					int size = inputStream.readInt();
+
+					for (int i = 0; i < size; i++) {
+						PostSummary summary = PostSummary.read(inputStream);
+
+						synchronized (postIndex) {
+							postIndex.put(summary.getFileName(), summary);
+						}
+					}
+				}
+			} finally {
+				inputStream.close();
+			}
+		} catch (FileNotFoundException e) {
+			// No index yet. It is built from the posts below.
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		for (String fileName : postFileNames) {
+			if (!postIndex.containsKey(fileName)) {
+				Post post = readPostFile(fileName);
+
+				if (post != null) {
+					synchronized (postIndex) {
+						postIndex.put(fileName, new PostSummary(post, postStore.lastModified(fileName)));
+					}
+
+					changed = true;
+				}
+			}
+		}
+
+		if (changed) {
+			savePostIndex();
+		}
 	}
 }
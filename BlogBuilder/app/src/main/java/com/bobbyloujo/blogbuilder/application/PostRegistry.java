@@ -0,0 +1,196 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The ordered list of Post filenames with a hash index from filename to
+ * position, so that a filename can be found without searching the list.
+ *
+ * Removing a filename only leaves a gap in its place, so a removal takes
+ * constant time. The gaps are closed, and the positions after them brought up
+ * to date, the next time a filename is looked up by position. That costs one
+ * pass over the list however many filenames were removed since the last one.
+ *
+ * The methods are synchronized, so the list can be copied by a background
+ * writer while the main thread changes it.
+ */
+public class PostRegistry implements Iterable<String> {
+	private final ArrayList<String> fileNames;                    // The filenames in list order, with null in place of removed filenames.
+	private final HashMap<String, Integer> positions;             // The position of each filename in fileNames.
+	private int removedCount;                                     // The number of gaps in fileNames.
+
+	/**
+	 * Create a new, empty PostRegistry.
+	 */
+	public PostRegistry() {
+		this(Collections.<String>emptyList());
+	}
+
+	/**
+	 * Create a new PostRegistry containing the specified filenames in order.
+	 * @param fileNames The filenames.
+	 */
+	public PostRegistry(Collection<String> fileNames) {
+		this.fileNames = new ArrayList<>(fileNames);
+		this.positions = new HashMap<>(Math.max(16, fileNames.size() * 2));
+
+		for (int i = 0; i < this.fileNames.size(); i++) {
+			positions.put(this.fileNames.get(i), i);
+		}
+	}
+
+	/**
+	 * Get the number of filenames.
+	 * @return The number of filenames.
+	 */
+	public synchronized int size() {
+		return fileNames.size() - removedCount;
+	}
+
+	/**
+	 * Get the filename at a position.
+	 * @param i The position.
+	 * @return The filename at position i.
+	 */
+	public synchronized String get(int i) {
+		compact();
+		return fileNames.get(i);
+	}
+
+	/**
+	 * Determine if a filename is in the list.
+	 * @param fileName The filename.
+	 * @return True if the filename is in the list, false otherwise.
+	 */
+	public synchronized boolean contains(String fileName) {
+		return positions.containsKey(fileName);
+	}
+
+	/**
+	 * Get the position of a filename.
+	 * @param fileName The filename.
+	 * @return The position of the filename or -1 if it isn't in the list.
+	 */
+	public synchronized int indexOf(String fileName) {
+		if (!positions.containsKey(fileName)) {
+			return -1;
+		}
+
+		compact();
+		return positions.get(fileName);
+	}
+
+	/**
+	 * Add a filename to the end of the list if it isn't in the list already.
+	 * @param fileName The filename.
+	 * @return True if the filename was added, false if it was already in the list.
+	 */
+	public synchronized boolean add(String fileName) {
+		if (positions.containsKey(fileName)) {
+			return false;
+		}
+
+		positions.put(fileName, fileNames.size());
+		fileNames.add(fileName);
+
+		return true;
+	}
+
+	/**
+	 * Remove a filename from the list.
+	 * @param fileName The filename.
+	 * @return True if the filename was removed, false if it wasn't in the list.
+	 */
+	public synchronized boolean remove(String fileName) {
+		Integer position = positions.remove(fileName);
+
+		if (position == null) {
+			return false;
+		}
+
+		fileNames.set(position, null);
+		removedCount++;
+
+		return true;
+	}
+
+	/**
+	 * Get a copy of the filenames in list order.
+	 * @return A copy of the filenames.
+	 */
+	public synchronized ArrayList<String> toList() {
+		ArrayList<String> list = new ArrayList<>(size());
+
+		for (String fileName : fileNames) {
+			if (fileName != null) {
+				list.add(fileName);
+			}
+		}
+
+		return list;
+	}
+
+	/**
+	 * Iterate over the filenames in list order. The list must not be changed
+	 * while it is iterated.
+	 * @return An iterator of the filenames.
+	 */
+	@Override
+	public synchronized Iterator<String> iterator() {
+		compact();
+		return Collections.unmodifiableList((List<String>) fileNames).iterator();
+	}
+
+	/**
+	 * Close the gaps left by removed filenames and bring the positions of the
+	 * filenames after them up to date.
+	 */
+	private void compact() {
+		if (removedCount == 0) {
+			return;
+		}
+
+		int next = 0;
+
+		for (int i = 0; i < fileNames.size(); i++) {
+			String fileName = fileNames.get(i);
+
+			if (fileName != null) {
+				fileNames.set(next, fileName);
+				positions.put(fileName, next);
+				next++;
+			}
+		}
+
+		fileNames.subList(next, fileNames.size()).clear();
+		removedCount = 0;
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Storage for the files that hold Posts and their metadata. A PostStore is
+ * written only by the PostWriter thread but may be read from any thread.
+ */
+public interface PostStore {
+	/**
+	 * Open a stored file for reading.
+	 * @param name The name of the file.
+	 * @return A stream of the content of the file. The caller must close it.
+	 * @throws java.io.FileNotFoundException If the file doesn't exist.
+	 * @throws IOException If the file can't be read.
+	 */
+	InputStream open(String name) throws IOException;
+
+	/**
+	 * Write a file, replacing it if it exists.
+	 * @param name The name of the file.
+	 * @param content The content of the file.
+	 * @throws IOException If the file can't be written.
+	 */
+	void write(String name, PostWriter.Content content) throws IOException;
+
+	/**
+	 * Append to the end of a file, creating it if it doesn't exist.
+	 * @param name The name of the file.
+	 * @param content The content to append.
+	 * @throws IOException If the file can't be written.
+	 */
+	void append(String name, PostWriter.Content content) throws IOException;
+
+	/**
+	 * Delete a file if it exists.
+	 * @param name The name of the file.
+	 * @throws IOException If the file can't be deleted.
+	 */
+	void delete(String name) throws IOException;
+
+	/**
+	 * Determine if a file exists.
+	 * @param name The name of the file.
+	 * @return True if the file exists, false otherwise.
+	 */
+	boolean contains(String name);
+
+	/**
+	 * Get the time a file was last written.
+	 * @param name The name of the file.
+	 * @return The time the file was last written in milliseconds since the epoch, or 0 if it doesn't exist.
+	 */
+	long lastModified(String name);
+}
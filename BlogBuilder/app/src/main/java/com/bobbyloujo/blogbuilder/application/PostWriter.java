@@ -0,0 +1,232 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Writes files to a PostStore on a single background thread. Writes are done in the order they
+ * are requested. A write that is requested while an earlier write of the same
+ * file is still waiting to run replaces the content of the earlier write, so
+ * repeated saves of a file result in one write. Appends are never merged.
+ */
+public class PostWriter {
+	/**
+	 * Returned by getPending when the latest pending operation on a file deletes it.
+	 */
+	public static final Content DELETED = new Content() {
+		@Override public void writeTo(OutputStream outputStream) throws IOException {
+			throw new IOException("The file is being deleted.");
+		}
+	};
+
+	private final PostStore store;                             // The store the files are written to.
+	private final ExecutorService executor;                    // The single thread that writes the files.
+	private final HashMap<String, Write> pending = new HashMap<>();  // The latest write of each file that hasn't finished.
+
+	/**
+	 * The content of a file to write.
+	 */
+	public interface Content {
+		/**
+		 * Write the content to the stream. Called on the writer thread.
+		 * @param outputStream The stream to write to.
+		 * @throws IOException If the stream can't be written.
+		 */
+		void writeTo(OutputStream outputStream) throws IOException;
+	}
+
+	/**
+	 * Create a new PostWriter.
+	 * @param store The store the files are written to.
+	 */
+	PostWriter(PostStore store) {
+		this.store = store;
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "PostWriter");
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Write a file in the background.
+	 * @param fileName The name of the file to write.
+	 * @param content The content of the file.
+	 * @return A Future that completes when the file has been written.
+	 */
+	public synchronized Future<?> write(String fileName, Content content) {
+		return enqueue(fileName, content);
+	}
+
+	/**
+	 * Delete a file in the background.
+	 * @param fileName The name of the file to delete.
+	 * @return A Future that completes when the file has been deleted.
+	 */
+	public synchronized Future<?> delete(String fileName) {
+		return enqueue(fileName, null);
+	}
+
+	/**
+	 * Append to a file in the background. A queued write of the same file that
+	 * hasn't started yet will no longer take the content of later writes, so
+	 * the append always stays after the writes requested before it and before
+	 * the writes requested after it.
+	 * @param fileName The name of the file to append to.
+	 * @param content The content to append.
+	 * @return A Future that completes when the content has been appended.
+	 */
+	public synchronized Future<?> append(final String fileName, final Content content) {
+		Write write = pending.get(fileName);
+
+		if (write != null) {
+			write.sealed = true;
+		}
+
+		return executor.submit(new Callable<Void>() {
+			@Override public Void call() throws IOException {
+				try {
+					store.append(fileName, content);
+				} catch (IOException e) {
+					e.printStackTrace();
+					throw e;
+				}
+
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Get the content of the latest write of a file that hasn't finished. Reads
+	 * of a file should use this content instead of the file when it isn't null.
+	 * @param fileName The name of the file.
+	 * @return The content of the latest write, DELETED if the file is being deleted,
+	 *         or null if the file has no write that hasn't finished.
+	 */
+	public synchronized Content getPending(String fileName) {
+		Write write = pending.get(fileName);
+
+		if (write == null) {
+			return null;
+		}
+
+		return write.content == null ? DELETED : write.content;
+	}
+
+	/**
+	 * Get the store the files are written to.
+	 * @return The store the files are written to.
+	 */
+	public PostStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Get a Future that completes when every write requested so far has finished.
+	 * @return A Future that completes when every write requested so far has finished.
+	 */
+	public Future<?> flush() {
+		return executor.submit(new Runnable() {
+			@Override public void run() {
+			}
+		});
+	}
+
+	/**
+	 * Queue a write or delete, or merge it into a queued write of the same file
+	 * that hasn't started yet.
+	 * @param fileName The name of the file.
+	 * @param content The content of the file, or null to delete it.
+	 * @return A Future that completes when the file has been written or deleted.
+	 */
+	private Future<?> enqueue(String fileName, Content content) {
+		Write write = pending.get(fileName);
+
+		if (write != null && !write.started && !write.sealed) {
+			write.content = content;
+			return write.future;
+		}
+
+		write = new Write(fileName, content);
+		pending.put(fileName, write);
+		write.future = executor.submit(write);
+
+		return write.future;
+	}
+
+	/**
+	 * A write or delete of a file.
+	 */
+	private class Write implements Callable<Void> {
+		private final String fileName;  // The name of the file.
+		private Content content;        // The content to write, or null to delete the file.
+		private boolean started;        // Flag indicating that the write has started and can no longer be changed.
+		private boolean sealed;         // Flag indicating that an append was queued after this write so it can no longer be changed.
+		private Future<?> future;       // The Future of this write.
+
+		Write(String fileName, Content content) {
+			this.fileName = fileName;
+			this.content = content;
+		}
+
+		@Override public Void call() throws IOException {
+			Content content;
+
+			synchronized (PostWriter.this) {
+				started = true;
+				content = this.content;
+			}
+
+			try {
+				if (content != null) {
+					store.write(fileName, content);
+				} else {
+					store.delete(fileName);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+				throw e;
+			} finally {
+				synchronized (PostWriter.this) {
+					if (pending.get(fileName) == this) {
+						pending.remove(fileName);
+					}
+				}
+			}
+
+			return null;
+		}
+	}
+}
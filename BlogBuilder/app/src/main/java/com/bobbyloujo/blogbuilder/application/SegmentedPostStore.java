@@ -0,0 +1,534 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A PostStore that keeps every file as a record in a few append-only segment
+ * files instead of one file per Post. Each file is given an id. A memory-mapped
+ * offset table maps each id to the segment, offset, and length of the file's
+ * latest record, so opening a file takes one table lookup and one read.
+ *
+ * Writing a file appends a new record and points the table at it. Deleting a
+ * file clears its table slot. The space taken by old records is reclaimed by
+ * compaction: when a full segment holds less than COMPACT_RATIO live data, its
+ * live records are copied to the active segment and the segment is deleted.
+ * Compaction runs on the thread that writes to the store, which is the
+ * PostWriter thread.
+ *
+ * Record layout: magic, id, modified time, name (modified UTF-8), data length, data.
+ * Table slot layout: segment number + 1 (0 for an empty slot), record offset, record length.
+ */
+public class SegmentedPostStore implements PostStore {
+	private static final String TABLE_NAME = "posts.table";      // The filename of the offset table.
+	private static final String SEGMENT_PREFIX = "posts-";       // The start of the filename of a segment.
+	private static final String SEGMENT_SUFFIX = ".seg";         // The end of the filename of a segment.
+
+	private static final int TABLE_MAGIC = 0x42425354;           // "BBST". Marks an offset table.
+	private static final int TABLE_VERSION = 1;                  // The format version of the offset table.
+	private static final int RECORD_MAGIC = 0x42425352;          // "BBSR". Marks the start of a record.
+	private static final int HEADER_SIZE = 16;                   // The size of the table header: magic, version, capacity, unused.
+	private static final int SLOT_SIZE = 16;                     // The size of a table slot: segment, offset, length.
+	private static final int RECORD_HEADER_SIZE = 18;            // The size of a record before the name: magic, id, modified, name length.
+	private static final int INITIAL_CAPACITY = 1024;            // The number of slots in a new table.
+	private static final long SEGMENT_LIMIT = 8 * 1024 * 1024;   // The size at which a new segment is started.
+	private static final float COMPACT_RATIO = 0.5f;             // A full segment with less than this fraction of live data is compacted.
+	private static final int BUFFER_SIZE = 8192;                 // The size of the buffer used when copying a file that is appended to.
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File directory;                                      // The directory containing the table and segments.
+	private final HashMap<String, Integer> ids = new HashMap<>();      // The id of each stored file, keyed by name.
+	private final ArrayList<Integer> freeIds = new ArrayList<>();      // Ids below nextId that are not in use.
+	private final HashMap<Integer, FileChannel> segments = new HashMap<>();  // The open segments keyed by number.
+	private final HashMap<Integer, Long> liveBytes = new HashMap<>();  // The number of bytes of live records in each segment.
+
+	private RandomAccessFile tableFile;   // The offset table file.
+	private MappedByteBuffer table;       // The memory-mapped offset table.
+	private int capacity;                 // The number of slots in the table.
+	private int nextId;                   // One more than the highest id in use.
+	private int activeSegment;            // The number of the segment new records are appended to.
+
+	/**
+	 * Open the store in the specified directory, creating it if it doesn't exist.
+	 * @param directory The directory containing the table and segments.
+	 * @throws IOException If the store can't be opened.
+	 */
+	public SegmentedPostStore(File directory) throws IOException {
+		this.directory = directory;
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create " + directory.getPath());
+		}
+
+		openSegments();
+		openTable();
+	}
+
+	@Override
+	public synchronized InputStream open(String name) throws IOException {
+		Integer id = ids.get(name);
+
+		if (id == null) {
+			throw new FileNotFoundException(name);
+		}
+
+		int slot = slotPosition(id);
+		FileChannel segment = segments.get(table.getInt(slot) - 1);
+		long offset = table.getLong(slot + 4);
+		int length = table.getInt(slot + 12);
+		ByteBuffer record = ByteBuffer.allocate(length);
+
+		readFully(segment, record, offset);
+		record.position(RECORD_HEADER_SIZE + record.getShort(RECORD_HEADER_SIZE - 2));
+
+		int dataLength = record.getInt();
+
+		return new ByteArrayInputStream(record.array(), record.position(), dataLength);
+	}
+
+	@Override
+	public void write(String name, PostWriter.Content content) throws IOException {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+		content.writeTo(data);
+
+		synchronized (this) {
+			Integer id = ids.get(name);
+
+			if (id == null) {
+				id = allocateId();
+			}
+
+			byte[] record = encodeRecord(id, name, System.currentTimeMillis(), data);
+			long offset = appendRecord(record);
+
+			releaseSlot(id);
+			setSlot(id, activeSegment, offset, record.length);
+			ids.put(name, id);
+		}
+
+		compactIfNeeded();
+	}
+
+	/**
+	 * Append to a file by writing a new record that holds the file's content
+	 * followed by the appended content. Records are only ever written whole, so
+	 * an append costs as much as writing the whole file.
+	 */
+	@Override
+	public void append(final String name, final PostWriter.Content content) throws IOException {
+		write(name, new PostWriter.Content() {
+			@Override public void writeTo(OutputStream outputStream) throws IOException {
+				try {
+					InputStream inputStream = open(name);
+
+					try {
+						byte[] buffer = new byte[BUFFER_SIZE];
+						int read;
+
+						while ((read = inputStream.read(buffer)) != -1) {
+							outputStream.write(buffer, 0, read);
+						}
+					} finally {
+						inputStream.close();
+					}
+				} catch (FileNotFoundException e) {
+					// The file is created by the append.
+				}
+
+				content.writeTo(outputStream);
+			}
+		});
+	}
+
+	@Override
+	public void delete(String name) throws IOException {
+		synchronized (this) {
+			Integer id = ids.remove(name);
+
+			if (id == null) {
+				return;
+			}
+
+			releaseSlot(id);
+			setSlot(id, -1, 0, 0);
+			freeIds.add(id);
+		}
+
+		compactIfNeeded();
+	}
+
+	@Override
+	public synchronized boolean contains(String name) {
+		return ids.containsKey(name);
+	}
+
+	@Override
+	public synchronized long lastModified(String name) {
+		Integer id = ids.get(name);
+
+		if (id == null) {
+			return 0;
+		}
+
+		int slot = slotPosition(id);
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+
+		try {
+			readFully(segments.get(table.getInt(slot) - 1), header, table.getLong(slot + 4));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return 0;
+		}
+
+		return header.getLong(8);
+	}
+
+	/**
+	 * Open every segment in the directory and pick the newest as the active segment.
+	 * @throws IOException If a segment can't be opened.
+	 */
+	private void openSegments() throws IOException {
+		String[] names = directory.list();
+
+		activeSegment = 0;
+
+		if (names != null) {
+			for (String name : names) {
+				if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					int number = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+					openSegment(number);
+					activeSegment = Math.max(activeSegment, number);
+				}
+			}
+		}
+
+		if (!segments.containsKey(activeSegment)) {
+			openSegment(activeSegment);
+		}
+	}
+
+	/**
+	 * Open a segment, creating it if it doesn't exist.
+	 * @param number The number of the segment.
+	 * @return The channel of the segment.
+	 * @throws IOException If the segment can't be opened.
+	 */
+	private FileChannel openSegment(int number) throws IOException {
+		FileChannel channel = new RandomAccessFile(segmentFile(number), "rw").getChannel();
+
+		segments.put(number, channel);
+		liveBytes.put(number, 0L);
+
+		return channel;
+	}
+
+	/**
+	 * Map the offset table, creating it if it doesn't exist, and load the id of
+	 * each stored file from the header of its record.
+	 * @throws IOException If the table can't be opened or is corrupt.
+	 */
+	private void openTable() throws IOException {
+		tableFile = new RandomAccessFile(new File(directory, TABLE_NAME), "rw");
+
+		if (tableFile.length() < HEADER_SIZE) {
+			mapTable(INITIAL_CAPACITY);
+			table.putInt(0, TABLE_MAGIC);
+			table.putInt(4, TABLE_VERSION);
+			return;
+		}
+
+		table = tableFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, tableFile.length());
+
+		if (table.getInt(0) != TABLE_MAGIC || table.getInt(4) != TABLE_VERSION) {
+			throw new IOException("Unrecognized post table.");
+		}
+
+		capacity = table.getInt(8);
+
+		for (int id = 0; id < capacity; id++) {
+			int slot = slotPosition(id);
+			int segment = table.getInt(slot) - 1;
+
+			if (segment >= 0) {
+				long offset = table.getLong(slot + 4);
+				int length = table.getInt(slot + 12);
+
+				ids.put(readName(segments.get(segment), offset), id);
+				liveBytes.put(segment, liveBytes.get(segment) + length);
+				nextId = id + 1;
+			}
+		}
+
+		for (int id = 0; id < nextId; id++) {
+			if (table.getInt(slotPosition(id)) == 0) {
+				freeIds.add(id);
+			}
+		}
+	}
+
+	/**
+	 * Grow the table file to hold the specified number of slots and map it.
+	 * @param capacity The number of slots.
+	 * @throws IOException If the table can't be grown or mapped.
+	 */
+	private void mapTable(int capacity) throws IOException {
+		long size = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+
+		tableFile.setLength(size);
+		table = tableFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		table.putInt(8, capacity);
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Get an unused id, growing the table if every slot is in use.
+	 * @return An unused id.
+	 * @throws IOException If the table can't be grown.
+	 */
+	private int allocateId() throws IOException {
+		if (!freeIds.isEmpty()) {
+			return freeIds.remove(freeIds.size() - 1);
+		}
+
+		if (nextId >= capacity) {
+			mapTable(capacity * 2);
+		}
+
+		return nextId++;
+	}
+
+	/**
+	 * Get the position of a slot in the table.
+	 * @param id The id of the slot.
+	 * @return The position of the slot in the table.
+	 */
+	private static int slotPosition(int id) {
+		return HEADER_SIZE + id * SLOT_SIZE;
+	}
+
+	/**
+	 * Point a slot at a record.
+	 * @param id The id of the slot.
+	 * @param segment The segment containing the record, or -1 to clear the slot.
+	 * @param offset The offset of the record in the segment.
+	 * @param length The length of the record.
+	 */
+	private void setSlot(int id, int segment, long offset, int length) {
+		int slot = slotPosition(id);
+
+		table.putLong(slot + 4, offset);
+		table.putInt(slot + 12, length);
+		table.putInt(slot, segment + 1);
+
+		if (segment >= 0) {
+			liveBytes.put(segment, liveBytes.get(segment) + length);
+		}
+	}
+
+	/**
+	 * Stop counting the record a slot points to as live.
+	 * @param id The id of the slot.
+	 */
+	private void releaseSlot(int id) {
+		int slot = slotPosition(id);
+		int segment = table.getInt(slot) - 1;
+
+		if (segment >= 0 && liveBytes.containsKey(segment)) {
+			liveBytes.put(segment, liveBytes.get(segment) - table.getInt(slot + 12));
+		}
+	}
+
+	/**
+	 * Encode a record.
+	 * @param id The id of the file.
+	 * @param name The name of the file.
+	 * @param modified The time the file was written.
+	 * @param data The content of the file.
+	 * @return The encoded record.
+	 * @throws IOException If the record can't be encoded.
+	 */
+	private static byte[] encodeRecord(int id, String name, long modified, ByteArrayOutputStream data) throws IOException {
+		ByteArrayOutputStream record = new ByteArrayOutputStream(RECORD_HEADER_SIZE + name.length() + 4 + data.size());
+		DataOutputStream recordData = new DataOutputStream(record);
+		byte[] nameBytes = name.getBytes(UTF_8);
+
+		recordData.writeInt(RECORD_MAGIC);
+		recordData.writeInt(id);
+		recordData.writeLong(modified);
+		recordData.writeShort(nameBytes.length);
+		recordData.write(nameBytes);
+		recordData.writeInt(data.size());
+		data.writeTo(recordData);
+		recordData.flush();
+
+		return record.toByteArray();
+	}
+
+	/**
+	 * Append a record to the active segment, starting a new segment if the active
+	 * one is full. The record is forced to storage before it is referenced by the table.
+	 * @param record The encoded record.
+	 * @return The offset of the record in the active segment.
+	 * @throws IOException If the record can't be written.
+	 */
+	private long appendRecord(byte[] record) throws IOException {
+		FileChannel segment = segments.get(activeSegment);
+		long offset = segment.size();
+
+		if (offset > 0 && offset + record.length > SEGMENT_LIMIT) {
+			activeSegment++;
+			segment = openSegment(activeSegment);
+			offset = 0;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		long position = offset;
+
+		while (buffer.hasRemaining()) {
+			position += segment.write(buffer, position);
+		}
+
+		segment.force(false);
+
+		return offset;
+	}
+
+	/**
+	 * Read the name of a file from the header of its record.
+	 * @param segment The segment containing the record.
+	 * @param offset The offset of the record.
+	 * @return The name of the file.
+	 * @throws IOException If the record can't be read or is corrupt.
+	 */
+	private static String readName(FileChannel segment, long offset) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+
+		readFully(segment, header, offset);
+
+		if (header.getInt(0) != RECORD_MAGIC) {
+			throw new IOException("Corrupt post record at " + offset + ".");
+		}
+
+		ByteBuffer name = ByteBuffer.allocate(header.getShort(RECORD_HEADER_SIZE - 2));
+		readFully(segment, name, offset + RECORD_HEADER_SIZE);
+
+		return new String(name.array(), UTF_8);
+	}
+
+	/**
+	 * Fill a buffer from a channel starting at the specified position.
+	 * @param channel The channel to read from.
+	 * @param buffer The buffer to fill.
+	 * @param position The position to start reading at.
+	 * @throws IOException If the channel ends before the buffer is full.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+
+			if (read < 0) {
+				throw new EOFException();
+			}
+
+			position += read;
+		}
+
+		buffer.flip();
+	}
+
+	/**
+	 * Compact one full segment whose live data has dropped below COMPACT_RATIO of its size.
+	 * Its live records are copied to the active segment and the segment is deleted.
+	 * @throws IOException If the segment can't be compacted.
+	 */
+	private synchronized void compactIfNeeded() throws IOException {
+		int victim = -1;
+
+		for (Map.Entry<Integer, FileChannel> entry : segments.entrySet()) {
+			int number = entry.getKey();
+			long size = entry.getValue().size();
+
+			if (number != activeSegment && liveBytes.get(number) < size * COMPACT_RATIO) {
+				victim = number;
+				break;
+			}
+		}
+
+		if (victim < 0) {
+			return;
+		}
+
+		FileChannel segment = segments.get(victim);
+
+		for (int id : ids.values()) {
+			int slot = slotPosition(id);
+
+			if (table.getInt(slot) - 1 == victim) {
+				ByteBuffer record = ByteBuffer.allocate(table.getInt(slot + 12));
+				readFully(segment, record, table.getLong(slot + 4));
+
+				long offset = appendRecord(record.array());
+				releaseSlot(id);
+				setSlot(id, activeSegment, offset, record.capacity());
+			}
+		}
+
+		table.force();
+		segment.close();
+		segments.remove(victim);
+		liveBytes.remove(victim);
+
+		if (!segmentFile(victim).delete()) {
+			throw new IOException("Unable to delete " + segmentFile(victim).getPath());
+		}
+	}
+
+	/**
+	 * Get the file of a segment.
+	 * @param number The number of the segment.
+	 * @return The file of the segment.
+	 */
+	private File segmentFile(int number) {
+		return new File(directory, SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+	}
+}
@@ -0,0 +1,796 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import com.bobbyloujo.blogbuilder.post.Element;
+import com.bobbyloujo.blogbuilder.post.ElementList;
+import com.bobbyloujo.blogbuilder.post.HtmlSink;
+import com.bobbyloujo.blogbuilder.post.ImageElement;
+import com.bobbyloujo.blogbuilder.post.Post;
+import com.bobbyloujo.blogbuilder.post.PostSummary;
+import com.bobbyloujo.blogbuilder.post.VideoElement;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the blog as a static site: a page for every Post named after its
+ * filename and an index page listing the Posts in the order of the post list.
+ *
+ * The Posts to export are taken from the PostLoader when the SiteExporter is
+ * created, so it should be created on the main thread. export may then be run
+ * on a background thread.
+ *
+ * Pages go through two stages that each run on one thread per processor. The
+ * first stage renders a page and minifies it with HtmlMinifier, then writes it.
+ * The second stage writes a gzip compressed copy next to it, named with the
+ * GZIP_SUFFIX, so a static host can serve it without compressing on the fly.
+ * Pages are compressed while later pages are still being rendered. Each Post
+ * is rendered from its own copy, so the workers never write to the HTML
+ * cached by a Post the main thread is showing.
+ *
+ * Exports are incremental. An ExportManifest in the directory records a hash
+ * of each page, so pages that haven't changed since the last export are skipped,
+ * and a hash of each minified page, so a page that renders to the same output
+ * isn't written or compressed again.
+ *
+ * The local images, renditions, posters, and videos of the Posts are copied
+ * into the MEDIA_DIRECTORY_NAME directory of the site, and pages link to them
+ * with relative URLs, so the site can be copied off the device and hosted. A
+ * copy is named by a hash of the path of its file, and is only copied again
+ * when the file changes. Copies no exported page uses are deleted.
+ */
+public class SiteExporter {
+	public static final String INDEX_FILE_NAME = "index.html";   // The filename of the index page.
+	public static final String PAGE_SUFFIX = ".html";            // The suffix added to the filename of a Post to name its page.
+	public static final String GZIP_SUFFIX = ".gz";              // The suffix added to the filename of a page to name its compressed copy.
+	public static final String MEDIA_DIRECTORY_NAME = "media";   // The name of the directory of the site the media of the Posts are copied to.
+
+	private static final int BUFFER_SIZE = 8192;                         // The size of the buffers used when writing pages.
+	private static final Charset UTF_8 = Charset.forName("UTF-8");       // The charset of the pages.
+	private static final String HASH_ALGORITHM = "SHA-256";              // The algorithm used to detect changed pages.
+	private static final String TEMP_SUFFIX = ".tmp";                    // The suffix of files that are written before they replace a file.
+	private static final int MEDIA_HASH_LENGTH = 64;                     // The number of hexadecimal digits of the hash a copied media file is named by.
+	private static final int MAX_EXTENSION_LENGTH = 5;                   // The longest extension of a media file that is kept, including the dot.
+
+	private final PostLoader postLoader;                      // The PostLoader the Posts are read from.
+	private final File directory;                             // The directory the site is written to.
+	private final File mediaDirectory;                        // The directory of the site the media of the Posts are copied to.
+	private final String blogTitle;                           // The title of the blog.
+	private final ArrayList<PostSummary> summaries;           // The summaries of the Posts to export in list order.
+
+	/**
+	 * The outcome of exporting one Post.
+	 */
+	private static class PageResult {
+		private final ExportManifest.Entry entry;   // The manifest entry describing the page.
+		private final Future<?> compression;        // Completes when the compressed page is written, or null if the page wasn't written.
+
+		PageResult(ExportManifest.Entry entry, Future<?> compression) {
+			this.entry = entry;
+			this.compression = compression;
+		}
+	}
+
+	/**
+	 * Create a new SiteExporter for the Posts currently in the post list.
+	 * @param directory The directory to write the site to. It is created if it doesn't exist.
+	 * @param blogTitle The title of the blog, used as the title of the index page.
+	 */
+	public SiteExporter(File directory, String blogTitle) {
+		this.postLoader = PostLoader.getInstance();
+		this.directory = directory;
+		this.mediaDirectory = new File(directory, MEDIA_DIRECTORY_NAME);
+		this.blogTitle = blogTitle;
+		this.summaries = new ArrayList<>(postLoader.getSize());
+
+		for (int i = 0; i < postLoader.getSize(); i++) {
+			PostSummary summary = postLoader.getSummary(i);
+
+			if (summary != null) {
+				summaries.add(summary);
+			}
+		}
+	}
+
+	/**
+	 * Get the directory the site is written to.
+	 * @return The directory the site is written to.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Bring the exported site up to date. Only the pages of Posts whose content
+	 * or local media changed since the last export are written, the pages and
+	 * media of Posts that were deleted are removed, and the index page is only written
+	 * when the titles, summaries, or order of the Posts changed. Blocks until
+	 * the site has been written, so it should not be called on the main thread.
+	 * @return The number of Post pages written.
+	 * @throws IOException If the directory can't be created or a page can't be written.
+	 */
+	public int export() throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final ExecutorService compressor = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<PageResult>> pages = new ArrayList<>(summaries.size());
+		ArrayList<Future<?>> compressions = new ArrayList<>(summaries.size() + 1);
+		HashSet<String> fileNames = new HashSet<>();
+		ExportManifest manifest;
+		byte[] indexHash;
+		int written = 0;
+
+		if (!mediaDirectory.isDirectory() && !mediaDirectory.mkdirs()) {
+			throw new IOException("Unable to create " + mediaDirectory.getPath());
+		}
+
+		manifest = ExportManifest.read(directory);
+
+		try {
+			for (final PostSummary summary : summaries) {
+				final ExportManifest.Entry previous = manifest.get(summary.getFileName());
+
+				fileNames.add(summary.getFileName());
+				pages.add(executor.submit(new Callable<PageResult>() {
+					@Override public PageResult call() throws IOException {
+						return exportPost(summary, previous, compressor);
+					}
+				}));
+			}
+
+			for (String fileName : new ArrayList<>(manifest.getFileNames())) {
+				if (!fileNames.contains(fileName)) {
+					deletePage(fileName);
+					manifest.remove(fileName);
+				}
+			}
+
+			indexHash = hashIndex();
+
+			if (!Arrays.equals(indexHash, manifest.getIndexHash()) || !isWritten(INDEX_FILE_NAME)) {
+				compressions.add(writeIndexPage(compressor));
+				manifest.setIndexHash(indexHash);
+			}
+
+			for (Future<PageResult> page : pages) {
+				PageResult result = page.get();
+
+				if (result != null) {
+					manifest.put(result.entry);
+
+					if (result.compression != null) {
+						compressions.add(result.compression);
+						written++;
+					}
+				}
+			}
+
+			for (Future<?> compression : compressions) {
+				compression.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("The export was interrupted.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			compressor.shutdownNow();
+		}
+
+		manifest.write(directory);
+		deleteUnusedMedia(manifest);
+
+		return written;
+	}
+
+	/**
+	 * Write the page of a Post if it changed since it was last exported. The Post
+	 * is only loaded when its summary or local media changed since then, or its
+	 * media are missing from the site, and the page is only written when its
+	 * minified output changed. The media of a loaded Post are copied to the site
+	 * if they changed.
+	 * @param summary The summary of the Post.
+	 * @param previous The manifest entry of the last export of the Post or null if it wasn't exported.
+	 * @param compressor The executor that compresses the page.
+	 * @return The result of exporting the Post or null if the Post couldn't be loaded.
+	 * @throws IOException If the page can't be written.
+	 */
+	private PageResult exportPost(PostSummary summary, ExportManifest.Entry previous, ExecutorService compressor) throws IOException {
+		String fileName = summary.getFileName();
+		String pageFileName = getPageFileName(fileName);
+		boolean pageExists = previous != null && isWritten(pageFileName);
+
+		if (pageExists && previous.modified == summary.getModified()
+				&& Arrays.equals(previous.mediaHash, hashMedia(previous.mediaPaths)) && isMediaCopied(previous.mediaPaths)) {
+			return new PageResult(previous, null);
+		}
+
+		Post post = postLoader.peekPost(fileName);
+
+		if (post == null) {
+			return null;
+		}
+
+		String[] mediaPaths = getMediaPaths(post);
+		byte[] contentHash = hashContent(post);
+		byte[] mediaHash = hashMedia(mediaPaths);
+		ExportManifest.Entry entry = new ExportManifest.Entry(fileName, summary.getModified(), contentHash, mediaPaths, mediaHash,
+				previous != null ? previous.pageHash : null);
+
+		copyMedia(mediaPaths);
+
+		if (pageExists && entry.hasSameHashes(previous)) {
+			return new PageResult(entry, null);
+		}
+
+		linkMedia(post.getElementList());
+
+		byte[] page = renderPostPage(post);
+		entry = new ExportManifest.Entry(fileName, summary.getModified(), contentHash, mediaPaths, mediaHash, hash(page));
+
+		if (pageExists && Arrays.equals(entry.pageHash, previous.pageHash)) {
+			return new PageResult(entry, null);
+		}
+
+		return new PageResult(entry, writePage(pageFileName, page, compressor));
+	}
+
+	/**
+	 * Get the filename of the page of a Post.
+	 * @param fileName The filename of the Post.
+	 * @return The filename of the page.
+	 */
+	public static String getPageFileName(String fileName) {
+		return fileName + PAGE_SUFFIX;
+	}
+
+	/**
+	 * Render a Post to its minified page.
+	 * @param post The Post.
+	 * @return The page encoded in UTF-8.
+	 */
+	private static byte[] renderPostPage(Post post) {
+		HtmlSink sink = new HtmlSink(post.getElementList().getSize());
+
+		try {
+			writeHead(sink, post.getTitle());
+			sink.append("<h1>").appendEscaped(post.getTitle()).append("</h1>\n");
+			post.getElementList().render(sink);
+			sink.append("\n</body>\n</html>\n");
+		} catch (IOException e) {
+			e.printStackTrace();   // Appending to a StringBuilder never fails.
+		}
+
+		return HtmlMinifier.minify(sink.toString()).getBytes(UTF_8);
+	}
+
+	/**
+	 * Delete the page of a Post that is no longer in the post list, along with
+	 * its compressed copy.
+	 * @param fileName The filename of the Post.
+	 * @throws IOException If the page can't be deleted.
+	 */
+	private void deletePage(String fileName) throws IOException {
+		String pageFileName = getPageFileName(fileName);
+
+		deleteFile(pageFileName);
+		deleteFile(pageFileName + GZIP_SUFFIX);
+	}
+
+	/**
+	 * Delete a file of the site if it exists.
+	 * @param name The filename.
+	 * @throws IOException If the file can't be deleted.
+	 */
+	private void deleteFile(String name) throws IOException {
+		File file = new File(directory, name);
+
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Unable to delete " + file.getPath());
+		}
+	}
+
+	/**
+	 * Write the index page, which links to the page of every Post.
+	 * @param compressor The executor that compresses the page.
+	 * @return A Future that completes when the compressed page has been written.
+	 * @throws IOException If the page can't be written.
+	 */
+	private Future<?> writeIndexPage(ExecutorService compressor) throws IOException {
+		HtmlSink sink = new HtmlSink(summaries.size());
+
+		writeHead(sink, blogTitle);
+		sink.append("<h1>").appendEscaped(blogTitle).append("</h1>\n<ul>\n");
+
+		for (PostSummary summary : summaries) {
+			sink.append("<li><a href=\"").appendEscaped(encodeUrl(getPageFileName(summary.getFileName()))).append("\">")
+					.appendEscaped(summary.getTitle()).append("</a><p>")
+					.appendEscaped(summary.getSummary()).append("</p></li>\n");
+		}
+
+		sink.append("</ul>\n</body>\n</html>\n");
+
+		return writePage(INDEX_FILE_NAME, HtmlMinifier.minify(sink.toString()).getBytes(UTF_8), compressor);
+	}
+
+	/**
+	 * Write the start of a page up to and including the body tag.
+	 * @param sink The sink of the page.
+	 * @param title The title of the page.
+	 * @throws IOException If the page can't be written.
+	 */
+	private static void writeHead(HtmlSink sink, String title) throws IOException {
+		sink.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n")
+				.append("<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\">\n")
+				.append("<title>").appendEscaped(title).append("</title>\n")
+				.append("<style>body>img,body>video{display:block;margin:0 auto}</style>\n</head>\n<body>\n");
+	}
+
+	/**
+	 * Determine if a page and its compressed copy have both been written.
+	 * @param pageFileName The filename of the page.
+	 * @return True if both files exist, false otherwise.
+	 */
+	private boolean isWritten(String pageFileName) {
+		return new File(directory, pageFileName).exists() && new File(directory, pageFileName + GZIP_SUFFIX).exists();
+	}
+
+	/**
+	 * Write a page, then compress it on the compressor.
+	 * @param pageFileName The filename of the page.
+	 * @param page The page encoded in UTF-8.
+	 * @param compressor The executor that compresses the page.
+	 * @return A Future that completes when the compressed page has been written.
+	 * @throws IOException If the page can't be written.
+	 */
+	private Future<?> writePage(final String pageFileName, final byte[] page, ExecutorService compressor) throws IOException {
+		writeFile(pageFileName, page, false);
+
+		return compressor.submit(new Callable<Void>() {
+			@Override public Void call() throws IOException {
+				writeFile(pageFileName + GZIP_SUFFIX, page, true);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Write a file of the site through a FileChannel. It is written to a temporary
+	 * file first, so a server never sees a partly written file. Pages are minified
+	 * as a whole before they are written, so the content is already in memory and
+	 * a plain page is handed to the channel in one buffer.
+	 * @param name The filename.
+	 * @param content The content of the file.
+	 * @param compress Flag indicating that the content is gzip compressed at the highest level.
+	 * @throws IOException If the file can't be written.
+	 */
+	private void writeFile(String name, byte[] content, boolean compress) throws IOException {
+		File file = new File(directory, name);
+		File temp = new File(directory, name + TEMP_SUFFIX);
+		FileChannel channel = new FileOutputStream(temp).getChannel();
+
+		try {
+			if (compress) {
+				OutputStream outputStream = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE) {
+					{
+						def.setLevel(Deflater.BEST_COMPRESSION);
+					}
+				};
+
+				outputStream.write(content);
+				outputStream.close();
+			} else {
+				ByteBuffer buffer = ByteBuffer.wrap(content);
+
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		} finally {
+			channel.close();
+		}
+
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Unable to replace " + file.getPath());
+		}
+	}
+
+	/**
+	 * Hash what the index page is made from: the blog title and the filename,
+	 * title, and summary of each Post in order.
+	 * @return The hash of the index page.
+	 */
+	private byte[] hashIndex() {
+		MessageDigest digest = newDigest();
+
+		update(digest, blogTitle);
+
+		for (PostSummary summary : summaries) {
+			update(digest, summary.getFileName());
+			update(digest, summary.getTitle());
+			update(digest, summary.getSummary());
+		}
+
+		return digest.digest();
+	}
+
+	/**
+	 * Hash what the page of a Post is made from: its title and HTML.
+	 * @param post The Post.
+	 * @return The hash of the content of the Post.
+	 */
+	private static byte[] hashContent(Post post) {
+		MessageDigest digest = newDigest();
+
+		update(digest, post.getTitle());
+		update(digest, post.getHtml());
+
+		return digest.digest();
+	}
+
+	/**
+	 * Hash the path, size, and modified time of local media files. The content
+	 * of the files isn't read.
+	 * @param paths The paths of the media files.
+	 * @return The hash of the media files.
+	 */
+	private static byte[] hashMedia(String[] paths) {
+		MessageDigest digest = newDigest();
+
+		for (String path : paths) {
+			File file = new File(path);
+
+			update(digest, path);
+			update(digest, Long.toString(file.length()));
+			update(digest, Long.toString(file.lastModified()));
+		}
+
+		return digest.digest();
+	}
+
+	/**
+	 * Get the paths of the local files a Post shows: the renditions of imported
+	 * images or the images themselves, and videos and their posters.
+	 * @param post The Post.
+	 * @return The paths of the local media files in the order they appear.
+	 */
+	private static String[] getMediaPaths(Post post) {
+		ArrayList<String> paths = new ArrayList<>();
+
+		addMediaPaths(post.getElementList(), paths);
+
+		return paths.toArray(new String[paths.size()]);
+	}
+
+	/**
+	 * Add the paths of the local files shown by an ElementList to a list.
+	 * @param list The ElementList.
+	 * @param paths The list to add the paths to.
+	 */
+	private static void addMediaPaths(ElementList list, ArrayList<String> paths) {
+		for (int i = 0; i < list.getSize(); i++) {
+			Element e = list.getElement(i);
+
+			if (e instanceof ImageElement && ((ImageElement) e).getLocation() == ImageElement.LOCAL) {
+				ImageElement image = (ImageElement) e;
+
+				paths.add(image.getDisplaySrc());
+
+				if (image.getWebSrc() != null && image.getSizedSrcs() != null) {
+					paths.addAll(Arrays.asList(image.getSizedSrcs()));
+				}
+			} else if (e instanceof VideoElement && ((VideoElement) e).getLocation() == VideoElement.LOCAL) {
+				VideoElement video = (VideoElement) e;
+
+				paths.add(video.getSrcURL());
+
+				if (video.getPosterSrc() != null) {
+					paths.add(video.getPosterSrc());
+				}
+			} else if (e instanceof ElementList) {
+				addMediaPaths((ElementList) e, paths);
+			}
+		}
+	}
+
+	/**
+	 * Point the local images and videos of an ElementList at their copies in the
+	 * site, so they render with relative URLs. Only used on a copy of a Post.
+	 * @param list The ElementList.
+	 */
+	private static void linkMedia(ElementList list) {
+		for (int i = 0; i < list.getSize(); i++) {
+			Element e = list.getElement(i);
+
+			if (e instanceof ImageElement && ((ImageElement) e).getLocation() == ImageElement.LOCAL) {
+				ImageElement image = (ImageElement) e;
+
+				if (image.getWebSrc() != null) {
+					String[] sizedSrcs = image.getSizedSrcs();
+
+					if (sizedSrcs != null) {
+						String[] linked = new String[sizedSrcs.length];
+
+						for (int j = 0; j < sizedSrcs.length; j++) {
+							linked[j] = getMediaUrl(sizedSrcs[j]);
+						}
+
+						image.setSizedRenditions(linked, image.getSizedWidths());
+					}
+
+					image.setRenditions(getMediaUrl(image.getWebSrc()), image.getThumbnailSrc(), image.getPixelWidth(), image.getPixelHeight());
+				} else {
+					image.setSrcURL(getMediaUrl(image.getSrc()));
+				}
+			} else if (e instanceof VideoElement && ((VideoElement) e).getLocation() == VideoElement.LOCAL) {
+				VideoElement video = (VideoElement) e;
+				String posterSrc = video.getPosterSrc();
+
+				video.setSrcURL(getMediaUrl(video.getSrcURL()));
+
+				if (posterSrc != null) {
+					video.setPosterSrc(getMediaUrl(posterSrc));   // Set after the source, which drops the poster of a different file.
+				}
+			} else if (e instanceof ElementList) {
+				linkMedia((ElementList) e);
+			}
+		}
+	}
+
+	/**
+	 * Get the relative URL of the copy of a media file in the site.
+	 * @param path The path of the media file.
+	 * @return The URL of the copy, relative to the pages.
+	 */
+	private static String getMediaUrl(String path) {
+		return MEDIA_DIRECTORY_NAME + "/" + getMediaFileName(path);
+	}
+
+	/**
+	 * Get the filename of the copy of a media file in the site: a hash of its
+	 * path, so files with the same name in different directories don't clash,
+	 * followed by the extension of the file.
+	 * @param path The path of the media file.
+	 * @return The filename of the copy.
+	 */
+	private static String getMediaFileName(String path) {
+		return getMediaHash(path) + getExtension(new File(path));
+	}
+
+	/**
+	 * Get the hash a copy of a media file is named by.
+	 * @param path The path of the media file.
+	 * @return The hash as MEDIA_HASH_LENGTH hexadecimal digits.
+	 */
+	private static String getMediaHash(String path) {
+		return String.format(Locale.US, "%0" + MEDIA_HASH_LENGTH + "x", new BigInteger(1, hash(path.getBytes(UTF_8))));
+	}
+
+	/**
+	 * Get the extension of a media file, so a static host serves its copy with
+	 * the right type. Renditions and posters are written without an extension,
+	 * so theirs is read from the start of the file.
+	 * @param file The media file.
+	 * @return The extension including the dot, or an empty String if it isn't known.
+	 */
+	private static String getExtension(File file) {
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+
+		if (dot > 0 && name.length() - dot <= MAX_EXTENSION_LENGTH) {
+			return name.substring(dot).toLowerCase(Locale.US);
+		}
+
+		byte[] header = new byte[4];
+
+		try {
+			InputStream inputStream = new FileInputStream(file);
+
+			try {
+				if (inputStream.read(header) < header.length) {
+					return "";
+				}
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			return "";   // A missing file isn't copied.
+		}
+
+		if (header[0] == (byte) 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+			return ".png";
+		} else if (header[0] == (byte) 0xFF && header[1] == (byte) 0xD8) {
+			return ".jpg";
+		}
+
+		return "";
+	}
+
+	/**
+	 * Determine if every media file of a page has been copied to the site.
+	 * @param paths The paths of the media files.
+	 * @return True if all the copies exist, false otherwise.
+	 */
+	private boolean isMediaCopied(String[] paths) {
+		for (String path : paths) {
+			if (new File(path).isFile() && !new File(mediaDirectory, getMediaFileName(path)).isFile()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Copy media files to the site. A file is skipped if its copy has the same
+	 * size and is at least as new. Missing files are skipped, so their page
+	 * still exports.
+	 * @param paths The paths of the media files.
+	 * @throws IOException If a file can't be copied.
+	 */
+	private void copyMedia(String[] paths) throws IOException {
+		for (String path : paths) {
+			File source = new File(path);
+			File target = new File(mediaDirectory, getMediaFileName(path));
+
+			if (!source.isFile() || (target.length() == source.length() && target.lastModified() >= source.lastModified())) {
+				continue;
+			}
+
+			File temp = File.createTempFile(target.getName(), TEMP_SUFFIX, mediaDirectory);   // Unique, as another page may copy the same file.
+			FileChannel in = new FileInputStream(source).getChannel();
+
+			try {
+				FileChannel out = new FileOutputStream(temp).getChannel();
+
+				try {
+					long size = in.size();
+					long position = 0;
+
+					while (position < size) {
+						position += in.transferTo(position, size - position, out);
+					}
+				} finally {
+					out.close();
+				}
+			} finally {
+				in.close();
+			}
+
+			if (!temp.renameTo(target)) {
+				temp.delete();
+				throw new IOException("Unable to replace " + target.getPath());
+			}
+		}
+	}
+
+	/**
+	 * Delete the copies of media files that no exported page uses, and temporary
+	 * files left by copies that failed.
+	 * @param manifest The manifest of the export.
+	 */
+	private void deleteUnusedMedia(ExportManifest manifest) {
+		HashSet<String> used = new HashSet<>();
+		File[] files = mediaDirectory.listFiles();
+
+		if (files == null) {
+			return;
+		}
+
+		for (String fileName : manifest.getFileNames()) {
+			for (String path : manifest.get(fileName).mediaPaths) {
+				used.add(getMediaHash(path));
+			}
+		}
+
+		for (File file : files) {
+			String name = file.getName();
+
+			if (name.endsWith(TEMP_SUFFIX) || name.length() < MEDIA_HASH_LENGTH || !used.contains(name.substring(0, MEDIA_HASH_LENGTH))) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Hash the bytes of a page.
+	 * @param page The page.
+	 * @return The hash of the page.
+	 */
+	private static byte[] hash(byte[] page) {
+		return newDigest().digest(page);
+	}
+
+	/**
+	 * Add a String to a hash. Strings are terminated so that consecutive Strings
+	 * can't run together.
+	 * @param digest The hash.
+	 * @param s The String. May be null.
+	 */
+	private static void update(MessageDigest digest, String s) {
+		if (s != null) {
+			digest.update(s.getBytes(UTF_8));
+			digest.update((byte) 0);
+		} else {
+			digest.update((byte) 1);
+		}
+	}
+
+	/**
+	 * Create the MessageDigest used to hash pages.
+	 * @return A new SHA-256 MessageDigest.
+	 */
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);   // Every Java platform supports SHA-256.
+		}
+	}
+
+	/**
+	 * Encode a filename for use in a relative URL.
+	 * @param fileName The filename.
+	 * @return The filename with the characters that aren't allowed in a URL encoded.
+	 */
+	private static String encodeUrl(String fileName) {
+		try {
+			return URLEncoder.encode(fileName, "UTF-8").replace("+", "%20");
+		} catch (UnsupportedEncodingException e) {
+			e.printStackTrace();
+			return fileName;
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes images at the size they are shown at instead of at full resolution.
+ * The bounds of the image are read first, without decoding its pixels, and the
+ * image is then decoded with the largest power of two sample size that keeps
+ * it at least as large as the destination. The decode can reuse the memory of
+ * a bitmap that is no longer needed, on the API levels that allow it.
+ */
+public final class BitmapDecoder {
+	private static final int BUFFER_SIZE = 8192;   // The size of the buffer used when reading a stream.
+
+	private BitmapDecoder() {
+	}
+
+	/**
+	 * Decode an image file.
+	 * @param path The path of the image.
+	 * @param targetWidth The width in pixels the image is shown at, or 0 if the width doesn't matter.
+	 * @param targetHeight The height in pixels the image is shown at, or 0 if the height doesn't matter.
+	 * @param reusable A mutable bitmap whose memory may be reused for the image, or null.
+	 * @return The image, or null if it can't be decoded.
+	 */
+	public static Bitmap decodeFile(String path, int targetWidth, int targetHeight, Bitmap reusable) {
+		BitmapFactory.Options options = new BitmapFactory.Options();
+
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(path, options);
+
+		if (options.outWidth <= 0 || options.outHeight <= 0) {
+			return null;
+		}
+
+		prepare(options, targetWidth, targetHeight, reusable);
+
+		try {
+			return BitmapFactory.decodeFile(path, options);
+		} catch (IllegalArgumentException e) {
+			options.inBitmap = null;   // The bitmap couldn't be reused after all.
+			return BitmapFactory.decodeFile(path, options);
+		}
+	}
+
+	/**
+	 * Decode an image held in memory.
+	 * @param data The encoded image.
+	 * @param targetWidth The width in pixels the image is shown at, or 0 if the width doesn't matter.
+	 * @param targetHeight The height in pixels the image is shown at, or 0 if the height doesn't matter.
+	 * @param reusable A mutable bitmap whose memory may be reused for the image, or null.
+	 * @return The image, or null if it can't be decoded.
+	 */
+	public static Bitmap decodeByteArray(byte[] data, int targetWidth, int targetHeight, Bitmap reusable) {
+		BitmapFactory.Options options = new BitmapFactory.Options();
+
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeByteArray(data, 0, data.length, options);
+
+		if (options.outWidth <= 0 || options.outHeight <= 0) {
+			return null;
+		}
+
+		prepare(options, targetWidth, targetHeight, reusable);
+
+		try {
+			return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+		} catch (IllegalArgumentException e) {
+			options.inBitmap = null;   // The bitmap couldn't be reused after all.
+			return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+		}
+	}
+
+	/**
+	 * Decode an image from a stream. The stream is read into memory, because it
+	 * is read twice. The stream is not closed.
+	 * @param inputStream The stream of the encoded image.
+	 * @param targetWidth The width in pixels the image is shown at, or 0 if the width doesn't matter.
+	 * @param targetHeight The height in pixels the image is shown at, or 0 if the height doesn't matter.
+	 * @param reusable A mutable bitmap whose memory may be reused for the image, or null.
+	 * @return The image, or null if it can't be decoded.
+	 * @throws IOException If the stream can't be read.
+	 */
+	public static Bitmap decodeStream(InputStream inputStream, int targetWidth, int targetHeight, Bitmap reusable) throws IOException {
+		ByteArrayOutputStream data = new ByteArrayOutputStream(BUFFER_SIZE);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int count;
+
+		while ((count = inputStream.read(buffer)) != -1) {
+			data.write(buffer, 0, count);
+		}
+
+		return decodeByteArray(data.toByteArray(), targetWidth, targetHeight, reusable);
+	}
+
+	/**
+	 * Get the largest power of two sample size that keeps an image at least as
+	 * large as the size it is shown at.
+	 * @param width The width of the image in pixels.
+	 * @param height The height of the image in pixels.
+	 * @param targetWidth The width in pixels the image is shown at, or 0 if the width doesn't matter.
+	 * @param targetHeight The height in pixels the image is shown at, or 0 if the height doesn't matter.
+	 * @return The sample size, at least 1.
+	 */
+	public static int calculateSampleSize(int width, int height, int targetWidth, int targetHeight) {
+		int sampleSize = 1;
+
+		if (targetWidth <= 0 && targetHeight <= 0) {
+			return sampleSize;
+		}
+
+		while ((targetWidth <= 0 || width / (sampleSize * 2) >= targetWidth)
+				&& (targetHeight <= 0 || height / (sampleSize * 2) >= targetHeight)) {
+			sampleSize *= 2;
+		}
+
+		return sampleSize;
+	}
+
+	/**
+	 * Set up the options of the decode that follows the bounds pass.
+	 * @param options The options, holding the bounds of the image.
+	 * @param targetWidth The width in pixels the image is shown at, or 0 if the width doesn't matter.
+	 * @param targetHeight The height in pixels the image is shown at, or 0 if the height doesn't matter.
+	 * @param reusable A mutable bitmap whose memory may be reused for the image, or null.
+	 */
+	private static void prepare(BitmapFactory.Options options, int targetWidth, int targetHeight, Bitmap reusable) {
+		options.inSampleSize = calculateSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+		options.inJustDecodeBounds = false;
+
+		options.inMutable = true;   // Lets the image be reused by a later decode.
+
+		if (canReuse(reusable, options)) {
+			options.inBitmap = reusable;
+		}
+	}
+
+	/**
+	 * Determine if a bitmap can hold an image. Before KitKat, a bitmap can only
+	 * be reused for an image of the same size that isn't sampled. Since KitKat,
+	 * it can be reused for any image that fits in its memory.
+	 * @param bitmap The bitmap. May be null.
+	 * @param options The options of the decode, holding the bounds and sample size of the image.
+	 * @return True if the bitmap can be reused for the image, false otherwise.
+	 */
+	private static boolean canReuse(Bitmap bitmap, BitmapFactory.Options options) {
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+			return false;
+		}
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			long width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+			long height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+
+			return width * height * getBytesPerPixel(bitmap.getConfig()) <= bitmap.getAllocationByteCount();
+		}
+
+		return bitmap.getWidth() == options.outWidth && bitmap.getHeight() == options.outHeight && options.inSampleSize == 1;
+	}
+
+	/**
+	 * Get the number of bytes a pixel takes in a bitmap configuration.
+	 * @param config The configuration.
+	 * @return The number of bytes per pixel.
+	 */
+	private static int getBytesPerPixel(Bitmap.Config config) {
+		if (config == Bitmap.Config.ARGB_8888 || config == null) {
+			return 4;
+		}
+
+		return 2;
+	}
+}
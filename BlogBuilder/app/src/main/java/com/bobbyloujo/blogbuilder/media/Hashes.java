@@ -0,0 +1,62 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Names files by a hash of the text that identifies them, such as a path or a
+ * URL, so the name is safe to use in a directory whatever the text contains.
+ */
+final class Hashes {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");   // The charset text is hashed in.
+
+	private Hashes() {
+	}
+
+	/**
+	 * Get the SHA-1 hash of some text as lowercase hexadecimal digits.
+	 * @param text The text.
+	 * @return The hash, 40 hexadecimal digits.
+	 */
+	static String sha1(String text) {
+		byte[] hash;
+
+		try {
+			hash = MessageDigest.getInstance("SHA-1").digest(text.getBytes(UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);   // Every Java platform supports SHA-1.
+		}
+
+		StringBuilder hex = new StringBuilder(hash.length * 2);
+
+		for (byte b : hash) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+
+		return hex.toString();
+	}
+}
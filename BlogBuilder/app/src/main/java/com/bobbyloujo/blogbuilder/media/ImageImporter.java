@@ -0,0 +1,531 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Imports local images into the app's storage. A camera photo is far larger
+ * than a post ever shows it, so instead of pointing posts at the original file,
+ * the importer writes renditions of it: a web sized JPEG whose long edge is
+ * at most WEB_SIZE pixels, a narrower rendition for each of SIZED_WIDTHS that
+ * is smaller than the web sized one, and a thumbnail whose long edge is at most
+ * THUMBNAIL_SIZE pixels. All of them are turned upright according to the EXIF
+ * orientation of the original, because browsers don't reliably apply it. The
+ * web sized and narrower renditions are offered to the browser as a srcset, so
+ * a phone downloads and decodes the rendition that fits its screen.
+ *
+ * Imports run on a small pool of background threads, and their results are
+ * delivered on the main thread. The renditions are named by a hash of the path,
+ * size, and modified time of the original, so importing the same file again
+ * reuses the renditions that were already written.
+ */
+public class ImageImporter {
+	public static final String DIRECTORY_NAME = "images";   // The name of the directory of the renditions in the files directory.
+
+	private static final int WEB_SIZE = 1600;                        // The maximum width and height of the web sized rendition in pixels.
+	private static final int THUMBNAIL_SIZE = 320;                   // The maximum width and height of the thumbnail rendition in pixels.
+	private static final int[] SIZED_WIDTHS = {1200, 800, 480};      // The widths in pixels of the narrower renditions, largest first.
+	private static final int THREAD_COUNT = 2;                       // The number of images imported at the same time.
+	private static final int QUALITY = 85;                           // The quality JPEG renditions are compressed with.
+	private static final int BUFFER_SIZE = 8192;                     // The size of the buffer used when writing renditions.
+	private static final String WEB_SUFFIX = "-web";                 // The suffix of the name of a web sized rendition.
+	private static final String THUMBNAIL_SUFFIX = "-thumb";         // The suffix of the name of a thumbnail rendition.
+	private static final String SIZED_SUFFIX = "-w";                 // The suffix of the name of a narrower rendition, followed by its width.
+
+	private static ImageImporter instance;   // The singleton instance.
+
+	private final File directory;            // The directory the renditions are written to.
+	private final ExecutorService executor;  // The threads importing images.
+	private final Handler handler;           // Delivers results on the main thread.
+
+	/**
+	 * Create a new ImageImporter.
+	 * @param directory The directory the renditions are written to.
+	 */
+	ImageImporter(File directory) {
+		this.directory = directory;
+		this.handler = new Handler(Looper.getMainLooper());
+		this.executor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+			@Override public Thread newThread(final Runnable runnable) {
+				return new Thread(new Runnable() {
+					@Override public void run() {
+						Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+						runnable.run();
+					}
+				}, "ImageImporter");
+			}
+		});
+	}
+
+	/**
+	 * Get the ImageImporter of the app, creating it the first time.
+	 * @param context A Context of the app.
+	 * @return The ImageImporter.
+	 */
+	public static synchronized ImageImporter getInstance(Context context) {
+		if (instance == null) {
+			instance = new ImageImporter(new File(context.getApplicationContext().getFilesDir(), DIRECTORY_NAME));
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Import an image in the background. The callback is called on the main thread.
+	 * @param path The path of the image.
+	 * @param callback The callback to call when the import is done.
+	 * @return A Future that completes when the import is done.
+	 */
+	public Future<?> importImage(final String path, final Callback callback) {
+		return executor.submit(new Runnable() {
+			@Override public void run() {
+				try {
+					final Renditions renditions = importNow(path);
+
+					handler.post(new Runnable() {
+						@Override public void run() {
+							callback.onImported(renditions);
+						}
+					});
+				} catch (final IOException e) {
+					e.printStackTrace();
+					handler.post(new Runnable() {
+						@Override public void run() {
+							callback.onFailed(path, e);
+						}
+					});
+				}
+			}
+		});
+	}
+
+	/**
+	 * Import an image on the calling thread. Reads and writes files, so it should
+	 * not be called on the main thread.
+	 * @param path The path of the image.
+	 * @return The renditions of the image.
+	 * @throws IOException If the image can't be decoded or a rendition can't be written.
+	 */
+	public Renditions importNow(String path) throws IOException {
+		String name = getName(path);
+		File web = new File(directory, name + WEB_SUFFIX);
+		File thumbnail = new File(directory, name + THUMBNAIL_SUFFIX);
+
+		if (web.isFile() && thumbnail.isFile()) {
+			BitmapFactory.Options options = new BitmapFactory.Options();
+
+			options.inJustDecodeBounds = true;
+			BitmapFactory.decodeFile(web.getPath(), options);
+
+			if (options.outWidth > 0 && options.outHeight > 0) {
+				int[] sizedWidths = getSizedWidths(options.outWidth);
+				String[] sizedPaths = getSizedPaths(name, sizedWidths);
+				boolean complete = true;
+
+				for (String sizedPath : sizedPaths) {
+					complete &= new File(sizedPath).isFile();
+				}
+
+				if (complete) {
+					touch(web, thumbnail, sizedPaths);
+					return new Renditions(path, web.getPath(), thumbnail.getPath(), options.outWidth, options.outHeight, sizedPaths, sizedWidths);
+				}
+			}
+		}
+
+		Bitmap image = decodeUpright(path);
+
+		if (image == null) {
+			throw new IOException("Unable to decode " + path);
+		}
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create " + directory.getPath());
+		}
+
+		int[] sizedWidths = getSizedWidths(image.getWidth());
+		String[] sizedPaths = getSizedPaths(name, sizedWidths);
+		Bitmap larger = image;   // The rendition the next narrower one is scaled from.
+
+		try {
+			writeFile(web, image);
+
+			for (int i = 0; i < sizedWidths.length; i++) {
+				Bitmap smaller = scale(larger, sizedWidths[i], Integer.MAX_VALUE);   // Scaling in steps keeps the filtering smooth.
+
+				writeFile(new File(sizedPaths[i]), smaller);
+
+				if (larger != image) {
+					larger.recycle();
+				}
+
+				larger = smaller;
+			}
+
+			Bitmap small = scale(larger, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+
+			try {
+				writeFile(thumbnail, small);
+			} finally {
+				if (small != larger) {
+					small.recycle();
+				}
+			}
+
+			return new Renditions(path, web.getPath(), thumbnail.getPath(), image.getWidth(), image.getHeight(), sizedPaths, sizedWidths);
+		} finally {
+			if (larger != image) {
+				larger.recycle();
+			}
+
+			image.recycle();
+		}
+	}
+
+	/**
+	 * Get the widths of the narrower renditions of an image.
+	 * @param width The width of the web sized rendition in pixels.
+	 * @return The widths of SIZED_WIDTHS that are smaller than the web sized rendition, largest first.
+	 */
+	private static int[] getSizedWidths(int width) {
+		int count = 0;
+
+		for (int w : SIZED_WIDTHS) {
+			if (w < width) {
+				count++;
+			}
+		}
+
+		int[] widths = new int[count];
+
+		for (int i = 0, j = 0; i < SIZED_WIDTHS.length; i++) {
+			if (SIZED_WIDTHS[i] < width) {
+				widths[j++] = SIZED_WIDTHS[i];
+			}
+		}
+
+		return widths;
+	}
+
+	/**
+	 * Get the paths of the narrower renditions of an image.
+	 * @param name The name of the renditions of the image.
+	 * @param widths The widths of the narrower renditions.
+	 * @return The paths of the narrower renditions, in the same order as their widths.
+	 */
+	private String[] getSizedPaths(String name, int[] widths) {
+		String[] paths = new String[widths.length];
+
+		for (int i = 0; i < widths.length; i++) {
+			paths[i] = new File(directory, name + SIZED_SUFFIX + widths[i]).getPath();
+		}
+
+		return paths;
+	}
+
+	/**
+	 * Decode an image no larger than the web size and turn it upright. The image
+	 * is sampled down while it is decoded, so a large photo is never decoded at
+	 * full resolution.
+	 * @param path The path of the image.
+	 * @return The upright image, at most WEB_SIZE pixels on its long edge, or null if it can't be decoded.
+	 */
+	private static Bitmap decodeUpright(String path) {
+		BitmapFactory.Options options = new BitmapFactory.Options();
+
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(path, options);
+
+		if (options.outWidth <= 0 || options.outHeight <= 0) {
+			return null;
+		}
+
+		boolean landscape = options.outWidth >= options.outHeight;   // Only the long edge is bounded.
+		Bitmap decoded = BitmapDecoder.decodeFile(path, landscape ? WEB_SIZE : 0, landscape ? 0 : WEB_SIZE, null);
+
+		if (decoded == null) {
+			return null;
+		}
+
+		int width = decoded.getWidth();
+		int height = decoded.getHeight();
+		float scale = Math.min(1, (float) WEB_SIZE / Math.max(width, height));
+		Matrix matrix = new Matrix();
+
+		matrix.postScale(scale, scale);
+
+		if (!orient(matrix, getOrientation(path)) && scale == 1) {
+			return decoded;   // Already upright and small enough.
+		}
+
+		Bitmap upright = Bitmap.createBitmap(decoded, 0, 0, width, height, matrix, true);
+
+		if (upright != decoded) {
+			decoded.recycle();
+		}
+
+		return upright;
+	}
+
+	/**
+	 * Read the EXIF orientation of an image.
+	 * @param path The path of the image.
+	 * @return The orientation, or ExifInterface.ORIENTATION_NORMAL if it has none.
+	 */
+	private static int getOrientation(String path) {
+		try {
+			return new ExifInterface(path).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+		} catch (IOException e) {
+			return ExifInterface.ORIENTATION_NORMAL;   // Not every image has EXIF data.
+		}
+	}
+
+	/**
+	 * Add the transformation that turns an image with an EXIF orientation upright to a Matrix.
+	 * @param matrix The Matrix.
+	 * @param orientation The EXIF orientation.
+	 * @return True if a transformation was added, false if the image is already upright.
+	 */
+	private static boolean orient(Matrix matrix, int orientation) {
+		switch (orientation) {
+			case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+				matrix.postScale(-1, 1);
+				return true;
+			case ExifInterface.ORIENTATION_ROTATE_180:
+				matrix.postRotate(180);
+				return true;
+			case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+				matrix.postScale(1, -1);
+				return true;
+			case ExifInterface.ORIENTATION_TRANSPOSE:
+				matrix.postRotate(90);
+				matrix.postScale(-1, 1);
+				return true;
+			case ExifInterface.ORIENTATION_ROTATE_90:
+				matrix.postRotate(90);
+				return true;
+			case ExifInterface.ORIENTATION_TRANSVERSE:
+				matrix.postRotate(-90);
+				matrix.postScale(-1, 1);
+				return true;
+			case ExifInterface.ORIENTATION_ROTATE_270:
+				matrix.postRotate(270);
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Scale an image so that its width and height don't exceed a bound.
+	 * @param image The image.
+	 * @param maxWidth The maximum width in pixels.
+	 * @param maxHeight The maximum height in pixels.
+	 * @return The scaled image, or the image itself if it is small enough.
+	 */
+	static Bitmap scale(Bitmap image, int maxWidth, int maxHeight) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+
+		if (width <= maxWidth && height <= maxHeight) {
+			return image;
+		}
+
+		float scale = Math.min((float) maxWidth / width, (float) maxHeight / height);
+
+		return Bitmap.createScaledBitmap(image, Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)), true);
+	}
+
+	/**
+	 * Write a rendition. Images with transparency are written as PNG, because
+	 * JPEG would fill it with black. Everything else is written as JPEG. The
+	 * temporary file is unique, because two threads may import the same image.
+	 * @param file The file of the rendition.
+	 * @param image The image.
+	 * @throws IOException If the file can't be written.
+	 */
+	static void writeFile(File file, Bitmap image) throws IOException {
+		File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE);
+		boolean written;
+
+		try {
+			written = image.hasAlpha()
+					? image.compress(Bitmap.CompressFormat.PNG, 100, outputStream)
+					: image.compress(Bitmap.CompressFormat.JPEG, QUALITY, outputStream);
+		} finally {
+			outputStream.close();
+		}
+
+		if (!written || !temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Unable to write " + file.getPath());
+		}
+	}
+
+	/**
+	 * Mark reused renditions as modified now, so the MediaSweeper keeps them
+	 * while the Post that reuses them hasn't been saved yet.
+	 * @param web The web sized rendition.
+	 * @param thumbnail The thumbnail rendition.
+	 * @param sizedPaths The paths of the narrower renditions.
+	 */
+	private static void touch(File web, File thumbnail, String[] sizedPaths) {
+		long now = System.currentTimeMillis();
+
+		web.setLastModified(now);
+		thumbnail.setLastModified(now);
+
+		for (String sizedPath : sizedPaths) {
+			new File(sizedPath).setLastModified(now);
+		}
+	}
+
+	/**
+	 * Get the name the renditions of an image are written under: a hash of its
+	 * path, size, and modified time, so an edited image gets new renditions.
+	 * @param path The path of the image.
+	 * @return The name of the renditions.
+	 */
+	static String getName(String path) {
+		File file = new File(path);
+
+		return Hashes.sha1(path + "@" + file.length() + "@" + file.lastModified());
+	}
+
+	/**
+	 * Receives the result of an import on the main thread.
+	 */
+	public interface Callback {
+		/**
+		 * Called when an image was imported.
+		 * @param renditions The renditions of the image.
+		 */
+		void onImported(Renditions renditions);
+
+		/**
+		 * Called when an image couldn't be imported.
+		 * @param path The path of the image.
+		 * @param e The reason the import failed.
+		 */
+		void onFailed(String path, IOException e);
+	}
+
+	/**
+	 * The renditions an import wrote for an image.
+	 */
+	public static class Renditions {
+		private final String source;          // The path of the original image.
+		private final String webPath;         // The path of the web sized rendition.
+		private final String thumbnailPath;   // The path of the thumbnail rendition.
+		private final int width;              // The width of the web sized rendition in pixels.
+		private final int height;             // The height of the web sized rendition in pixels.
+		private final String[] sizedPaths;    // The paths of the narrower renditions.
+		private final int[] sizedWidths;      // The widths of the narrower renditions in pixels.
+
+		Renditions(String source, String webPath, String thumbnailPath, int width, int height, String[] sizedPaths, int[] sizedWidths) {
+			this.source = source;
+			this.webPath = webPath;
+			this.thumbnailPath = thumbnailPath;
+			this.width = width;
+			this.height = height;
+			this.sizedPaths = sizedPaths;
+			this.sizedWidths = sizedWidths;
+		}
+
+		/**
+		 * Get the path of the original image.
+		 * @return The path of the original image.
+		 */
+		public String getSource() {
+			return source;
+		}
+
+		/**
+		 * Get the path of the web sized rendition.
+		 * @return The path of the web sized rendition.
+		 */
+		public String getWebPath() {
+			return webPath;
+		}
+
+		/**
+		 * Get the path of the thumbnail rendition.
+		 * @return The path of the thumbnail rendition.
+		 */
+		public String getThumbnailPath() {
+			return thumbnailPath;
+		}
+
+		/**
+		 * Get the width of the web sized rendition.
+		 * @return The width in pixels.
+		 */
+		public int getWidth() {
+			return width;
+		}
+
+		/**
+		 * Get the height of the web sized rendition.
+		 * @return The height in pixels.
+		 */
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * Get the paths of the narrower renditions.
+		 * @return The paths of the narrower renditions, largest first. May be empty.
+		 */
+		public String[] getSizedPaths() {
+			return sizedPaths;
+		}
+
+		/**
+		 * Get the widths of the narrower renditions.
+		 * @return The widths in pixels of the narrower renditions, in the same order as their paths.
+		 */
+		public int[] getSizedWidths() {
+			return sizedWidths;
+		}
+	}
+}
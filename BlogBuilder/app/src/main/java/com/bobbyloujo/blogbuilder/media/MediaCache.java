@@ -0,0 +1,976 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A disk cache of remote images and videos that follows the caching headers of
+ * HTTP. A response is kept for as long as its Cache-Control max-age or Expires
+ * header allows, and is served without touching the network until then. After
+ * that, it is revalidated with its ETag or Last-Modified date, and the cached
+ * body is served again if the server answers 304 Not Modified. A response
+ * without freshness headers but with a Last-Modified date stays fresh for a
+ * tenth of its age, up to a day. Responses marked no-store aren't cached.
+ * When the network can't be reached, a stale response is served instead.
+ *
+ * The cache is bounded by size. The least recently used responses are evicted
+ * first, and a body larger than a MAX_ENTRY_FRACTION of the cache is never
+ * kept. Byte ranges of a cached body can be requested, so videos can seek.
+ *
+ * A body that isn't cached is streamed to the caller as it downloads, and is
+ * written to the cache on the way. A video can therefore start playing before
+ * it has downloaded. A request for a range that doesn't start at the beginning
+ * of a body that isn't cached is left to the caller, because the cache could
+ * only answer it after downloading everything before the range.
+ *
+ * Requests for the same URL wait for each other while its headers are fetched,
+ * so a response is revalidated once. Requests for other URLs never wait.
+ *
+ * Each response is kept as two files named by a hash of its URL: the body, and
+ * a small file of its metadata. Both are written to temporary files first,
+ * and a downloaded body replaces the cached one together with its metadata
+ * while the lock of its URL is held, so a request never reads one without the
+ * other.
+ */
+public class MediaCache {
+	public static final String DIRECTORY_NAME = "media";   // The name of the directory of the cache in the cache directory.
+
+	private static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;     // The maximum size in bytes of the app's cache.
+	private static final long MAX_HEURISTIC_AGE = 24 * 60 * 60 * 1000;  // The longest a response without freshness headers stays fresh.
+	private static final int HEURISTIC_FRACTION = 10;                   // The fraction of its age a response without freshness headers stays fresh.
+	private static final int MAGIC = 0x42424D43;                        // "BBMC". Marks a metadata file.
+	private static final int VERSION = 1;                               // The format version of the metadata files.
+	private static final int MAX_ENTRY_FRACTION = 2;                    // The fraction of the cache a single body may take.
+	private static final int CONNECT_TIMEOUT = 15000;                   // The connect timeout in milliseconds.
+	private static final int READ_TIMEOUT = 30000;                      // The read timeout in milliseconds.
+	private static final int BUFFER_SIZE = 8192;                        // The size of the buffers used when reading and writing.
+	private static final String BODY_SUFFIX = ".body";                  // The suffix of the file of a body.
+	private static final String META_SUFFIX = ".meta";                  // The suffix of the file of the metadata of a body.
+	private static final String TEMP_SUFFIX = ".tmp";                   // The suffix of files that are written before they replace a file.
+
+	private static MediaCache instance;   // The singleton instance.
+
+	private final File directory;                          // The directory of the cache.
+	private final long maxSize;                            // The maximum size in bytes of the cached bodies.
+	private final HashMap<String, UrlLock> urlLocks = new HashMap<>();   // The lock of each URL being requested, keyed by the name of its files.
+	private long size = -1;                                // The size in bytes of the cached bodies, or -1 if it hasn't been measured.
+
+	/**
+	 * A cached response, ready to be served.
+	 */
+	public static class Response {
+		private final int status;                     // The HTTP status code.
+		private final String reason;                  // The HTTP reason phrase.
+		private final String mimeType;                // The MIME type of the body.
+		private final Map<String, String> headers;    // The headers of the response.
+		private final InputStream body;               // The body of the response. The receiver must close it.
+
+		Response(int status, String reason, String mimeType, Map<String, String> headers, InputStream body) {
+			this.status = status;
+			this.reason = reason;
+			this.mimeType = mimeType;
+			this.headers = headers;
+			this.body = body;
+		}
+
+		/**
+		 * Get the HTTP status code: 200 for a whole body, 206 for a range of it, or 416 for a range outside of it.
+		 * @return The HTTP status code.
+		 */
+		public int getStatus() {
+			return status;
+		}
+
+		/**
+		 * Get the HTTP reason phrase.
+		 * @return The reason phrase of the status.
+		 */
+		public String getReason() {
+			return reason;
+		}
+
+		/**
+		 * Get the MIME type of the body.
+		 * @return The MIME type, without parameters such as the charset.
+		 */
+		public String getMimeType() {
+			return mimeType;
+		}
+
+		/**
+		 * Get the headers of the response, including Content-Length and Content-Range.
+		 * @return The headers.
+		 */
+		public Map<String, String> getHeaders() {
+			return headers;
+		}
+
+		/**
+		 * Get the body of the response. The receiver must close it.
+		 * @return The body.
+		 */
+		public InputStream getBody() {
+			return body;
+		}
+	}
+
+	/**
+	 * The metadata of a cached response.
+	 */
+	private static class Entry {
+		final String url;            // The URL of the response.
+		final String etag;           // The ETag of the response, or null.
+		final String lastModified;   // The Last-Modified header of the response, or null.
+		final long expires;          // The time the response stops being fresh in milliseconds since the epoch.
+		final String mimeType;       // The MIME type of the body.
+
+		Entry(String url, String etag, String lastModified, long expires, String mimeType) {
+			this.url = url;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.expires = expires;
+			this.mimeType = mimeType;
+		}
+	}
+
+	/**
+	 * The lock of a URL, kept while any request for it is in flight.
+	 */
+	private static class UrlLock {
+		int users;   // The number of requests holding or waiting for the lock.
+	}
+
+	/**
+	 * Create a new MediaCache.
+	 * @param directory The directory of the cache. It is created when the first response is cached.
+	 * @param maxSize The maximum size in bytes of the cached bodies.
+	 */
+	public MediaCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Get the MediaCache of the app, creating it the first time.
+	 * @param context A Context of the app.
+	 * @return The MediaCache.
+	 */
+	public static synchronized MediaCache getInstance(Context context) {
+		if (instance == null) {
+			instance = new MediaCache(new File(context.getApplicationContext().getCacheDir(), DIRECTORY_NAME), DEFAULT_MAX_SIZE);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Get a URL from the cache, fetching or revalidating it first if it isn't
+	 * fresh. Blocks while the headers are fetched, so it should not be called on
+	 * the main thread. A body that isn't cached is streamed from the network.
+	 * @param url The URL.
+	 * @param range The Range header of the request, or null for the whole body.
+	 * @return The response, or null if the response can't be served from the cache and should be fetched by the caller.
+	 * @throws IOException If the URL can't be fetched and isn't cached.
+	 */
+	public Response get(String url, String range) throws IOException {
+		String name = getName(url);
+		UrlLock lock = acquire(name);
+
+		try {
+			synchronized (lock) {
+				Entry entry = readEntry(name, url);
+
+				if (entry != null && System.currentTimeMillis() < entry.expires) {
+					return serve(name, entry, range);
+				}
+
+				if (entry == null && startsPastBeginning(range)) {
+					return null;   // Seeking into a body that isn't cached.
+				}
+
+				try {
+					return fetch(name, url, entry, range);
+				} catch (IOException e) {
+					if (entry == null) {
+						throw e;
+					}
+
+					return serve(name, entry, range);   // Offline or the server failed. Serve the stale response.
+				}
+			}
+		} finally {
+			release(name, lock);
+		}
+	}
+
+	/**
+	 * Get the lock of a URL, creating it if no other request holds it.
+	 * @param name The name of the files of the URL.
+	 * @return The lock. It must be released with release.
+	 */
+	private UrlLock acquire(String name) {
+		synchronized (urlLocks) {
+			UrlLock lock = urlLocks.get(name);
+
+			if (lock == null) {
+				lock = new UrlLock();
+				urlLocks.put(name, lock);
+			}
+
+			lock.users++;
+			return lock;
+		}
+	}
+
+	/**
+	 * Release the lock of a URL, forgetting it once no request holds it.
+	 * @param name The name of the files of the URL.
+	 * @param lock The lock.
+	 */
+	private void release(String name, UrlLock lock) {
+		synchronized (urlLocks) {
+			if (--lock.users == 0) {
+				urlLocks.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Serve a cached response and mark it as recently used.
+	 * @param name The name of the files of the URL.
+	 * @param entry The metadata of the response.
+	 * @param range The Range header of the request, or null for the whole body.
+	 * @return The response.
+	 * @throws IOException If the body can't be opened.
+	 */
+	private Response serve(String name, Entry entry, String range) throws IOException {
+		File body = new File(directory, name + BODY_SUFFIX);
+
+		body.setLastModified(System.currentTimeMillis());
+
+		return open(entry, body, range);
+	}
+
+	/**
+	 * Determine if a Range header asks for a range that doesn't start at the
+	 * beginning of the body.
+	 * @param range The Range header, or null.
+	 * @return True if the range starts past the first byte, false otherwise.
+	 */
+	private static boolean startsPastBeginning(String range) {
+		long[] bounds = parseRange(range, Long.MAX_VALUE);
+
+		return bounds != null && bounds[0] > 0;
+	}
+
+	/**
+	 * Fetch a URL, or revalidate its cached response. A revalidated response is
+	 * served from the cache. A new body is streamed to the caller, and written to
+	 * the cache as it is read if it isn't too large.
+	 * @param name The name of the files of the URL.
+	 * @param url The URL.
+	 * @param cached The cached response, or null if there is none.
+	 * @param range The Range header of the request, or null for the whole body. A new body is always served whole.
+	 * @return The response, or null if it can't be cached and should be fetched by the caller.
+	 * @throws IOException If the URL can't be fetched.
+	 */
+	private Response fetch(String name, String url, Entry cached, String range) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		connection.setUseCaches(false);
+
+		if (cached != null && cached.etag != null) {
+			connection.setRequestProperty("If-None-Match", cached.etag);
+		}
+
+		if (cached != null && cached.lastModified != null) {
+			connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+		}
+
+		try {
+			int status = connection.getResponseCode();
+			long now = System.currentTimeMillis();
+			String cacheControl = lower(connection.getHeaderField("Cache-Control"));
+
+			if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+				String etag = connection.getHeaderField("ETag");
+				String lastModified = connection.getHeaderField("Last-Modified");
+				Entry entry = new Entry(url, etag != null ? etag : cached.etag, lastModified != null ? lastModified : cached.lastModified,
+						getExpires(connection, cacheControl, now, lastModified != null ? lastModified : cached.lastModified), cached.mimeType);
+
+				connection.disconnect();
+				writeEntry(name, entry);
+				return serve(name, entry, range);
+			}
+
+			if (status != HttpURLConnection.HTTP_OK) {
+				throw new IOException("HTTP " + status + " for " + url);
+			}
+
+			if (cacheControl != null && cacheControl.contains("no-store")) {
+				connection.disconnect();
+				return null;
+			}
+
+			String lastModified = connection.getHeaderField("Last-Modified");
+			Entry entry = new Entry(url, connection.getHeaderField("ETag"), lastModified,
+					getExpires(connection, cacheControl, now, lastModified), getMimeType(connection.getContentType()));
+			long length = getContentLength(connection);
+			HashMap<String, String> headers = new HashMap<>();
+			InputStream body = connection.getInputStream();
+
+			if (length >= 0) {
+				headers.put("Content-Length", Long.toString(length));
+			}
+
+			if (length <= maxSize / MAX_ENTRY_FRACTION) {
+				body = new CachingInputStream(body, name, entry, length);
+			}
+
+			return new Response(200, "OK", entry.mimeType, headers, body);
+		} catch (IOException e) {
+			InputStream error = connection.getErrorStream();
+
+			if (error != null) {
+				error.close();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the length of the body of a response.
+	 * @param connection The connection of the response.
+	 * @return The length in bytes, or -1 if the server didn't send it.
+	 */
+	private static long getContentLength(HttpURLConnection connection) {
+		String length = connection.getHeaderField("Content-Length");
+
+		try {
+			return length != null ? Long.parseLong(length.trim()) : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Work out when a response stops being fresh.
+	 * @param connection The connection of the response.
+	 * @param cacheControl The Cache-Control header in lower case, or null.
+	 * @param now The time the response was received.
+	 * @param lastModified The Last-Modified header of the response, or null.
+	 * @return The time the response stops being fresh in milliseconds since the epoch.
+	 */
+	private static long getExpires(HttpURLConnection connection, String cacheControl, long now, String lastModified) {
+		if (cacheControl != null) {
+			if (cacheControl.contains("no-cache")) {
+				return now;
+			}
+
+			long maxAge = getMaxAge(cacheControl);
+
+			if (maxAge >= 0) {
+				return now + maxAge * 1000;
+			}
+		}
+
+		long expires = connection.getExpiration();
+
+		if (expires > 0) {
+			return expires;
+		}
+
+		long modified = lastModified != null ? parseDate(lastModified) : 0;
+
+		if (modified > 0 && modified < now) {
+			return now + Math.min((now - modified) / HEURISTIC_FRACTION, MAX_HEURISTIC_AGE);
+		}
+
+		return now;
+	}
+
+	/**
+	 * Get the max-age directive of a Cache-Control header.
+	 * @param cacheControl The Cache-Control header in lower case.
+	 * @return The max-age in seconds, or -1 if there is none.
+	 */
+	private static long getMaxAge(String cacheControl) {
+		for (String directive : cacheControl.split(",")) {
+			directive = directive.trim();
+
+			if (directive.startsWith("max-age=")) {
+				try {
+					return Long.parseLong(directive.substring("max-age=".length()).replace("\"", "").trim());
+				} catch (NumberFormatException e) {
+					return 0;   // An invalid max-age makes the response stale.
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Open a cached body, or the requested range of it.
+	 * @param entry The metadata of the response.
+	 * @param body The file of the body.
+	 * @param range The Range header of the request, or null for the whole body.
+	 * @return The response.
+	 * @throws IOException If the body can't be opened.
+	 */
+	private static Response open(Entry entry, File body, String range) throws IOException {
+		HashMap<String, String> headers = new HashMap<>();
+		long length = body.length();
+		long[] bounds = parseRange(range, length);
+
+		headers.put("Accept-Ranges", "bytes");
+
+		if (entry.etag != null) {
+			headers.put("ETag", entry.etag);
+		}
+
+		if (bounds == null) {
+			headers.put("Content-Length", Long.toString(length));
+			return new Response(200, "OK", entry.mimeType, headers, new FileInputStream(body));
+		}
+
+		if (bounds[0] >= length || bounds[0] > bounds[1]) {
+			headers.put("Content-Range", "bytes */" + length);
+			headers.put("Content-Length", "0");
+			return new Response(416, "Range Not Satisfiable", entry.mimeType, headers, new ByteArrayInputStream(new byte[0]));
+		}
+
+		long end = Math.min(bounds[1], length - 1);
+		InputStream inputStream = new FileInputStream(body);
+
+		skipFully(inputStream, bounds[0]);
+		headers.put("Content-Range", "bytes " + bounds[0] + "-" + end + "/" + length);
+		headers.put("Content-Length", Long.toString(end - bounds[0] + 1));
+
+		return new Response(206, "Partial Content", entry.mimeType, headers, new LimitedInputStream(inputStream, end - bounds[0] + 1));
+	}
+
+	/**
+	 * Parse a Range header with a single byte range.
+	 * @param range The Range header, or null.
+	 * @param length The length of the body.
+	 * @return The first and last byte of the range, or null if the whole body is requested.
+	 */
+	static long[] parseRange(String range, long length) {
+		if (range == null || !range.trim().startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return null;   // Multiple ranges aren't supported, so the whole body is served.
+		}
+
+		String spec = range.trim().substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+
+		if (dash < 0) {
+			return null;
+		}
+
+		try {
+			String first = spec.substring(0, dash).trim();
+			String last = spec.substring(dash + 1).trim();
+
+			if (first.isEmpty()) {   // The last bytes of the body.
+				long suffix = Long.parseLong(last);
+				return new long[] {Math.max(0, length - suffix), length - 1};
+			}
+
+			return new long[] {Long.parseLong(first), last.isEmpty() ? length - 1 : Long.parseLong(last)};
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Replace the cached body of a URL with a body that was written to a
+	 * temporary file, then evict the least recently used responses if the cache
+	 * has grown past its maximum size.
+	 * @param name The name of the files of the URL.
+	 * @param temp The temporary file of the body.
+	 * @throws IOException If the body can't be replaced.
+	 */
+	private synchronized void commitBody(String name, File temp) throws IOException {
+		File file = new File(directory, name + BODY_SUFFIX);
+
+		measure();
+		size -= file.length();
+
+		if (!temp.renameTo(file)) {
+			size += file.length();
+			temp.delete();
+			throw new IOException("Unable to replace " + file.getPath());
+		}
+
+		size += file.length();
+
+		if (size > maxSize) {
+			trim();
+		}
+	}
+
+	/**
+	 * Measure the size of the cached bodies, if it hasn't been measured yet.
+	 */
+	private void measure() {
+		if (size >= 0) {
+			return;
+		}
+
+		size = 0;
+
+		for (File body : listBodies()) {
+			size += body.length();
+		}
+	}
+
+	/**
+	 * Delete the least recently used responses until the cache is within its
+	 * maximum size. No body takes more than a MAX_ENTRY_FRACTION of the cache,
+	 * so the one that was just written, which was used last, is never deleted.
+	 */
+	private void trim() {
+		File[] bodies = listBodies();
+
+		Arrays.sort(bodies, new Comparator<File>() {
+			@Override public int compare(File a, File b) {
+				long difference = a.lastModified() - b.lastModified();
+				return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+			}
+		});
+
+		for (int i = 0; i < bodies.length && size > maxSize; i++) {
+			String path = bodies[i].getPath();
+			long length = bodies[i].length();
+
+			if (bodies[i].delete()) {
+				size -= length;
+				new File(path.substring(0, path.length() - BODY_SUFFIX.length()) + META_SUFFIX).delete();
+			}
+		}
+	}
+
+	/**
+	 * List the files of the cached bodies.
+	 * @return The files, or an empty array if there are none.
+	 */
+	private File[] listBodies() {
+		File[] files = directory.listFiles();
+		ArrayList<File> bodies = new ArrayList<>();
+
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().endsWith(BODY_SUFFIX)) {
+					bodies.add(file);
+				}
+			}
+		}
+
+		return bodies.toArray(new File[bodies.size()]);
+	}
+
+	/**
+	 * Read the metadata of a cached response.
+	 * @param name The name of the files of the URL.
+	 * @param url The URL, compared with the stored URL in case two URLs have the same hash.
+	 * @return The metadata, or null if the URL isn't cached.
+	 */
+	private Entry readEntry(String name, String url) {
+		if (!new File(directory, name + BODY_SUFFIX).isFile()) {
+			return null;
+		}
+
+		try {
+			DataInputStream data = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(directory, name + META_SUFFIX))));
+
+			try {
+				if (data.readInt() != MAGIC || data.readInt() != VERSION || !url.equals(data.readUTF())) {
+					return null;
+				}
+
+				return new Entry(url, readString(data), readString(data), data.readLong(), data.readUTF());
+			} finally {
+				data.close();
+			}
+		} catch (FileNotFoundException e) {
+			return null;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Write the metadata of a cached response.
+	 * @param name The name of the files of the URL.
+	 * @param entry The metadata.
+	 * @throws IOException If the metadata can't be written.
+	 */
+	private void writeEntry(String name, Entry entry) throws IOException {
+		File file = new File(directory, name + META_SUFFIX);
+		File temp = new File(directory, name + META_SUFFIX + TEMP_SUFFIX);
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+
+		try {
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+			data.writeUTF(entry.url);
+			writeString(data, entry.etag);
+			writeString(data, entry.lastModified);
+			data.writeLong(entry.expires);
+			data.writeUTF(entry.mimeType);
+		} finally {
+			data.close();
+		}
+
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Unable to replace " + file.getPath());
+		}
+	}
+
+	/**
+	 * Write a String that may be null.
+	 * @param data The stream to write to.
+	 * @param s The String. May be null.
+	 * @throws IOException If the stream can't be written.
+	 */
+	private static void writeString(DataOutputStream data, String s) throws IOException {
+		data.writeBoolean(s != null);
+
+		if (s != null) {
+			data.writeUTF(s);
+		}
+	}
+
+	/**
+	 * Read a String written by writeString.
+	 * @param data The stream to read from.
+	 * @return The String. May be null.
+	 * @throws IOException If the stream can't be read.
+	 */
+	private static String readString(DataInputStream data) throws IOException {
+		return data.readBoolean() ? data.readUTF() : null;
+	}
+
+	/**
+	 * Get the name of the files of a URL, a hash of the URL.
+	 * @param url The URL.
+	 * @return The name of the files.
+	 */
+	private static String getName(String url) {
+		return Hashes.sha1(url);
+	}
+
+	/**
+	 * Get the MIME type of a Content-Type header.
+	 * @param contentType The Content-Type header, or null.
+	 * @return The MIME type without its parameters.
+	 */
+	private static String getMimeType(String contentType) {
+		if (contentType == null) {
+			return "application/octet-stream";
+		}
+
+		int semicolon = contentType.indexOf(';');
+
+		return (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim();
+	}
+
+	/**
+	 * Parse an HTTP date.
+	 * @param date The date.
+	 * @return The date in milliseconds since the epoch, or 0 if it can't be parsed.
+	 */
+	private static long parseDate(String date) {
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+
+		try {
+			return format.parse(date).getTime();
+		} catch (ParseException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Convert a header to lower case.
+	 * @param header The header, or null.
+	 * @return The header in lower case, or null.
+	 */
+	private static String lower(String header) {
+		return header != null ? header.toLowerCase(Locale.US) : null;
+	}
+
+	/**
+	 * Skip bytes of a stream.
+	 * @param inputStream The stream.
+	 * @param count The number of bytes to skip.
+	 * @throws IOException If the stream ends first.
+	 */
+	private static void skipFully(InputStream inputStream, long count) throws IOException {
+		while (count > 0) {
+			long skipped = inputStream.skip(count);
+
+			if (skipped <= 0) {
+				inputStream.close();
+				throw new IOException("The cached body ended early.");
+			}
+
+			count -= skipped;
+		}
+	}
+
+	/**
+	 * A body streamed from the network that is copied to a temporary file as it
+	 * is read. Once it has been read to the end, the copy replaces the cached
+	 * body of its URL. The copy is dropped if the body is closed before its end,
+	 * grows past a MAX_ENTRY_FRACTION of the cache, or can't be written.
+	 */
+	private class CachingInputStream extends FilterInputStream {
+		private final String name;      // The name of the files of the URL.
+		private final Entry entry;      // The metadata of the response.
+		private final long length;      // The length of the body, or -1 if it isn't known.
+		private File temp;              // The temporary file of the copy, or null if it was dropped or committed.
+		private OutputStream copy;      // The stream of the copy, or null if it was dropped or committed.
+		private long written;           // The number of bytes copied.
+
+		CachingInputStream(InputStream in, String name, Entry entry, long length) {
+			super(in);
+			this.name = name;
+			this.entry = entry;
+			this.length = length;
+
+			try {
+				if (!directory.isDirectory() && !directory.mkdirs()) {
+					throw new IOException("Unable to create " + directory.getPath());
+				}
+
+				temp = File.createTempFile(name, BODY_SUFFIX + TEMP_SUFFIX, directory);
+				copy = new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE);
+			} catch (IOException e) {
+				e.printStackTrace();   // The body is still streamed, just not cached.
+				drop();
+			}
+		}
+
+		@Override public int read() throws IOException {
+			byte[] b = new byte[1];
+			int count = read(b, 0, 1);
+
+			return count < 0 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override public int read(byte[] buffer, int offset, int count) throws IOException {
+			int read = in.read(buffer, offset, count);
+
+			if (copy != null) {
+				if (read > 0) {
+					write(buffer, offset, read);
+				} else if (read < 0) {
+					commit();
+				}
+			}
+
+			return read;
+		}
+
+		@Override public long skip(long count) throws IOException {
+			drop();   // Skipped bytes aren't copied, so the copy would be incomplete.
+			return in.skip(count);
+		}
+
+		@Override public boolean markSupported() {
+			return false;
+		}
+
+		@Override public void close() throws IOException {
+			drop();
+			in.close();
+		}
+
+		/**
+		 * Copy bytes that were read, dropping the copy if it grows too large.
+		 * @param buffer The bytes.
+		 * @param offset The offset of the first byte.
+		 * @param count The number of bytes.
+		 */
+		private void write(byte[] buffer, int offset, int count) {
+			written += count;
+
+			if (written > maxSize / MAX_ENTRY_FRACTION) {
+				drop();
+				return;
+			}
+
+			try {
+				copy.write(buffer, offset, count);
+			} catch (IOException e) {
+				e.printStackTrace();
+				drop();
+			}
+		}
+
+		/**
+		 * Replace the cached body and its metadata with the copy, if the whole body
+		 * was copied. The metadata is written first, and is deleted again if the
+		 * body can't be replaced, so the old body is never served with the new
+		 * metadata.
+		 */
+		private void commit() {
+			File file = temp;
+			UrlLock lock = null;
+
+			try {
+				copy.close();
+				copy = null;
+				temp = null;
+
+				if (length >= 0 && written != length) {
+					file.delete();   // The connection ended early.
+					return;
+				}
+
+				lock = acquire(name);
+
+				synchronized (lock) {
+					writeEntry(name, entry);
+
+					try {
+						commitBody(name, file);
+					} catch (IOException e) {
+						new File(directory, name + META_SUFFIX).delete();
+						throw e;
+					}
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+				drop();
+				file.delete();
+			} finally {
+				if (lock != null) {
+					release(name, lock);
+				}
+			}
+		}
+
+		/**
+		 * Stop copying and delete the copy.
+		 */
+		private void drop() {
+			if (copy != null) {
+				try {
+					copy.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+
+				copy = null;
+			}
+
+			if (temp != null) {
+				temp.delete();
+				temp = null;
+			}
+		}
+	}
+
+	/**
+	 * A stream that ends after a number of bytes of another stream.
+	 */
+	private static class LimitedInputStream extends FilterInputStream {
+		private long remaining;   // The number of bytes left to read.
+
+		LimitedInputStream(InputStream in, long limit) {
+			super(in);
+			this.remaining = limit;
+		}
+
+		@Override public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+
+			int b = in.read();
+
+			if (b >= 0) {
+				remaining--;
+			}
+
+			return b;
+		}
+
+		@Override public int read(byte[] buffer, int offset, int count) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+
+			int read = in.read(buffer, offset, (int) Math.min(count, remaining));
+
+			if (read > 0) {
+				remaining -= read;
+			}
+
+			return read;
+		}
+
+		@Override public long skip(long count) throws IOException {
+			long skipped = in.skip(Math.min(count, remaining));
+			remaining -= skipped;
+			return skipped;
+		}
+
+		@Override public int available() throws IOException {
+			return (int) Math.min(in.available(), remaining);
+		}
+	}
+}
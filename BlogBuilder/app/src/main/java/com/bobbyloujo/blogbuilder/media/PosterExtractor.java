@@ -0,0 +1,217 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Extracts poster frames of local videos. A video with a poster can be shown
+ * with preload="none", so opening a post doesn't start decoding every video in
+ * it, and the post list can show the poster as the thumbnail of a post.
+ *
+ * The frame is taken a tenth of the way into the video, at most MAX_FRAME_TIME
+ * in, because the first frame is often black. It is taken from the nearest sync
+ * frame, which can be decoded on its own. Extractions run one at a time on a
+ * background thread, since each one decodes video, and their results are
+ * delivered on the main thread. Posters are written to the app's storage, named
+ * like the renditions of ImageImporter, so a video is only ever extracted once.
+ */
+public class PosterExtractor {
+	public static final String DIRECTORY_NAME = "posters";   // The name of the directory of the posters in the files directory.
+
+	private static final int POSTER_SIZE = 1280;                  // The maximum width and height of a poster in pixels.
+	private static final long MAX_FRAME_TIME = 5000000;           // The latest time in microseconds a poster is taken from.
+	private static final String POSTER_SUFFIX = "-poster";        // The suffix of the name of a poster.
+
+	private static PosterExtractor instance;   // The singleton instance.
+
+	private final File directory;            // The directory the posters are written to.
+	private final ExecutorService executor;  // The thread extracting posters.
+	private final Handler handler;           // Delivers results on the main thread.
+
+	/**
+	 * Create a new PosterExtractor.
+	 * @param directory The directory the posters are written to.
+	 */
+	PosterExtractor(File directory) {
+		this.directory = directory;
+		this.handler = new Handler(Looper.getMainLooper());
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override public Thread newThread(final Runnable runnable) {
+				return new Thread(new Runnable() {
+					@Override public void run() {
+						Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+						runnable.run();
+					}
+				}, "PosterExtractor");
+			}
+		});
+	}
+
+	/**
+	 * Get the PosterExtractor of the app, creating it the first time.
+	 * @param context A Context of the app.
+	 * @return The PosterExtractor.
+	 */
+	public static synchronized PosterExtractor getInstance(Context context) {
+		if (instance == null) {
+			instance = new PosterExtractor(new File(context.getApplicationContext().getFilesDir(), DIRECTORY_NAME));
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Extract the poster of a video in the background. The callback is called on the main thread.
+	 * @param path The path of the video.
+	 * @param callback The callback to call when the extraction is done.
+	 * @return A Future that completes when the extraction is done.
+	 */
+	public Future<?> extract(final String path, final Callback callback) {
+		return executor.submit(new Runnable() {
+			@Override public void run() {
+				try {
+					final String poster = extractNow(path);
+
+					handler.post(new Runnable() {
+						@Override public void run() {
+							callback.onExtracted(path, poster);
+						}
+					});
+				} catch (final IOException e) {
+					e.printStackTrace();
+					handler.post(new Runnable() {
+						@Override public void run() {
+							callback.onFailed(path, e);
+						}
+					});
+				}
+			}
+		});
+	}
+
+	/**
+	 * Extract the poster of a video on the calling thread. Decodes video and
+	 * writes a file, so it should not be called on the main thread.
+	 * @param path The path of the video.
+	 * @return The path of the poster.
+	 * @throws IOException If no frame can be extracted or the poster can't be written.
+	 */
+	public String extractNow(String path) throws IOException {
+		File poster = new File(directory, ImageImporter.getName(path) + POSTER_SUFFIX);
+
+		if (poster.isFile()) {
+			poster.setLastModified(System.currentTimeMillis());   // Kept by the MediaSweeper until the Post that reuses it is saved.
+			return poster.getPath();
+		}
+
+		Bitmap frame = getFrame(path);
+
+		if (frame == null) {
+			throw new IOException("Unable to extract a frame from " + path);
+		}
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create " + directory.getPath());
+		}
+
+		Bitmap scaled = ImageImporter.scale(frame, POSTER_SIZE, POSTER_SIZE);
+
+		try {
+			ImageImporter.writeFile(poster, scaled);
+		} finally {
+			if (scaled != frame) {
+				scaled.recycle();
+			}
+
+			frame.recycle();
+		}
+
+		return poster.getPath();
+	}
+
+	/**
+	 * Get a representative frame of a video.
+	 * @param path The path of the video.
+	 * @return The frame, or null if the video can't be read.
+	 */
+	private static Bitmap getFrame(String path) {
+		MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+
+		try {
+			retriever.setDataSource(path);
+
+			long time = 0;
+			String duration = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+
+			if (duration != null) {
+				try {
+					time = Math.min(Long.parseLong(duration) * 1000 / 10, MAX_FRAME_TIME);   // The duration is in milliseconds.
+				} catch (NumberFormatException e) {
+					time = 0;
+				}
+			}
+
+			Bitmap frame = retriever.getFrameAtTime(time, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+
+			return frame != null ? frame : retriever.getFrameAtTime();
+		} catch (RuntimeException e) {
+			e.printStackTrace();   // The retriever throws IllegalArgumentException and RuntimeException for unreadable videos.
+			return null;
+		} finally {
+			retriever.release();
+		}
+	}
+
+	/**
+	 * Receives the result of an extraction on the main thread.
+	 */
+	public interface Callback {
+		/**
+		 * Called when the poster of a video was extracted.
+		 * @param path The path of the video.
+		 * @param posterPath The path of the poster.
+		 */
+		void onExtracted(String path, String posterPath);
+
+		/**
+		 * Called when the poster of a video couldn't be extracted.
+		 * @param path The path of the video.
+		 * @param e The reason the extraction failed.
+		 */
+		void onFailed(String path, IOException e);
+	}
+}
@@ -0,0 +1,277 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Downloads remote files on a bounded pool of threads. Requests for a URL that
+ * is already being downloaded join the download instead of starting another,
+ * and every requester gets the same bytes. A requester can cancel its request;
+ * the download itself is only cancelled when no requester is waiting for it.
+ *
+ * Connections are made with HttpURLConnection and responses are read to the
+ * end before the stream is closed, so the connection is kept alive and reused
+ * by later downloads from the same host.
+ *
+ * RemoteFetcher has no Android dependencies. Callbacks are called on the
+ * download thread, so decoding can be handed to another stage from there.
+ */
+public class RemoteFetcher {
+	private static final int CONNECT_TIMEOUT = 15000;   // The connect timeout in milliseconds.
+	private static final int READ_TIMEOUT = 30000;      // The read timeout in milliseconds.
+	private static final int BUFFER_SIZE = 8192;        // The size of the buffer used when reading a response.
+
+	private final ExecutorService executor;                               // The threads downloading files.
+	private final HashMap<String, Fetch> fetches = new HashMap<>();       // The downloads in progress keyed by URL.
+
+	/**
+	 * Receives the result of a request.
+	 */
+	public interface Callback {
+		/**
+		 * Called when the file was downloaded.
+		 * @param url The URL of the file.
+		 * @param data The content of the file. Shared by every requester of the URL, so it must not be modified.
+		 */
+		void onFetched(String url, byte[] data);
+
+		/**
+		 * Called when the file couldn't be downloaded.
+		 * @param url The URL of the file.
+		 * @param e The reason.
+		 */
+		void onFailed(String url, IOException e);
+	}
+
+	/**
+	 * A request for a URL, which can be cancelled.
+	 */
+	public final class Request {
+		private final Fetch fetch;          // The download the request is waiting for.
+		private final Callback callback;    // The Callback of the request.
+		private volatile boolean cancelled; // Flag indicating that the request was cancelled.
+
+		private Request(Fetch fetch, Callback callback) {
+			this.fetch = fetch;
+			this.callback = callback;
+		}
+
+		/**
+		 * Cancel this request. Its Callback won't be called. If no other request
+		 * is waiting for the URL, the download is cancelled too.
+		 */
+		public void cancel() {
+			cancelled = true;
+
+			synchronized (RemoteFetcher.this) {
+				fetch.requests.remove(this);
+
+				if (fetch.requests.isEmpty() && fetches.get(fetch.url) == fetch) {
+					fetches.remove(fetch.url);
+					fetch.cancel();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create a new RemoteFetcher.
+	 * @param threadCount The maximum number of files downloaded at the same time.
+	 */
+	public RemoteFetcher(int threadCount) {
+		this.executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			@Override public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "RemoteFetcher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Request a URL. If the URL is already being downloaded, the request joins
+	 * that download.
+	 * @param url The URL.
+	 * @param callback Receives the result on a download thread.
+	 * @return The request, which can be cancelled.
+	 */
+	public synchronized Request fetch(String url, Callback callback) {
+		Fetch fetch = fetches.get(url);
+
+		if (fetch == null) {
+			fetch = new Fetch(url);
+			fetches.put(url, fetch);
+			fetch.future = executor.submit(fetch);
+		}
+
+		Request request = new Request(fetch, callback);
+		fetch.requests.add(request);
+
+		return request;
+	}
+
+	/**
+	 * Get the number of downloads that haven't finished.
+	 * @return The number of URLs being downloaded or waiting to be downloaded.
+	 */
+	public synchronized int getPendingCount() {
+		return fetches.size();
+	}
+
+	/**
+	 * Stop the download threads. Downloads in progress are cancelled.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Download a URL.
+	 * @param url The URL.
+	 * @param fetch The download, checked for cancellation between reads.
+	 * @return The content of the URL.
+	 * @throws IOException If the URL can't be downloaded.
+	 */
+	private static byte[] download(String url, Fetch fetch) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+
+		try {
+			int status = connection.getResponseCode();
+
+			if (status != HttpURLConnection.HTTP_OK) {
+				throw new IOException("HTTP " + status + " for " + url);
+			}
+
+			int length = connection.getContentLength();
+			ByteArrayOutputStream data = new ByteArrayOutputStream(length > 0 ? length : BUFFER_SIZE);
+			InputStream inputStream = connection.getInputStream();
+
+			try {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int count;
+
+				while ((count = inputStream.read(buffer)) != -1) {
+					if (fetch.cancelled) {
+						connection.disconnect();   // The rest of the response won't be read, so the connection can't be reused.
+						throw new IOException("The download of " + url + " was cancelled.");
+					}
+
+					data.write(buffer, 0, count);
+				}
+			} finally {
+				inputStream.close();
+			}
+
+			return data.toByteArray();
+		} catch (IOException e) {
+			InputStream error = connection.getErrorStream();
+
+			if (error != null) {
+				error.close();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * The download of one URL and the requests waiting for it.
+	 */
+	private class Fetch implements Runnable {
+		private final String url;                                      // The URL.
+		private final ArrayList<Request> requests = new ArrayList<>();  // The requests waiting for the URL.
+		private volatile boolean cancelled;                            // Flag indicating that no request is waiting for the URL.
+		private Future<?> future;                                      // The Future of the download.
+
+		Fetch(String url) {
+			this.url = url;
+		}
+
+		/**
+		 * Cancel the download. Called with the RemoteFetcher locked.
+		 */
+		void cancel() {
+			cancelled = true;
+
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+
+		@Override public void run() {
+			byte[] data = null;
+			IOException failure = null;
+			ArrayList<Request> waiting;
+
+			if (cancelled) {
+				return;
+			}
+
+			try {
+				data = download(url, this);
+			} catch (IOException e) {
+				failure = e;
+			}
+
+			synchronized (RemoteFetcher.this) {
+				if (fetches.get(url) == this) {
+					fetches.remove(url);
+				}
+
+				waiting = new ArrayList<>(requests);
+				requests.clear();
+			}
+
+			if (cancelled) {
+				return;
+			}
+
+			for (Request request : waiting) {
+				if (request.cancelled) {
+					continue;
+				}
+
+				if (failure == null) {
+					request.callback.onFetched(url, data);
+				} else {
+					request.callback.onFailed(url, failure);
+				}
+			}
+		}
+	}
+}
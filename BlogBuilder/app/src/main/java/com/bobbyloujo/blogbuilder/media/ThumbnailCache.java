@@ -0,0 +1,284 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+import com.bobbyloujo.blogbuilder.R;
+import com.bobbyloujo.blogbuilder.post.ImageElement;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A two level cache of the thumbnails shown in the post list. Thumbnails are
+ * kept in memory in an LRU cache bounded by their size in bytes, and on disk
+ * as small, pre-scaled WebP files in the app's cache directory. The disk tier
+ * is bounded by size as well, and evicts the least recently used files.
+ *
+ * Thumbnails are keyed by getKey. The key of a local image includes the time
+ * its file was modified, so an edited image gets a new thumbnail. The key of a
+ * remote image is its URL, so it is only ever downloaded once.
+ */
+public class ThumbnailCache {
+	public static final String DIRECTORY_NAME = "thumbnails";   // The name of the directory of the disk tier in the cache directory.
+
+	private static final int MEMORY_FRACTION = 8;                    // The fraction of the heap the memory tier may use.
+	private static final long DISK_CACHE_SIZE = 16 * 1024 * 1024;   // The maximum size in bytes of the disk tier.
+	private static final int QUALITY = 80;                           // The quality thumbnails are compressed with on disk.
+	private static final int BUFFER_SIZE = 8192;                     // The size of the buffer used when writing thumbnails.
+
+	private static ThumbnailCache instance;   // The singleton instance.
+
+	private final LruCache<String, Bitmap> memory;   // The memory tier, keyed by thumbnail key.
+	private final File directory;                    // The directory of the disk tier.
+	private final int thumbnailSize;                 // The maximum width and height of a thumbnail in pixels.
+	private long diskSize = -1;                      // The size in bytes of the disk tier, or -1 if it hasn't been measured.
+
+	/**
+	 * Create a new ThumbnailCache.
+	 * @param directory The directory of the disk tier.
+	 * @param thumbnailSize The maximum width and height of a thumbnail in pixels.
+	 */
+	ThumbnailCache(File directory, int thumbnailSize) {
+		this.directory = directory;
+		this.thumbnailSize = thumbnailSize;
+		this.memory = new LruCache<String, Bitmap>((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / MEMORY_FRACTION)) {
+			@Override protected int sizeOf(String key, Bitmap bitmap) {
+				return bitmap.getByteCount();
+			}
+		};
+	}
+
+	/**
+	 * Get the ThumbnailCache of the app, creating it the first time.
+	 * @param context A Context of the app.
+	 * @return The ThumbnailCache.
+	 */
+	public static synchronized ThumbnailCache getInstance(Context context) {
+		if (instance == null) {
+			Context app = context.getApplicationContext();
+
+			instance = new ThumbnailCache(new File(app.getCacheDir(), DIRECTORY_NAME),
+					app.getResources().getDimensionPixelSize(R.dimen.summary_icon_size));
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Get the key of the thumbnail of an image.
+	 * @param location The location of the image, ImageElement.LOCAL or ImageElement.INTERNET.
+	 * @param src The path or URL of the image.
+	 * @return The key of the thumbnail.
+	 */
+	public static String getKey(int location, String src) {
+		if (location == ImageElement.LOCAL) {
+			return src + "@" + new File(src).lastModified();
+		}
+
+		return src;
+	}
+
+	/**
+	 * Get the maximum width and height of a thumbnail.
+	 * @return The maximum width and height of a thumbnail in pixels.
+	 */
+	public int getThumbnailSize() {
+		return thumbnailSize;
+	}
+
+	/**
+	 * Get a thumbnail from the memory tier. This is cheap enough for the main thread.
+	 * @param key The key of the thumbnail.
+	 * @return The thumbnail or null if it isn't in memory.
+	 */
+	public Bitmap getFromMemory(String key) {
+		return memory.get(key);
+	}
+
+	/**
+	 * Get a thumbnail from the memory tier, or decode it from the disk tier and
+	 * keep it in memory. Reads a file, so it should not be called on the main thread.
+	 * @param key The key of the thumbnail.
+	 * @return The thumbnail or null if it isn't cached.
+	 */
+	public Bitmap get(String key) {
+		Bitmap thumbnail = memory.get(key);
+
+		if (thumbnail != null) {
+			return thumbnail;
+		}
+
+		File file = getFile(key);
+
+		if (!file.isFile()) {
+			return null;
+		}
+
+		thumbnail = BitmapFactory.decodeFile(file.getPath());
+
+		if (thumbnail != null) {
+			memory.put(key, thumbnail);
+			file.setLastModified(System.currentTimeMillis());   // Mark the file as recently used.
+		}
+
+		return thumbnail;
+	}
+
+	/**
+	 * Scale an image down to a thumbnail and add it to both tiers. Writes a file,
+	 * so it should not be called on the main thread.
+	 * @param key The key of the thumbnail.
+	 * @param image The image. It may be larger than a thumbnail.
+	 * @return The thumbnail.
+	 */
+	public Bitmap put(String key, Bitmap image) {
+		Bitmap thumbnail = createThumbnail(image);
+
+		memory.put(key, thumbnail);
+
+		try {
+			writeFile(key, thumbnail);
+		} catch (IOException e) {
+			e.printStackTrace();   // The thumbnail is still in memory, so this only costs a decode next session.
+		}
+
+		return thumbnail;
+	}
+
+	/**
+	 * Scale an image so that neither its width nor its height exceed the thumbnail size.
+	 * @param image The image.
+	 * @return The scaled image, or the image itself if it is small enough.
+	 */
+	private Bitmap createThumbnail(Bitmap image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+
+		if (width <= thumbnailSize && height <= thumbnailSize) {
+			return image;
+		}
+
+		float scale = Math.min((float) thumbnailSize / width, (float) thumbnailSize / height);
+
+		return Bitmap.createScaledBitmap(image, Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)), true);
+	}
+
+	/**
+	 * Write a thumbnail to the disk tier, then evict the least recently used
+	 * files if the tier has grown past DISK_CACHE_SIZE.
+	 * @param key The key of the thumbnail.
+	 * @param thumbnail The thumbnail.
+	 * @throws IOException If the file can't be written.
+	 */
+	private synchronized void writeFile(String key, Bitmap thumbnail) throws IOException {
+		File file = getFile(key);
+		File temp = new File(directory, file.getName() + ".tmp");
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create " + directory.getPath());
+		}
+
+		if (diskSize < 0) {
+			diskSize = 0;
+
+			for (File f : listFiles()) {
+				diskSize += f.length();
+			}
+		}
+
+		diskSize -= file.length();
+
+		OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE);
+
+		try {
+			thumbnail.compress(Bitmap.CompressFormat.WEBP, QUALITY, outputStream);
+		} finally {
+			outputStream.close();
+		}
+
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Unable to replace " + file.getPath());
+		}
+
+		diskSize += file.length();
+
+		if (diskSize > DISK_CACHE_SIZE) {
+			trim();
+		}
+	}
+
+	/**
+	 * Delete the least recently used files of the disk tier until it is at most
+	 * three quarters of DISK_CACHE_SIZE, so it isn't trimmed on every write.
+	 */
+	private void trim() {
+		File[] files = listFiles();
+
+		Arrays.sort(files, new Comparator<File>() {
+			@Override public int compare(File a, File b) {
+				long difference = a.lastModified() - b.lastModified();
+				return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+			}
+		});
+
+		for (int i = 0; i < files.length && diskSize > DISK_CACHE_SIZE / 4 * 3; i++) {
+			long length = files[i].length();
+
+			if (files[i].delete()) {
+				diskSize -= length;
+			}
+		}
+	}
+
+	/**
+	 * List the files of the disk tier.
+	 * @return The files, or an empty array if there are none.
+	 */
+	private File[] listFiles() {
+		File[] files = directory.listFiles();
+
+		return files == null ? new File[0] : files;
+	}
+
+	/**
+	 * Get the file of a thumbnail in the disk tier. It is named by a hash of the
+	 * key, because keys are paths and URLs.
+	 * @param key The key of the thumbnail.
+	 * @return The file of the thumbnail.
+	 */
+	private File getFile(String key) {
+		return new File(directory, Hashes.sha1(key));
+	}
+}
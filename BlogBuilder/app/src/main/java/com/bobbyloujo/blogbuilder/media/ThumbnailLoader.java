@@ -0,0 +1,284 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.widget.ImageView;
+
+import com.bobbyloujo.blogbuilder.R;
+import com.bobbyloujo.blogbuilder.post.ImageElement;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the thumbnails of local and remote images into ImageViews without
+ * blocking the main thread. Images that aren't in the memory tier of the
+ * ThumbnailCache are loaded in the background while the ImageView shows a
+ * placeholder, and the thumbnail is delivered on the main thread.
+ *
+ * Loading has two stages. Remote images are downloaded by a RemoteFetcher,
+ * which downloads each URL once however many rows ask for it. Local images
+ * and downloaded bytes are then decoded on a small pool of decoding threads.
+ *
+ * The request for an ImageView is kept in its tag. Binding the ImageView to
+ * another image cancels the request, along with its download if no other row
+ * is waiting for it. A thumbnail is only delivered if the ImageView is still
+ * bound to the request that loaded it, so a recycled list row never shows the
+ * image of the post it was bound to before.
+ */
+public class ThumbnailLoader {
+	private static final int THREAD_COUNT = 2;         // The number of threads decoding images.
+	private static final int FETCH_THREAD_COUNT = 4;   // The number of remote images downloaded at the same time.
+
+	private static ThumbnailLoader instance;     // The singleton instance.
+
+	private final ThumbnailCache cache;          // The cache of decoded thumbnails.
+	private final RemoteFetcher fetcher;         // Downloads remote images.
+	private final ExecutorService executor;      // The threads decoding images.
+	private final Handler handler;               // Delivers thumbnails on the main thread.
+	private final ThreadLocal<Bitmap> scratch = new ThreadLocal<>();   // The last image each thread decoded, reused by its next decode.
+
+	/**
+	 * Create a new ThumbnailLoader.
+	 * @param cache The cache of decoded thumbnails.
+	 * @param fetcher Downloads remote images.
+	 */
+	private ThumbnailLoader(ThumbnailCache cache, RemoteFetcher fetcher) {
+		this.cache = cache;
+		this.fetcher = fetcher;
+		this.handler = new Handler(Looper.getMainLooper());
+		this.executor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+			@Override public Thread newThread(final Runnable runnable) {
+				return new Thread(new Runnable() {
+					@Override public void run() {
+						Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+						runnable.run();
+					}
+				}, "ThumbnailLoader");
+			}
+		});
+	}
+
+	/**
+	 * Get the ThumbnailLoader of the app, creating it the first time.
+	 * @param context A Context of the app.
+	 * @return The ThumbnailLoader.
+	 */
+	public static synchronized ThumbnailLoader getInstance(Context context) {
+		if (instance == null) {
+			instance = new ThumbnailLoader(ThumbnailCache.getInstance(context), new RemoteFetcher(FETCH_THREAD_COUNT));
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Show the thumbnail of an image in an ImageView. Must be called on the main
+	 * thread. A thumbnail in memory is shown right away. Otherwise the ImageView
+	 * shows a placeholder until the image is loaded. An image without a path or
+	 * URL shows the text icon.
+	 * @param imageView The ImageView.
+	 * @param location The location of the image, ImageElement.LOCAL or ImageElement.INTERNET.
+	 * @param src The path or URL of the image. May be null.
+	 */
+	public void load(ImageView imageView, int location, String src) {
+		if (src == null) {
+			cancel(imageView);
+			imageView.setImageResource(R.drawable.text);
+			return;
+		}
+
+		String key = ThumbnailCache.getKey(location, src);
+		Object tag = imageView.getTag();
+
+		if (tag instanceof Request && ((Request) tag).key.equals(key) && !((Request) tag).cancelled) {
+			return;   // The ImageView is already loading this image.
+		}
+
+		cancel(imageView);
+
+		Bitmap thumbnail = cache.getFromMemory(key);
+
+		if (thumbnail != null) {
+			imageView.setImageBitmap(thumbnail);
+			return;
+		}
+
+		Request request = new Request(imageView, key, location, src);
+
+		imageView.setImageResource(R.drawable.thumbnail_placeholder);
+		imageView.setTag(request);
+		request.future = executor.submit(request);
+	}
+
+	/**
+	 * Cancel the request of an ImageView, if it has one. Must be called on the
+	 * main thread, before an ImageView is bound to something else.
+	 * @param imageView The ImageView.
+	 */
+	public void cancel(ImageView imageView) {
+		Object tag = imageView.getTag();
+
+		if (tag instanceof Request) {
+			((Request) tag).cancel();
+			imageView.setTag(null);
+		}
+	}
+
+	/**
+	 * Decode an image and add its thumbnail to the cache. The image is decoded
+	 * at the thumbnail size, into the memory of the image this thread decoded
+	 * before if it fits. Called on a decoding thread.
+	 * @param key The key of the thumbnail.
+	 * @param path The path of a local image, used if data is null.
+	 * @param data The content of a remote image, or null to decode the local image.
+	 * @return The thumbnail or null if the image can't be decoded.
+	 */
+	private Bitmap decode(String key, String path, byte[] data) {
+		int size = cache.getThumbnailSize();
+		Bitmap image = data != null
+				? BitmapDecoder.decodeByteArray(data, size, size, scratch.get())
+				: BitmapDecoder.decodeFile(path, size, size, scratch.get());
+
+		if (image == null) {
+			return null;
+		}
+
+		Bitmap thumbnail = cache.put(key, image);
+
+		scratch.set(thumbnail != image ? image : null);   // An image small enough to be its own thumbnail is cached, so it can't be reused.
+
+		return thumbnail;
+	}
+
+	/**
+	 * The loading of one thumbnail into one ImageView. It first runs on a
+	 * decoding thread, where the thumbnail is read from the cache, a local image
+	 * is decoded, or a remote image is requested from the RemoteFetcher. A
+	 * downloaded image is then decoded on a decoding thread again.
+	 */
+	private class Request implements Runnable, RemoteFetcher.Callback {
+		private final ImageView imageView;   // The ImageView the thumbnail is for.
+		private final String key;            // The key of the thumbnail.
+		private final int location;          // The location of the image.
+		private final String src;            // The path or URL of the image.
+		private volatile boolean cancelled;  // Flag indicating that the ImageView was bound to something else.
+		private volatile Future<?> future;   // The Future of the current decode.
+		private volatile RemoteFetcher.Request fetch;   // The download of the image, or null if it isn't being downloaded.
+
+		Request(ImageView imageView, String key, int location, String src) {
+			this.imageView = imageView;
+			this.key = key;
+			this.location = location;
+			this.src = src;
+		}
+
+		/**
+		 * Cancel the request and its download.
+		 */
+		void cancel() {
+			cancelled = true;
+
+			Future<?> future = this.future;
+			RemoteFetcher.Request fetch = this.fetch;
+
+			if (future != null) {
+				future.cancel(false);
+			}
+
+			if (fetch != null) {
+				fetch.cancel();
+			}
+		}
+
+		@Override public void run() {
+			if (cancelled) {
+				return;
+			}
+
+			Bitmap thumbnail = cache.get(key);
+
+			if (thumbnail == null && !cancelled) {
+				if (location != ImageElement.LOCAL) {
+					fetch = fetcher.fetch(src, this);
+
+					if (cancelled) {
+						fetch.cancel();   // Cancelled while the download was requested.
+					}
+					return;
+				}
+
+				thumbnail = decode(key, src, null);
+			}
+
+			deliver(thumbnail);
+		}
+
+		@Override public void onFetched(String url, final byte[] data) {
+			fetch = null;
+
+			if (!cancelled) {
+				future = executor.submit(new Runnable() {
+					@Override public void run() {
+						if (!cancelled) {
+							deliver(decode(key, null, data));
+						}
+					}
+				});
+			}
+		}
+
+		@Override public void onFailed(String url, IOException e) {
+			fetch = null;
+			e.printStackTrace();
+			deliver(null);
+		}
+
+		/**
+		 * Show the thumbnail on the main thread if the ImageView is still bound to this request.
+		 * @param thumbnail The thumbnail, or null if the image couldn't be loaded.
+		 */
+		private void deliver(final Bitmap thumbnail) {
+			handler.post(new Runnable() {
+				@Override public void run() {
+					if (!cancelled && imageView.getTag() == Request.this) {
+						imageView.setTag(null);
+
+						if (thumbnail != null) {
+							imageView.setImageBitmap(thumbnail);
+						}
+					}
+				}
+			});
+		}
+	}
+}
@@ -23,6 +23,7 @@
  */
 package com.bobbyloujo.blogbuilder.post;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -30,8 +31,11 @@ import java.io.Serializable;
  * Created by Ben on 2/17/2016.
  */
 public class Element implements Serializable {
+	private static final long serialVersionUID = 343803786611886755L;
+
     private String html = "";                  // The HTML used to display the content of this element in a WebView
     private ElementList list;                  // ElementList that this Element belongs to.
+	private transient String renderedHtml;     // The HTML last rendered by renderHtml, or null if this Element changed since.
 
 	/**
 	 * Set HTML used to display the content of this element in a WebView.
@@ -39,6 +43,7 @@ public class Element implements Serializable {
 	 */
     protected void setHtml(String html) {
         this.html = html;
+        invalidateHtml();
     }
 
 	/**
@@ -49,6 +54,69 @@ public class Element implements Serializable {
         return html;
     }
 
+	/**
+	 * Write the HTML used to display the content of this element into a sink.
+	 * @param sink The sink to write the HTML into.
+	 * @throws IOException If the sink can't be written.
+	 */
+	public void render(HtmlSink sink) throws IOException {
+		sink.append(getHtml());
+	}
+
+	/**
+	 * Write the HTML of this Element into a sink without using the cached HTML.
+	 * Subclasses that generate their HTML override this and return getRenderedHtml
+	 * from getHtml, so the HTML is only generated again after the Element changes.
+	 * @param sink The sink to write the HTML into.
+	 * @throws IOException If the sink can't be written.
+	 */
+	protected void renderHtml(HtmlSink sink) throws IOException {
+		sink.append(html);
+	}
+
+	/**
+	 * Get the HTML written by renderHtml. It is cached until invalidateHtml is called.
+	 * @param elementCount The number of Elements that will be rendered, used to size the buffer.
+	 * @return The HTML of this Element.
+	 */
+	protected final String getRenderedHtml(int elementCount) {
+		if (renderedHtml == null) {
+			renderedHtml = HtmlSink.render(this, elementCount);
+		}
+
+		return renderedHtml;
+	}
+
+	/**
+	 * Determine if the HTML of this Element is cached.
+	 * @return True if getRenderedHtml will return without rendering, false otherwise.
+	 */
+	protected final boolean isHtmlRendered() {
+		return renderedHtml != null;
+	}
+
+	/**
+	 * Discard the cached HTML of this Element and of the lists containing it.
+	 * Must be called whenever a change affects the HTML of this Element.
+	 */
+	protected void invalidateHtml() {
+		renderedHtml = null;
+
+		if (list != null) {
+			list.invalidateHtml();
+		}
+	}
+
+	/**
+	 * Get the URL of a local media file. An absolute path is made a file URL. A
+	 * relative path is already a URL relative to the page, as in an exported site.
+	 * @param path The path of the file.
+	 * @return The URL of the file.
+	 */
+	protected static String getFileUrl(String path) {
+		return path.startsWith("/") ? "file:///" + path : path;
+	}
+
 	/**
 	 * Set the ElementList that this Element belongs to.
 	 * @param elementList The ElementList that this Element belongs to.
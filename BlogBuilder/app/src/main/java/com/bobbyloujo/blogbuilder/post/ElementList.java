@@ -23,6 +23,7 @@
  */
 package com.bobbyloujo.blogbuilder.post;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 
@@ -31,6 +32,8 @@ import java.util.Collections;
  * Created by Ben on 2/17/2016.
  */
 public class ElementList extends Element {
+	private static final long serialVersionUID = 960362561548005685L;
+
     private ArrayList<Element> elements; // The Elements contained in this list.
 	private Post post;                   // The Post that this list belongs to.
 
@@ -89,8 +92,26 @@ public class ElementList extends Element {
 		if (e instanceof ElementList) {
 			((ElementList) e).setPost(this.post);
 		}
+
+		invalidateHtml();
     }
 
+	/**
+	 * Replace the Element at the specified index.
+	 * @param index The index of the Element to replace.
+	 * @param e The new Element.
+	 */
+	public void setElement(int index, Element e) {
+		elements.set(index, e);
+		e.setElementList(this);
+
+		if (e instanceof ElementList) {
+			((ElementList) e).setPost(this.post);
+		}
+
+		invalidateHtml();
+	}
+
 	/**
 	 * Set the Post that this list belongs to.
 	 * @param post
@@ -112,7 +133,9 @@ public class ElementList extends Element {
 	 * @param e The Element to remove.
 	 */
     public void removeElement(Element e) {
-        elements.remove(e);
+        if (elements.remove(e)) {
+			invalidateHtml();
+		}
     }
 
 	/**
@@ -124,6 +147,7 @@ public class ElementList extends Element {
 
 		if (index > 0 && index < elements.size()) {
 			Collections.swap(elements, index, index - 1);
+			invalidateHtml();
 		}
 	}
 
@@ -136,19 +160,46 @@ public class ElementList extends Element {
 
 		if (index >= 0 && index < elements.size() - 1) {
 			Collections.swap(elements, index, index + 1);
+			invalidateHtml();
 		}
 	}
 
     @Override
     public String getHtml(){
-        String html = "";
+        return getRenderedHtml(elements.size());
+    }
 
-        for (Element e : elements) {
-            html = html.concat(e.getHtml());
-        }
+	/**
+	 * Write the HTML of every Element into a sink. The cached HTML is used if this
+	 * list hasn't changed since it was last rendered. Otherwise, the Elements are
+	 * rendered straight into the sink.
+	 * @param sink The sink to write the HTML into.
+	 * @throws IOException If the sink can't be written.
+	 */
+	@Override
+	public void render(HtmlSink sink) throws IOException {
+		if (isHtmlRendered()) {
+			sink.append(getHtml());
+		} else {
+			renderHtml(sink);
+		}
+	}
 
-        return html;
-    }
+	@Override
+	protected void renderHtml(HtmlSink sink) throws IOException {
+		for (Element e : elements) {
+			e.render(sink);
+		}
+	}
+
+	@Override
+	protected void invalidateHtml() {
+		super.invalidateHtml();
+
+		if (post != null) {
+			post.invalidateHtml();
+		}
+	}
 
 	@Override
 	public ElementList copy() {
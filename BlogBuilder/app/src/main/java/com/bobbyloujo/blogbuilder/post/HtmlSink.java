@@ -0,0 +1,146 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.post;
+
+import java.io.IOException;
+
+/**
+ * The destination that Elements render their HTML into. A whole Post is
+ * rendered into one sink, so its HTML is built in a single buffer or streamed
+ * straight to a Writer instead of being joined from a String per Element.
+ */
+public class HtmlSink {
+	private static final int ELEMENT_CAPACITY = 256;   // The estimated length of the HTML of one Element.
+
+	private final Appendable out;   // The destination of the HTML.
+
+	/**
+	 * Create a new HtmlSink that builds the HTML in memory. The HTML is returned by toString.
+	 * @param elementCount The number of Elements that will be rendered, used to size the buffer.
+	 */
+	public HtmlSink(int elementCount) {
+		this(new StringBuilder(Math.max(1, elementCount) * ELEMENT_CAPACITY));
+	}
+
+	/**
+	 * Create a new HtmlSink that writes to the specified destination.
+	 * @param out The destination of the HTML, such as a StringBuilder or a Writer.
+	 */
+	public HtmlSink(Appendable out) {
+		this.out = out;
+	}
+
+	/**
+	 * Append text to the HTML.
+	 * @param s The text to append. Null is appended as "null", like String concatenation.
+	 * @return This sink.
+	 * @throws IOException If the destination can't be written.
+	 */
+	public HtmlSink append(CharSequence s) throws IOException {
+		out.append(s == null ? "null" : s);
+		return this;
+	}
+
+	/**
+	 * Append text to the HTML with the characters that have a meaning in HTML
+	 * escaped, so it can be used as element content or an attribute value.
+	 * @param s The text to append. Null appends nothing.
+	 * @return This sink.
+	 * @throws IOException If the destination can't be written.
+	 */
+	public HtmlSink appendEscaped(CharSequence s) throws IOException {
+		if (s == null) {
+			return this;
+		}
+
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+
+			switch (c) {
+				case '&':
+					out.append("&amp;");
+					break;
+				case '<':
+					out.append("&lt;");
+					break;
+				case '>':
+					out.append("&gt;");
+					break;
+				case '"':
+					out.append("&quot;");
+					break;
+				default:
+					out.append(c);
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Append a character to the HTML.
+	 * @param c The character to append.
+	 * @return This sink.
+	 * @throws IOException If the destination can't be written.
+	 */
+	public HtmlSink append(char c) throws IOException {
+		out.append(c);
+		return this;
+	}
+
+	/**
+	 * Get the destination of the HTML.
+	 * @return The destination of the HTML.
+	 */
+	public Appendable getAppendable() {
+		return out;
+	}
+
+	/**
+	 * Get the HTML written so far when the destination is in memory.
+	 * @return The HTML written so far.
+	 */
+	@Override
+	public String toString() {
+		return out.toString();
+	}
+
+	/**
+	 * Render an Element into a String without using its cached HTML.
+	 * @param e The Element to render.
+	 * @param elementCount The number of Elements that will be rendered, used to size the buffer.
+	 * @return The HTML of the Element.
+	 */
+	static String render(Element e, int elementCount) {
+		HtmlSink sink = new HtmlSink(elementCount);
+
+		try {
+			e.renderHtml(sink);
+		} catch (IOException ex) {
+			ex.printStackTrace();   // Appending to a StringBuilder never fails.
+		}
+
+		return sink.toString();
+	}
+}
@@ -0,0 +1,366 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.post;
+
+/**
+ * Extracts the plain text of HTML without Android's Html parser. It handles the
+ * HTML written by android.text.Html.toHtml: paragraphs, line breaks, inline
+ * styling tags, and character entities. The text matches what Html.fromHtml
+ * produces for that HTML, without the styling.
+ *
+ * The HTML is read in a single pass and the text is appended to a caller's
+ * StringBuilder, so extracting the text of many Elements can reuse one buffer.
+ * Extraction stops as soon as the requested number of characters is produced.
+ */
+public final class HtmlText {
+	private static final int MAX_ENTITY_LENGTH = 10;   // The longest entity, including '&' and ';', that is decoded.
+	private static final char NBSP = '\u00A0';    // The character &nbsp; is decoded to.
+
+	private HtmlText() {
+	}
+
+	/**
+	 * Get the plain text of HTML without trailing whitespace.
+	 * @param html The HTML.
+	 * @return The text of the HTML.
+	 */
+	public static String toPlainText(CharSequence html) {
+		return toPlainText(html, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Get at most the specified number of characters of the plain text of HTML,
+	 * without trailing whitespace.
+	 * @param html The HTML.
+	 * @param maxLength The maximum number of characters to extract.
+	 * @return The start of the text of the HTML.
+	 */
+	public static String toPlainText(CharSequence html, int maxLength) {
+		StringBuilder text = new StringBuilder(Math.min(html.length(), maxLength));
+		int length = extract(html, text, maxLength);
+
+		while (length > 0 && Character.isWhitespace(text.charAt(length - 1))) {
+			length--;
+		}
+
+		text.setLength(length);
+
+		return text.toString();
+	}
+
+	/**
+	 * Append the plain text of HTML to a StringBuilder. The text ends where the
+	 * HTML ends or when maxLength characters have been appended, whichever is first.
+	 * @param html The HTML.
+	 * @param out The StringBuilder to append the text to.
+	 * @param maxLength The maximum number of characters to append.
+	 * @return The number of characters appended.
+	 */
+	public static int extract(CharSequence html, StringBuilder out, int maxLength) {
+		int start = out.length();
+		int limit = (int) Math.min((long) start + maxLength, Integer.MAX_VALUE);
+		int length = html.length();
+		int i = 0;
+
+		while (i < length && out.length() < limit) {
+			char c = html.charAt(i);
+
+			if (c == '<') {
+				i = readTag(html, i, out, start);
+			} else if (c == '&') {
+				i = readEntity(html, i, out);
+			} else {
+				if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+					appendSpace(out, start);
+				} else {
+					out.append(c);
+				}
+
+				i++;
+			}
+		}
+
+		if (out.length() > limit) {
+			out.setLength(limit);   // A paragraph break can go past the limit.
+		}
+
+		return out.length() - start;
+	}
+
+	/**
+	 * Read a tag or comment and append the line breaks it produces.
+	 * @param html The HTML.
+	 * @param i The index of the '<' that starts the tag.
+	 * @param out The StringBuilder to append to.
+	 * @param start The length out had before extraction started.
+	 * @return The index after the end of the tag.
+	 */
+	private static int readTag(CharSequence html, int i, StringBuilder out, int start) {
+		int length = html.length();
+		int nameStart = i + 1;
+
+		if (regionMatches(html, nameStart, "!--")) {
+			int end = indexOf(html, "-->", nameStart + 3);
+			return end < 0 ? length : end + 3;
+		}
+
+		if (nameStart < length && html.charAt(nameStart) == '/') {
+			nameStart++;
+		}
+
+		int nameEnd = nameStart;
+
+		while (nameEnd < length && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+			nameEnd++;
+		}
+
+		int end = nameEnd;
+		char quote = 0;
+
+		while (end < length) {
+			char c = html.charAt(end);
+
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == '>') {
+				break;
+			}
+
+			end++;
+		}
+
+		if (nameEquals(html, nameStart, nameEnd, "br")) {
+			out.append('\n');
+		} else if (isBlock(html, nameStart, nameEnd)) {
+			appendParagraphBreak(out, start);
+		}
+
+		return end + 1;
+	}
+
+	/**
+	 * Read a character entity and append the character it stands for. An
+	 * unrecognized entity is appended as text.
+	 * @param html The HTML.
+	 * @param i The index of the '&' that starts the entity.
+	 * @param out The StringBuilder to append to.
+	 * @return The index after the end of the entity.
+	 */
+	private static int readEntity(CharSequence html, int i, StringBuilder out) {
+		int end = i + 1;
+		int max = Math.min(html.length(), i + MAX_ENTITY_LENGTH);
+
+		while (end < max && html.charAt(end) != ';') {
+			end++;
+		}
+
+		if (end >= max) {
+			out.append('&');
+			return i + 1;
+		}
+
+		int nameStart = i + 1;
+
+		if (html.charAt(nameStart) == '#') {
+			int codePoint = parseCodePoint(html, nameStart + 1, end);
+
+			if (codePoint >= 0) {
+				out.appendCodePoint(codePoint);
+				return end + 1;
+			}
+		} else if (nameEquals(html, nameStart, end, "amp")) {
+			out.append('&');
+			return end + 1;
+		} else if (nameEquals(html, nameStart, end, "lt")) {
+			out.append('<');
+			return end + 1;
+		} else if (nameEquals(html, nameStart, end, "gt")) {
+			out.append('>');
+			return end + 1;
+		} else if (nameEquals(html, nameStart, end, "quot")) {
+			out.append('"');
+			return end + 1;
+		} else if (nameEquals(html, nameStart, end, "apos")) {
+			out.append('\'');
+			return end + 1;
+		} else if (nameEquals(html, nameStart, end, "nbsp")) {
+			out.append(NBSP);
+			return end + 1;
+		}
+
+		out.append('&');
+		return i + 1;
+	}
+
+	/**
+	 * Parse the number of a numeric character reference such as 233 or x00E9.
+	 * @param html The HTML.
+	 * @param start The index after the '#'.
+	 * @param end The index of the ';'.
+	 * @return The code point or -1 if the number isn't a valid code point.
+	 */
+	private static int parseCodePoint(CharSequence html, int start, int end) {
+		int radix = 10;
+		int codePoint = 0;
+
+		if (start < end && (html.charAt(start) == 'x' || html.charAt(start) == 'X')) {
+			radix = 16;
+			start++;
+		}
+
+		if (start == end) {
+			return -1;
+		}
+
+		for (int i = start; i < end; i++) {
+			int digit = Character.digit(html.charAt(i), radix);
+
+			if (digit < 0) {
+				return -1;
+			}
+
+			codePoint = codePoint * radix + digit;
+
+			if (codePoint > Character.MAX_CODE_POINT) {
+				return -1;
+			}
+		}
+
+		return codePoint;
+	}
+
+	/**
+	 * Append a space for whitespace in the HTML. Like Html.fromHtml, whitespace is
+	 * collapsed, and dropped at the start of the text and after a line break.
+	 * @param out The StringBuilder to append to.
+	 * @param start The length out had before extraction started.
+	 */
+	private static void appendSpace(StringBuilder out, int start) {
+		char previous = out.length() == start ? '\n' : out.charAt(out.length() - 1);
+
+		if (previous != ' ' && previous != '\n') {
+			out.append(' ');
+		}
+	}
+
+	/**
+	 * Make sure the text ends with a blank line, like Html.fromHtml does at the
+	 * start and end of a paragraph. Nothing is appended at the start of the text.
+	 * @param out The StringBuilder to append to.
+	 * @param start The length out had before extraction started.
+	 */
+	private static void appendParagraphBreak(StringBuilder out, int start) {
+		int length = out.length() - start;
+
+		if (length >= 1 && out.charAt(out.length() - 1) == '\n') {
+			if (length < 2 || out.charAt(out.length() - 2) != '\n') {
+				out.append('\n');
+			}
+		} else if (length != 0) {
+			out.append("\n\n");
+		}
+	}
+
+	/**
+	 * Determine if a tag name is one that Html.fromHtml separates from the
+	 * surrounding text with blank lines.
+	 * @param html The HTML.
+	 * @param start The index of the start of the name.
+	 * @param end The index after the end of the name.
+	 * @return True if the tag is a block tag, false otherwise.
+	 */
+	private static boolean isBlock(CharSequence html, int start, int end) {
+		if (nameEquals(html, start, end, "p") || nameEquals(html, start, end, "div")
+				|| nameEquals(html, start, end, "blockquote")) {
+			return true;
+		}
+
+		return end - start == 2 && Character.toLowerCase(html.charAt(start)) == 'h'
+				&& html.charAt(start + 1) >= '1' && html.charAt(start + 1) <= '6';
+	}
+
+	/**
+	 * Determine if a region of the HTML is the specified name, ignoring case.
+	 * @param html The HTML.
+	 * @param start The index of the start of the region.
+	 * @param end The index after the end of the region.
+	 * @param name The lower case name.
+	 * @return True if the region is the name, false otherwise.
+	 */
+	private static boolean nameEquals(CharSequence html, int start, int end, String name) {
+		if (end - start != name.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < name.length(); i++) {
+			if (Character.toLowerCase(html.charAt(start + i)) != name.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Determine if the HTML contains a string at the specified index.
+	 * @param html The HTML.
+	 * @param start The index to check.
+	 * @param s The string to look for.
+	 * @return True if the HTML contains s at start, false otherwise.
+	 */
+	private static boolean regionMatches(CharSequence html, int start, String s) {
+		if (start + s.length() > html.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < s.length(); i++) {
+			if (html.charAt(start + i) != s.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Find a string in the HTML.
+	 * @param html The HTML.
+	 * @param s The string to find.
+	 * @param from The index to start searching at.
+	 * @return The index of s or -1 if it isn't found.
+	 */
+	private static int indexOf(CharSequence html, String s, int from) {
+		for (int i = from; i + s.length() <= html.length(); i++) {
+			if (regionMatches(html, i, s)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+}
@@ -23,11 +23,14 @@
  */
 package com.bobbyloujo.blogbuilder.post;
 
+import java.io.IOException;
+
 /**
  * A blog post element that displays an image.
  * Created by Ben on 2/17/2016.
  */
 public class ImageElement extends Element {
+	private static final long serialVersionUID = -2054040707153503541L;
 	public static final int LOCAL = 0;       // Used to specify that the location of the image is on local storage.
 	public static final int INTERNET = 1;    // Used to specify that the location of the image is on the internet.
 
@@ -35,6 +38,12 @@ public class ImageElement extends Element {
     private String src;            // The real path or URL to the image file.
     private String height;         // The height of the image as HTML.
     private String width = "75%";  // The width of the image as HTML.
+	private String webSrc;         // The path of the web sized rendition of a local image, or null if it wasn't imported.
+	private String thumbnailSrc;   // The path of the thumbnail rendition of a local image, or null if it wasn't imported.
+	private int pixelWidth;        // The width in pixels of the web sized rendition, or 0 if it wasn't imported.
+	private int pixelHeight;       // The height in pixels of the web sized rendition, or 0 if it wasn't imported.
+	private String[] sizedSrcs;    // The paths of the narrower renditions of a local image, or null if it wasn't imported.
+	private int[] sizedWidths;     // The widths in pixels of the narrower renditions, in the same order as their paths.
 
 	/**
 	 * Set the location of the image file.
@@ -46,24 +55,54 @@ public class ImageElement extends Element {
 		}
 
 		this.location = location;
+		invalidateHtml();
 	}
 
 	/**
-	 * Set the URL or real filepath of the image file.
+	 * Set the URL or real filepath of the image file. Renditions of a different
+	 * file are dropped.
 	 * @param src The URL or real filepath of the image file.
 	 */
     public void setSrcURL(String src) {
 		if (src != null) {
-			this.src = src.replace('\\', '/');
+			src = src.replace('\\', '/');
+
+			if (!src.equals(this.src)) {
+				webSrc = null;
+				thumbnailSrc = null;
+				pixelWidth = 0;
+				pixelHeight = 0;
+				sizedSrcs = null;
+				sizedWidths = null;
+			}
+
+			this.src = src;
+			invalidateHtml();
 		}
     }
 
+	/**
+	 * Set the renditions of a local image that were written when it was imported.
+	 * @param webSrc The path of the web sized rendition.
+	 * @param thumbnailSrc The path of the thumbnail rendition.
+	 * @param pixelWidth The width in pixels of the web sized rendition.
+	 * @param pixelHeight The height in pixels of the web sized rendition.
+	 */
+	public void setRenditions(String webSrc, String thumbnailSrc, int pixelWidth, int pixelHeight) {
+		this.webSrc = webSrc;
+		this.thumbnailSrc = thumbnailSrc;
+		this.pixelWidth = pixelWidth;
+		this.pixelHeight = pixelHeight;
+		invalidateHtml();
+	}
+
 	/**
 	 * Set the height of the image.
 	 * @param height The height of the image as it would be written in HTML (Ex. 75%, 100px, etc.).
 	 */
     public void setHeight(String height) {
         this.height = height;
+        invalidateHtml();
     }
 
 	/**
@@ -72,6 +111,7 @@ public class ImageElement extends Element {
 	 */
     public void setWidth(String width) {
         this.width = width;
+        invalidateHtml();
     }
 
 	/**
@@ -90,6 +130,76 @@ public class ImageElement extends Element {
 		return src;
 	}
 
+	/**
+	 * Set the narrower renditions of a local image that were written when it was
+	 * imported. They are offered to the browser alongside the web sized rendition,
+	 * so a small screen can download a smaller file.
+	 * @param srcs The paths of the renditions.
+	 * @param widths The widths in pixels of the renditions, in the same order as their paths.
+	 */
+	public void setSizedRenditions(String[] srcs, int[] widths) {
+		this.sizedSrcs = srcs;
+		this.sizedWidths = widths;
+		invalidateHtml();
+	}
+
+	/**
+	 * Get the paths of the narrower renditions of a local image.
+	 * @return The paths of the renditions or null if the image wasn't imported.
+	 */
+	public String[] getSizedSrcs() {
+		return sizedSrcs;
+	}
+
+	/**
+	 * Get the widths of the narrower renditions of a local image.
+	 * @return The widths in pixels of the renditions or null if the image wasn't imported.
+	 */
+	public int[] getSizedWidths() {
+		return sizedWidths;
+	}
+
+	/**
+	 * Get the path of the web sized rendition of a local image.
+	 * @return The path of the web sized rendition or null if the image wasn't imported.
+	 */
+	public String getWebSrc() {
+		return webSrc;
+	}
+
+	/**
+	 * Get the path of the thumbnail rendition of a local image.
+	 * @return The path of the thumbnail rendition or null if the image wasn't imported.
+	 */
+	public String getThumbnailSrc() {
+		return thumbnailSrc;
+	}
+
+	/**
+	 * Get the width of the web sized rendition.
+	 * @return The width in pixels of the web sized rendition or 0 if the image wasn't imported.
+	 */
+	public int getPixelWidth() {
+		return pixelWidth;
+	}
+
+	/**
+	 * Get the height of the web sized rendition.
+	 * @return The height in pixels of the web sized rendition or 0 if the image wasn't imported.
+	 */
+	public int getPixelHeight() {
+		return pixelHeight;
+	}
+
+	/**
+	 * Get the path or URL of the file that is shown for this image: the web
+	 * sized rendition of an imported local image, or the source otherwise.
+	 * @return The path or URL of the file that is shown.
+	 */
+	public String getDisplaySrc() {
+		return location == LOCAL && webSrc != null ? webSrc : src;
+	}
+
 	/**
 	 * Get the height of the image as HTML.
 	 * @return The height of the image as HTML.
@@ -108,18 +218,50 @@ public class ImageElement extends Element {
 
     @Override
     public String getHtml() {
-		String fullSrc = "";
-		String html;
+		return getRenderedHtml(1);
+    }
+
+	@Override
+	protected void renderHtml(HtmlSink sink) throws IOException {
+		sink.append("<center><img src=\"");
 
 		if (location == LOCAL) {
-			fullSrc = "file:///" + src;
+			sink.append(getFileUrl(getDisplaySrc()));
 		} else if (location == INTERNET) {
-			fullSrc = src;
+			sink.append(src);
 		}
 
-        html = "<center><img src=\"" + fullSrc + "\" height=\"" + height + "\" width=\"" + width + "\"" + " /></center>";
-        return html;
-    }
+		if (location == LOCAL && webSrc != null && sizedSrcs != null && sizedSrcs.length > 0) {
+			sink.append("\" srcset=\"");
+
+			for (int i = 0; i < sizedSrcs.length; i++) {
+				sink.append(getFileUrl(sizedSrcs[i])).append(" ").append(Integer.toString(sizedWidths[i])).append("w, ");
+			}
+
+			sink.append(getFileUrl(webSrc)).append(" ").append(Integer.toString(pixelWidth)).append("w");
+			sink.append("\" sizes=\"").append(getSizes());
+		}
+
+		sink.append("\" height=\"").append(height).append("\" width=\"").append(width).append("\" /></center>");
+	}
+
+	/**
+	 * Get the width the image is shown at as a CSS length, which tells the browser
+	 * which rendition in the srcset to download. A percentage width is taken as a
+	 * percentage of the viewport, because posts fill the width of the page.
+	 * @return The width the image is shown at.
+	 */
+	private String getSizes() {
+		String w = width == null ? "" : width.trim();
+
+		if (w.matches("\\d+(\\.\\d+)?%")) {
+			return w.substring(0, w.length() - 1) + "vw";
+		} else if (w.matches("\\d+(px)?")) {
+			return w.endsWith("px") ? w : w + "px";
+		}
+
+		return "100vw";
+	}
 
 	@Override
 	public ImageElement copy() {
@@ -129,6 +271,8 @@ public class ImageElement extends Element {
 		copy.setHeight(height);
 		copy.setWidth(width);
 		copy.setSrcURL(src);
+		copy.setRenditions(webSrc, thumbnailSrc, pixelWidth, pixelHeight);
+		copy.setSizedRenditions(sizedSrcs, sizedWidths);
 
 		return copy;
 	}
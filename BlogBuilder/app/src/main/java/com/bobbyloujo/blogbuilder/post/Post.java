@@ -23,33 +23,22 @@
  */
 package com.bobbyloujo.blogbuilder.post;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.os.AsyncTask;
-import android.os.Build;
-import android.util.Log;
-import android.widget.ImageView;
-
-import com.bobbyloujo.blogbuilder.R;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.IOException;
 import java.io.Serializable;
-import java.net.URL;
 
 /**
  * A blog post made of Elements.
  * Created by Ben on 2/17/2016.
  */
 public class Post implements Serializable {
+	private static final long serialVersionUID = 5421481002963998282L;
 	public static final String NEW_FILE = "new file";   // The temporary filename of a new file.
 	private static final int SUMMARY_LENGTH = 50;       // The number of characters to include in the post summary.
 
 	private String fileName = NEW_FILE;  // The filename of this Post on the filesystem.
     private String title;                // The title of this post.
     private ElementList elementList;     // The list of Elements that this post is composed of.
+	private transient String html;       // The HTML of this post, or null if the post changed since it was rendered.
 
 	/**
 	 * Create a new empty Post.
@@ -88,7 +77,7 @@ public class Post implements Serializable {
         for (int i = 0; i < elementList.getSize() && !foundText; i++) {
             if (elementList.getElement(i) instanceof TextElement) {
 				TextElement p = (TextElement) elementList.getElement(i);
-				summary = p.getText().toString();
+				summary = p.getPlainText();
 
 				if (summary.length() > SUMMARY_LENGTH) {
 					summary = summary.substring(0, SUMMARY_LENGTH);
@@ -103,69 +92,34 @@ public class Post implements Serializable {
     }
 
 	/**
-	 * Populates the given ImageView with the image from the first ImageElement found. If there is
-	 * no ImageElement, the ImageView is populated with a text icon instead.
-	 * @param imageView The ImageView to populate with an image.
+	 * Get the first ImageElement in this Post.
+	 * @return The first ImageElement in this Post or null if there is none.
 	 */
-	public void populateWithFirstImage(final ImageView imageView) {
-		ImageElement imageElement = null;
-		boolean foundImage = false;
-
-		for (int i = 0; i < elementList.getSize() && !foundImage; i++) {
+	public ImageElement getFirstImage() {
+		for (int i = 0; i < elementList.getSize(); i++) {
 			if (elementList.getElement(i) instanceof ImageElement) {
-				imageElement = (ImageElement) elementList.getElement(i);
-				foundImage = true;
+				return (ImageElement) elementList.getElement(i);
 			}
 		}
 
-		if (imageElement != null) {
-			if (imageElement.getLocation() == ImageElement.LOCAL) {
-				Bitmap bmp = null;
-				File local = new File(imageElement.getSrc());
-
-				try {
-					FileInputStream fis = new FileInputStream(local);
-					BitmapFactory.Options ops = new BitmapFactory.Options();
-					ops.inSampleSize = 10;
-					bmp = BitmapFactory.decodeStream(fis, null, ops);
-					imageView.setImageBitmap(bmp);
-				} catch (FileNotFoundException e) {
-					e.printStackTrace();
-				}
-			} else if (imageElement.getLocation() == ImageElement.INTERNET) {
-				new AsyncTask<String, Void, Bitmap>() {
-					@Override protected Bitmap doInBackground(String... urls) {
-						String url = urls[0];
-						Bitmap bmp = null;
-
-						try {
-							InputStream in = new URL(url).openStream();
-							BitmapFactory.Options ops = new BitmapFactory.Options();
-							ops.inSampleSize = 10;
-							bmp = BitmapFactory.decodeStream(in, null, ops);
-							in.close();
-						} catch (Exception e) {
-							Log.e("Error", e.getMessage());
-							e.printStackTrace();
-						}
-
-						return bmp;
-					}
-
-					@Override protected void onPostExecute(Bitmap bmp) {
-						imageView.setImageBitmap(bmp);
-					}
-				}.execute(imageElement.getSrc());
-			}
-		}
+		return null;
+	}
 
-		if (!foundImage) {
-			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-				imageView.setImageDrawable(imageView.getContext().getDrawable(R.drawable.text));
-			} else {
-				imageView.setImageDrawable(imageView.getContext().getResources().getDrawable(R.drawable.text));
+	/**
+	 * Get the first local VideoElement that has a poster frame.
+	 * @return The first VideoElement with a poster or null if there is none.
+	 */
+	public VideoElement getFirstPosterVideo() {
+		for (int i = 0; i < elementList.getSize(); i++) {
+			Element e = elementList.getElement(i);
+
+			if (e instanceof VideoElement && ((VideoElement) e).getLocation() == VideoElement.LOCAL
+					&& ((VideoElement) e).getPosterSrc() != null) {
+				return (VideoElement) e;
 			}
 		}
+
+		return null;
 	}
 
 	/**
@@ -173,13 +127,37 @@ public class Post implements Serializable {
 	 * @return A String of HTML to display in a WebView.
 	 */
     public String getHtml() {
-        String html = "<html>";
-        html = html.concat(elementList.getHtml());
-        html = html.concat("</html>");
+        if (html == null) {
+            HtmlSink sink = new HtmlSink(elementList.getSize());
+
+            try {
+                render(sink);
+            } catch (IOException e) {
+                e.printStackTrace();   // Appending to a StringBuilder never fails.
+            }
+
+            html = sink.toString();
+        }
 
         return html;
     }
 
+	/**
+	 * Write the HTML code that will display this blog Post into a sink.
+	 * @param sink The sink to write the HTML into.
+	 * @throws IOException If the sink can't be written.
+	 */
+	public void render(HtmlSink sink) throws IOException {
+		if (html != null) {
+			sink.append(html);
+			return;
+		}
+
+		sink.append("<html>");
+		elementList.render(sink);
+		sink.append("</html>");
+	}
+
 	/**
 	 * Change the filename of this Post on the filesystem.
 	 * @param fileName The new filename for this Post
@@ -203,6 +181,14 @@ public class Post implements Serializable {
 	public void setElementList(ElementList elementList) {
 		this.elementList = elementList;
 		this.elementList.setPost(this);
+		invalidateHtml();
+	}
+
+	/**
+	 * Discard the cached HTML of this Post. Called when its ElementList changes.
+	 */
+	void invalidateHtml() {
+		html = null;
 	}
 
 	/**
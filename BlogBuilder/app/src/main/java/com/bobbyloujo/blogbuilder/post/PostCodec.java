@@ -0,0 +1,360 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.post;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Reads and writes Posts in a compact, versioned binary format. Every file starts
+ * with a magic number and a format version. Each Element is written as a tag byte
+ * identifying its type followed by its fields. Strings are written as a length
+ * followed by their UTF-8 bytes.
+ *
+ * Posts saved before this format existed were written with Java serialization
+ * and are migrated when they are first loaded. Post and the Element classes
+ * pin the serialVersionUID the first release computed for them, so that
+ * adding fields or methods to the model never makes those Posts unreadable.
+ */
+public final class PostCodec {
+	private static final int MAGIC = 0x42425054;                     // "BBPT". Marks a file written by this codec.
+	private static final int VERSION = 5;                            // The format version written by this codec. Version 2 added the plain text of TextElements, version 3 the renditions of ImageElements, version 4 their sized renditions, version 5 the posters of VideoElements.
+	private static final Charset UTF_8 = Charset.forName("UTF-8");   // The charset used for all strings.
+
+	private static final byte TAG_ELEMENT = 0;        // Tag for a plain Element.
+	private static final byte TAG_TEXT = 1;           // Tag for a TextElement.
+	private static final byte TAG_IMAGE = 2;          // Tag for an ImageElement.
+	private static final byte TAG_VIDEO = 3;          // Tag for a VideoElement.
+	private static final byte TAG_LIST = 4;           // Tag for a nested ElementList.
+
+	private PostCodec() {
+	}
+
+	/**
+	 * Determine if the stream starts with a Post written by this codec. The stream
+	 * is left positioned at the start of the data.
+	 * @param in The stream to check.
+	 * @return True if the stream holds an encoded Post, false otherwise.
+	 * @throws IOException If the stream can't be read.
+	 */
+	public static boolean isEncoded(BufferedInputStream in) throws IOException {
+		int magic = 0;
+
+		in.mark(4);
+
+		for (int i = 0; i < 4; i++) {
+			int b = in.read();
+
+			if (b < 0) {
+				in.reset();
+				return false;
+			}
+
+			magic = (magic << 8) | b;
+		}
+
+		in.reset();
+
+		return magic == MAGIC;
+	}
+
+	/**
+	 * Get the format version of the Post at the start of the stream. The stream
+	 * is left positioned at the start of the data.
+	 * @param in The stream to check.
+	 * @return The format version or -1 if the stream doesn't start with an encoded Post.
+	 * @throws IOException If the stream can't be read.
+	 */
+	public static int peekVersion(BufferedInputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		int version = -1;
+
+		in.mark(5);
+
+		try {
+			if (data.readInt() == MAGIC) {
+				version = data.readUnsignedByte();
+			}
+		} catch (EOFException e) {
+			// Too short to be an encoded Post.
+		}
+
+		in.reset();
+
+		return version;
+	}
+
+	/**
+	 * Write a Post to the stream. The stream is flushed but not closed.
+	 * @param post The Post to write.
+	 * @param out The stream to write to.
+	 * @throws IOException If the stream can't be written.
+	 */
+	public static void writePost(Post post, OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+
+		data.writeInt(MAGIC);
+		data.writeByte(VERSION);
+		writeString(data, post.getFileName());
+		writeString(data, post.getTitle());
+		writeElementList(data, post.getElementList());
+		data.flush();
+	}
+
+	/**
+	 * Read a Post from the stream.
+	 * @param in The stream to read from.
+	 * @return The Post read from the stream.
+	 * @throws IOException If the stream can't be read or doesn't hold a Post written by this codec.
+	 */
+	public static Post readPost(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		Post post = new Post();
+
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Not an encoded post.");
+		}
+
+		int version = data.readUnsignedByte();
+
+		if (version > VERSION) {
+			throw new IOException("Unsupported post format version " + version + ".");
+		}
+
+		post.setFileName(readString(data));
+		post.setTitle(readString(data));
+		post.setElementList(readElementList(data, version));
+
+		return post;
+	}
+
+	/**
+	 * Write an Element and its type tag to the stream.
+	 * @param data The stream to write to.
+	 * @param e The Element to write.
+	 * @throws IOException If the stream can't be written.
+	 */
+	public static void writeElement(DataOutputStream data, Element e) throws IOException {
+		if (e instanceof TextElement) {
+			data.writeByte(TAG_TEXT);
+			writeString(data, e.getHtml());
+			writeString(data, ((TextElement) e).getPlainText());
+		} else if (e instanceof ImageElement) {
+			ImageElement image = (ImageElement) e;
+
+			data.writeByte(TAG_IMAGE);
+			data.writeByte(image.getLocation());
+			writeString(data, image.getSrc());
+			writeString(data, image.getHeight());
+			writeString(data, image.getWidth());
+			writeString(data, image.getWebSrc());
+			writeString(data, image.getThumbnailSrc());
+			data.writeInt(image.getPixelWidth());
+			data.writeInt(image.getPixelHeight());
+
+			String[] sizedSrcs = image.getSizedSrcs();
+			int[] sizedWidths = image.getSizedWidths();
+
+			data.writeInt(sizedSrcs == null ? -1 : sizedSrcs.length);
+
+			for (int i = 0; sizedSrcs != null && i < sizedSrcs.length; i++) {
+				writeString(data, sizedSrcs[i]);
+				data.writeInt(sizedWidths[i]);
+			}
+		} else if (e instanceof VideoElement) {
+			VideoElement video = (VideoElement) e;
+
+			data.writeByte(TAG_VIDEO);
+			data.writeByte(video.getLocation());
+			writeString(data, video.getSrcURL());
+			writeString(data, video.getHeight());
+			writeString(data, video.getWidth());
+			writeString(data, video.getPosterSrc());
+		} else if (e instanceof ElementList) {
+			data.writeByte(TAG_LIST);
+			writeElementList(data, (ElementList) e);
+		} else {
+			data.writeByte(TAG_ELEMENT);
+			writeString(data, e.getHtml());
+		}
+	}
+
+	/**
+	 * Read an Element written by writeElement of the current format version.
+	 * @param data The stream to read from.
+	 * @return The Element read from the stream.
+	 * @throws IOException If the stream can't be read or holds an unknown type tag.
+	 */
+	public static Element readElement(DataInputStream data) throws IOException {
+		return readElement(data, VERSION);
+	}
+
+	/**
+	 * Read an Element written by writeElement.
+	 * @param data The stream to read from.
+	 * @param version The format version the Element was written with.
+	 * @return The Element read from the stream.
+	 * @throws IOException If the stream can't be read or holds an unknown type tag.
+	 */
+	public static Element readElement(DataInputStream data, int version) throws IOException {
+		byte tag = data.readByte();
+
+		switch (tag) {
+			case TAG_TEXT: {
+				TextElement text = new TextElement();
+				String html = readString(data);
+
+				if (version >= 2) {
+					text.setText(html, readString(data));
+				} else {
+					text.setText(html);
+				}
+
+				return text;
+			}
+			case TAG_IMAGE: {
+				ImageElement image = new ImageElement();
+				image.setLocation(data.readByte());
+				image.setSrcURL(readString(data));
+				image.setHeight(readString(data));
+				image.setWidth(readString(data));
+
+				if (version >= 3) {
+					image.setRenditions(readString(data), readString(data), data.readInt(), data.readInt());
+				}
+
+				if (version >= 4) {
+					int count = data.readInt();
+
+					if (count >= 0) {
+						String[] sizedSrcs = new String[count];
+						int[] sizedWidths = new int[count];
+
+						for (int i = 0; i < count; i++) {
+							sizedSrcs[i] = readString(data);
+							sizedWidths[i] = data.readInt();
+						}
+
+						image.setSizedRenditions(sizedSrcs, sizedWidths);
+					}
+				}
+				return image;
+			}
+			case TAG_VIDEO: {
+				VideoElement video = new VideoElement();
+				video.setLocation(data.readByte());
+				video.setSrcURL(readString(data));
+				video.setHeight(readString(data));
+				video.setWidth(readString(data));
+
+				if (version >= 5) {
+					video.setPosterSrc(readString(data));
+				}
+				return video;
+			}
+			case TAG_LIST:
+				return readElementList(data, version);
+			case TAG_ELEMENT: {
+				Element element = new Element();
+				element.setHtml(readString(data));
+				return element;
+			}
+			default:
+				throw new IOException("Unknown element tag " + tag + ".");
+		}
+	}
+
+	/**
+	 * Write the size of an ElementList followed by each of its Elements.
+	 * @param data The stream to write to.
+	 * @param list The ElementList to write.
+	 * @throws IOException If the stream can't be written.
+	 */
+	private static void writeElementList(DataOutputStream data, ElementList list) throws IOException {
+		data.writeInt(list.getSize());
+
+		for (int i = 0; i < list.getSize(); i++) {
+			writeElement(data, list.getElement(i));
+		}
+	}
+
+	/**
+	 * Read an ElementList written by writeElementList.
+	 * @param data The stream to read from.
+	 * @param version The format version the list was written with.
+	 * @return The ElementList read from the stream.
+	 * @throws IOException If the stream can't be read.
+	 */
+	private static ElementList readElementList(DataInputStream data, int version) throws IOException {
+		ElementList list = new ElementList();
+		int size = data.readInt();
+
+		for (int i = 0; i < size; i++) {
+			list.addElement(readElement(data, version));
+		}
+
+		return list;
+	}
+
+	/**
+	 * Write a length-prefixed UTF-8 string. A null string is written as length -1.
+	 * @param data The stream to write to.
+	 * @param s The string to write. May be null.
+	 * @throws IOException If the stream can't be written.
+	 */
+	public static void writeString(DataOutputStream data, String s) throws IOException {
+		if (s == null) {
+			data.writeInt(-1);
+		} else {
+			byte[] bytes = s.getBytes(UTF_8);
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+	}
+
+	/**
+	 * Read a string written by writeString.
+	 * @param data The stream to read from.
+	 * @return The string read from the stream. May be null.
+	 * @throws IOException If the stream can't be read.
+	 */
+	public static String readString(DataInputStream data) throws IOException {
+		int length = data.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		data.readFully(bytes);
+
+		return new String(bytes, UTF_8);
+	}
+}
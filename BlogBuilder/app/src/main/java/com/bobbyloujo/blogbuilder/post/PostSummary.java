@@ -0,0 +1,163 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.post;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The metadata needed to show a Post in the post list without loading the
+ * whole Post: its title, summary text, first image, number of elements and
+ * the time it was last modified.
+ */
+public class PostSummary {
+	public static final int NO_IMAGE = -1;  // Image location used when the Post has no ImageElement.
+
+	private String fileName;                // The filename of the Post.
+	private String title;                   // The title of the Post.
+	private String summary;                 // The summary text of the Post.
+	private String imageSrc;                // The source of the first image in the Post, the poster of its first video if it has no images, or null.
+	private int imageLocation = NO_IMAGE;   // The location of the first image, LOCAL, INTERNET or NO_IMAGE.
+	private int elementCount;               // The number of Elements in the Post.
+	private long modified;                  // The time the Post was last modified in milliseconds since the epoch.
+
+	private PostSummary() {
+	}
+
+	/**
+	 * Create a summary of the specified Post.
+	 * @param post The Post to summarize.
+	 * @param modified The time the Post was last modified in milliseconds since the epoch.
+	 */
+	public PostSummary(Post post, long modified) {
+		ImageElement image = post.getFirstImage();
+		VideoElement video = post.getFirstPosterVideo();
+
+		this.fileName = post.getFileName();
+		this.title = post.getTitle();
+		this.summary = post.getSummary();
+		this.elementCount = post.getElementList().getSize();
+		this.modified = modified;
+
+		if (image != null) {
+			imageSrc = image.getThumbnailSrc() != null ? image.getThumbnailSrc() : image.getSrc();
+			imageLocation = image.getLocation();
+		} else if (video != null) {   // Show the poster of a video if there are no images.
+			imageSrc = video.getPosterSrc();
+			imageLocation = ImageElement.LOCAL;
+		}
+	}
+
+	/**
+	 * Get the filename of the Post.
+	 * @return The filename of the Post.
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Get the title of the Post.
+	 * @return The title of the Post.
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Get the summary text of the Post.
+	 * @return The summary text of the Post, as returned by Post.getSummary().
+	 */
+	public String getSummary() {
+		return summary;
+	}
+
+	/**
+	 * Get the source filepath or URL of the first image in the Post.
+	 * @return The source of the first image or null if the Post has no images.
+	 */
+	public String getImageSrc() {
+		return imageSrc;
+	}
+
+	/**
+	 * Get the location of the first image in the Post.
+	 * @return ImageElement.LOCAL, ImageElement.INTERNET, or NO_IMAGE if the Post has no images.
+	 */
+	public int getImageLocation() {
+		return imageLocation;
+	}
+
+	/**
+	 * Get the number of Elements in the Post.
+	 * @return The number of Elements in the Post.
+	 */
+	public int getElementCount() {
+		return elementCount;
+	}
+
+	/**
+	 * Get the time the Post was last modified.
+	 * @return The time the Post was last modified in milliseconds since the epoch.
+	 */
+	public long getModified() {
+		return modified;
+	}
+
+	/**
+	 * Write this summary to the stream.
+	 * @param data The stream to write to.
+	 * @throws IOException If the stream can't be written.
+	 */
+	public void write(DataOutputStream data) throws IOException {
+		PostCodec.writeString(data, fileName);
+		PostCodec.writeString(data, title);
+		PostCodec.writeString(data, summary);
+		PostCodec.writeString(data, imageSrc);
+		data.writeInt(imageLocation);
+		data.writeInt(elementCount);
+		data.writeLong(modified);
+	}
+
+	/**
+	 * Read a summary written by write.
+	 * @param data The stream to read from.
+	 * @return The summary read from the stream.
+	 * @throws IOException If the stream can't be read.
+	 */
+	public static PostSummary read(DataInputStream data) throws IOException {
+		PostSummary summary = new PostSummary();
+
+		summary.fileName = PostCodec.readString(data);
+		summary.title = PostCodec.readString(data);
+		summary.summary = PostCodec.readString(data);
+		summary.imageSrc = PostCodec.readString(data);
+		summary.imageLocation = data.readInt();
+		summary.elementCount = data.readInt();
+		summary.modified = data.readLong();
+
+		return summary;
+	}
+}
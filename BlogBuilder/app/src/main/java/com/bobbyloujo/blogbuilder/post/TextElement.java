@@ -30,35 +30,71 @@ import android.text.Html;
  * Created by Ben on 2/17/2016.
  */
 public class TextElement extends Element {
+	private static final long serialVersionUID = 5837648108288229657L;
+
+	private String plainText;   // The text without markup, or null if it hasn't been computed since this TextElement was deserialized.
 
 	/**
-	 * Change this TextElement's text.
+	 * Change this TextElement's text. Its plain text is computed from it.
 	 * @param text The new text
 	 */
 	public void setText(String text) {
-        super.setHtml(text);
+        setText(text, HtmlText.toPlainText(text));
     }
 
 	/**
-	 * Get this TextElement's text.
+	 * Change this TextElement's text when its plain text is already known.
+	 * @param text The new text as HTML.
+	 * @param plainText The text without markup or trailing whitespace.
+	 */
+	public void setText(String text, String plainText) {
+		this.plainText = plainText;
+		super.setHtml(text);
+	}
+
+	/**
+	 * Get this TextElement's text without markup or trailing whitespace. This is
+	 * stored with the TextElement, so no HTML is parsed to get it.
+	 * @return The plain text of this TextElement.
+	 */
+	public String getPlainText() {
+		if (plainText == null) {
+			plainText = HtmlText.toPlainText(getHtml());
+		}
+
+		return plainText;
+	}
+
+	/**
+	 * Get this TextElement's text with its styling, for editing. Use getPlainText
+	 * when the styling isn't needed.
 	 * @return This TextElement's text.
 	 */
     public CharSequence getText() {
-        CharSequence text = Html.fromHtml(getHtml());
-        int i = text.length() - 1;
+        return trimTrailingWhitespace(Html.fromHtml(getHtml()));
+    }
 
-        while (i >= 0 && Character.isWhitespace(text.charAt(i))) {
-            i--;
-        }
 
-        return text.subSequence(0, i+1);
-    }
+	/**
+	 * Remove the whitespace from the end of text.
+	 * @param text The text to trim.
+	 * @return The text without trailing whitespace.
+	 */
+	private static CharSequence trimTrailingWhitespace(CharSequence text) {
+		int i = text.length() - 1;
+
+		while (i >= 0 && Character.isWhitespace(text.charAt(i))) {
+			i--;
+		}
+
+		return text.subSequence(0, i+1);
+	}
 
     @Override
 	public TextElement copy() {
 		TextElement copy = new TextElement();
 
-		copy.setHtml(getHtml());
+		copy.setText(getHtml(), getPlainText());
 
 		return copy;
 	}
@@ -23,11 +23,14 @@
  */
 package com.bobbyloujo.blogbuilder.post;
 
+import java.io.IOException;
+
 /**
  * A post Element that contains a video
  * Created by Benjamin on 2/27/2016.
  */
 public class VideoElement extends Element {
+	private static final long serialVersionUID = -6331102941094864251L;
 	public static final int LOCAL = 0;          // Used to specify that the location of the video is on local storage.
 	public static final int INTERNET = 1;       // Used to specify that the location of the video is on the internet.
 
@@ -35,6 +38,7 @@ public class VideoElement extends Element {
 	private String src = "";       // The source path or URL of the video file
 	private String width = "75%";  // The width of the video as HTML.
 	private String height = "";    // The height of the video as HTML.
+	private String posterSrc;      // The path of the poster frame of a local video, or null if none was extracted.
 
 	/**
 	 * Set the location of the video file.
@@ -46,24 +50,51 @@ public class VideoElement extends Element {
 		}
 
 		this.location = location;
+		invalidateHtml();
 	}
 
 	/**
-	 * Set the URL or real filepath of the video file.
+	 * Set the URL or real filepath of the video file. The poster frame of a
+	 * different file is dropped.
 	 * @param src The URL or real filepath of the video file.
 	 */
 	public void setSrcURL(String src) {
 		if (src != null) {
-			this.src = src.replace('\\', '/');
+			src = src.replace('\\', '/');
+
+			if (!src.equals(this.src)) {
+				posterSrc = null;
+			}
+
+			this.src = src;
+			invalidateHtml();
 		}
 	}
 
+	/**
+	 * Set the poster frame of a local video, shown until the video is played.
+	 * @param posterSrc The path of the poster image, or null for none.
+	 */
+	public void setPosterSrc(String posterSrc) {
+		this.posterSrc = posterSrc;
+		invalidateHtml();
+	}
+
+	/**
+	 * Get the poster frame of a local video.
+	 * @return The path of the poster image or null if none was extracted.
+	 */
+	public String getPosterSrc() {
+		return posterSrc;
+	}
+
 	/**
 	 * Set the width of the image.
 	 * @param width The height of the image as it would be written in HTML (Ex. 75%, 100px, etc.).
 	 */
 	public void setWidth(String width) {
 		this.width = width;
+		invalidateHtml();
 	}
 
 	/**
@@ -72,6 +103,7 @@ public class VideoElement extends Element {
 	 */
 	public void setHeight(String height) {
 		this.height = height;
+		invalidateHtml();
 	}
 
 	/**
@@ -108,20 +140,28 @@ public class VideoElement extends Element {
 
 	@Override
 	public String getHtml() {
-		String fullSrc = "";
-		String html;
+		return getRenderedHtml(1);
+	}
+
+	@Override
+	protected void renderHtml(HtmlSink sink) throws IOException {
+		sink.append("<center><video");
+
+		if (location == LOCAL && posterSrc != null) {
+			sink.append(" poster=\"").append(getFileUrl(posterSrc)).append("\"");
+		}
+
+		sink.append(" preload=\"none\" controls width=\"").append(width)
+				.append("\" height=\"").append(height).append("\">")
+				.append("<source src=\"");
 
 		if (location == LOCAL) {
-			fullSrc = "file:///" + src;
+			sink.append(getFileUrl(src));
 		} else if (location == INTERNET) {
-			fullSrc = src;
+			sink.append(src);
 		}
 
-		html =	"<center><video poster preload=\"true\" controls autoplay width=\"" + width + "\" height=\"" + height + "\">" +
-				"<source src=\"" + fullSrc + "\" type=\"video/mp4\"/>" +
-				"</video></center>";
-
-		return html;
+		sink.append("\" type=\"video/mp4\"/>").append("</video></center>");
 	}
 
 	@Override
@@ -132,6 +172,7 @@ public class VideoElement extends Element {
 		copy.setSrcURL(src);
 		copy.setHeight(height);
 		copy.setWidth(width);
+		copy.setPosterSrc(posterSrc);
 
 		return copy;
 	}
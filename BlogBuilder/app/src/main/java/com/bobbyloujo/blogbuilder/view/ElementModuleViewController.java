@@ -33,6 +33,7 @@ import android.widget.TextView;
 
 import com.bobbyloujo.blogbuilder.R;
 import com.bobbyloujo.blogbuilder.application.ActivityStarter;
+import com.bobbyloujo.blogbuilder.application.PostLoader;
 import com.bobbyloujo.blogbuilder.post.Element;
 import com.bobbyloujo.blogbuilder.post.ImageElement;
 import com.bobbyloujo.blogbuilder.post.TextElement;
@@ -123,12 +124,12 @@ public class ElementModuleViewController {
 	}
 
 	private void onUpButtonPressed() {
-		adapter.getElementList().moveElementUp(element);
+		PostLoader.getInstance().getEditSession().moveElementUp(element);
 		adapter.notifyDataSetChanged();
 	}
 
 	private void onDownButtonPressed() {
-		adapter.getElementList().moveElementDown(element);
+		PostLoader.getInstance().getEditSession().moveElementDown(element);
 		adapter.notifyDataSetChanged();
 	}
 
@@ -143,7 +144,7 @@ public class ElementModuleViewController {
 	}
 
 	public void onRemoveButtonPressed() {
-		adapter.getElementList().removeElement(element);
+		PostLoader.getInstance().getEditSession().removeElement(element);
 		adapter.notifyDataSetChanged();
 	}
 }
@@ -24,6 +24,7 @@
 package com.bobbyloujo.blogbuilder.view;
 
 import android.content.Context;
+import android.os.Build;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -33,7 +34,9 @@ import android.widget.TextView;
 
 import com.bobbyloujo.blogbuilder.application.ActivityStarter;
 import com.bobbyloujo.blogbuilder.application.PostLoader;
-import com.bobbyloujo.blogbuilder.post.Post;
+import com.bobbyloujo.blogbuilder.media.ThumbnailLoader;
+import com.bobbyloujo.blogbuilder.post.ImageElement;
+import com.bobbyloujo.blogbuilder.post.PostSummary;
 import com.bobbyloujo.blogbuilder.R;
 
 /**
@@ -46,12 +49,14 @@ public class PostSummaryListAdapter extends BaseAdapter {
     private LayoutInflater inflater; // Inflater to inflate the blog summary views.
 
 	private PostLoader postLoader;   // Reference to the PostLoader to get the saved posts.
+	private ThumbnailLoader thumbnailLoader; // Loads the icons of the posts in the background.
 
     public PostSummaryListAdapter(Context context) {
         this.context = context;
         inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
 
 		postLoader = PostLoader.getInstance();
+		thumbnailLoader = ThumbnailLoader.getInstance(context);
     }
 
 	public void savePostList() {
@@ -65,7 +70,7 @@ public class PostSummaryListAdapter extends BaseAdapter {
 
     @Override
     public Object getItem(int position) {
-        return postLoader.getPost(position);
+        return postLoader.getSummary(position);
     }
 
     @Override
@@ -79,9 +84,9 @@ public class PostSummaryListAdapter extends BaseAdapter {
         TextView summary;    // TextView to display the summary text.
 		ImageView imageView; // ImageView to display the icon.
 
-		final Post post = postLoader.getPost(position); // The post to summarize
-		String titleString;                             // The title text
-		String summaryString;                           // The summary text
+		final PostSummary post = postLoader.getSummary(position); // The summary of the post
+		String titleString;                                       // The title text
+		String summaryString;                                     // The summary text
 
 		if (post != null) {
 			titleString = post.getTitle();
@@ -104,7 +109,7 @@ public class PostSummaryListAdapter extends BaseAdapter {
 		imageView = (ImageView) convertView.findViewById(R.id.summaryicon);
 
 		if (post != null) {
-			post.populateWithFirstImage(imageView);
+			populateWithFirstImage(imageView, post);
 
 			convertView.setOnClickListener(new View.OnClickListener() {
 				@Override
@@ -112,8 +117,41 @@ public class PostSummaryListAdapter extends BaseAdapter {
 					ActivityStarter.startBlogPostActivity(context, post.getFileName());
 				}
 			});
+		} else {
+			// The row may have shown another post, so its image and click listener are cleared.
+			thumbnailLoader.cancel(imageView);
+			setTextIcon(imageView);
+			convertView.setOnClickListener(null);
 		}
 
         return convertView;
     }
+
+	/**
+	 * Populates the given ImageView with the first image of the summarized post. If the post
+	 * has no ImageElement, the ImageView is populated with a text icon instead. Images are
+	 * loaded in the background by the ThumbnailLoader.
+	 * @param imageView The ImageView to populate with an image.
+	 * @param post The summary of the post.
+	 */
+	private void populateWithFirstImage(ImageView imageView, PostSummary post) {
+		if (post.getImageLocation() == ImageElement.LOCAL || post.getImageLocation() == ImageElement.INTERNET) {
+			thumbnailLoader.load(imageView, post.getImageLocation(), post.getImageSrc());
+		} else {
+			thumbnailLoader.cancel(imageView);   // The row may still be loading the image of the post it showed before.
+			setTextIcon(imageView);
+		}
+	}
+
+	/**
+	 * Populates the given ImageView with the text icon.
+	 * @param imageView The ImageView to populate with the text icon.
+	 */
+	private void setTextIcon(ImageView imageView) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			imageView.setImageDrawable(imageView.getContext().getDrawable(R.drawable.text));
+		} else {
+			imageView.setImageDrawable(imageView.getContext().getResources().getDrawable(R.drawable.text));
+		}
+	}
 }
@@ -23,27 +23,132 @@
  */
 package com.bobbyloujo.blogbuilder.view;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.os.Build;
+import android.os.Process;
 import android.util.AttributeSet;
 import android.view.View;
+import android.webkit.JavascriptInterface;
 import android.webkit.WebChromeClient;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
+import android.webkit.WebViewClient;
 
+import com.bobbyloujo.blogbuilder.media.MediaCache;
+import com.bobbyloujo.blogbuilder.post.Element;
+import com.bobbyloujo.blogbuilder.post.ElementList;
+import com.bobbyloujo.blogbuilder.post.HtmlSink;
+import com.bobbyloujo.blogbuilder.post.ImageElement;
 import com.bobbyloujo.blogbuilder.post.Post;
+import com.bobbyloujo.blogbuilder.post.VideoElement;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * A View to display the body of a Post.
+ *
+ * A short Post is loaded as one page. A long Post is loaded in windowed mode:
+ * the page starts with the first WINDOW_SIZE Elements, and a script appends
+ * FRAGMENT_SIZE more each time the reader scrolls close to the end. The script
+ * pulls the HTML of each range of Elements through a JavaScript bridge, so the
+ * Elements further down are never rendered, parsed or fetched until needed.
+ * Once a range has been served, the next one is rendered in the background so
+ * it is ready when the reader gets there.
+ *
+ * Windowed mode is only used from Jelly Bean MR1 on. Before that, script can
+ * reach every public method of a bridge object through reflection, and posts
+ * are raw HTML written by the user, so long Posts are loaded as one page with
+ * JavaScript disabled, like short ones.
+ *
+ * Remote images and videos of the Post are served from the MediaCache, so
+ * they are only fetched again once their HTTP caching headers allow it, and
+ * can be viewed offline.
  * Created by Ben on 2/17/2016.
  */
 public class PostView extends WebView {
+	private static final int WINDOW_SIZE = 20;      // The number of Elements in the first page of a windowed Post.
+	private static final int FRAGMENT_SIZE = 10;    // The number of Elements appended each time the reader nears the end.
+	private static final String BRIDGE_NAME = "postBridge";   // The name of the bridge object in the page's script.
 
-    private Post post;  // The post to display.
+	/* Renders the fragment after the one last served, at background priority. Shared by every PostView. */
+	private static final ExecutorService PREFETCHER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override public Thread newThread(final Runnable runnable) {
+			return new Thread(new Runnable() {
+				@Override public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}
+			}, "PostView");
+		}
+	});
+
+	/* Appends a fragment while less than a screen of content is left below the visible part of the
+	   page, then checks again once the new Elements have been laid out. Images that finish loading
+	   also trigger a check, because they change the height of the page. */
+	private static final String SCRIPT =
+			"<script>" +
+			"(function(){" +
+			"var post=document.getElementById('post'),waiting=false;" +
+			"function more(){" +
+			"if(waiting||next>=total||window.scrollY+2*window.innerHeight<document.body.scrollHeight)return;" +
+			"var html=" + BRIDGE_NAME + ".getFragment(generation,next," + FRAGMENT_SIZE + ");" +
+			"if(html==null)return;" +
+			"post.insertAdjacentHTML('beforeend',html);" +
+			"next+=" + FRAGMENT_SIZE + ";" +
+			"waiting=true;" +
+			"setTimeout(function(){waiting=false;more();},50);" +
+			"}" +
+			"window.addEventListener('scroll',more);" +
+			"window.addEventListener('resize',more);" +
+			"window.addEventListener('load',more);" +
+			"post.addEventListener('load',more,true);" +
+			"})();" +
+			"</script>";
+
+    private Post post;                           // The post to display.
+	private final FragmentBridge bridge;         // Serves the HTML of Elements to the page in windowed mode.
+	private final MediaCache mediaCache;         // The cache remote media is served from.
+	private volatile Set<String> remoteMedia = Collections.emptySet();   // The URLs of the remote images and videos of the Post.
 
     public PostView(Context context, AttributeSet attrs) {
         super(context, attrs);
 
         setScrollBarStyle(View.SCROLLBARS_INSIDE_OVERLAY);
 		setWebChromeClient(new WebChromeClient());
+
+		bridge = new FragmentBridge();
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+			addJavascriptInterface(bridge, BRIDGE_NAME);
+		}
+
+		mediaCache = MediaCache.getInstance(context);
+		setWebViewClient(new WebViewClient() {
+			@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+			@Override
+			public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+				if (!"GET".equals(request.getMethod())) {
+					return null;
+				}
+
+				return interceptMedia(request.getUrl().toString(), getHeader(request.getRequestHeaders(), "Range"));
+			}
+
+			@SuppressWarnings("deprecation")
+			@Override
+			public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+				return interceptMedia(url, null);   // Used before Lollipop, where responses have no status or headers.
+			}
+		});
     }
 
 	/**
@@ -55,13 +160,229 @@ public class PostView extends WebView {
     }
 
 	/**
-	 * Load the content from the post into the view.
+	 * Load the content from the post into the view. Posts with more than
+	 * WINDOW_SIZE Elements are loaded in windowed mode where it is safe to.
 	 */
     public void load() {
 		getSettings().setAllowFileAccess(true);
 
-		if (post != null) {
+		if (post == null) {
+			return;
+		}
+
+		ElementList list = post.getElementList();
+		HashSet<String> urls = new HashSet<>();
+
+		addRemoteMedia(list, urls);
+		remoteMedia = urls;
+
+		if (list.getSize() <= WINDOW_SIZE || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+			bridge.setElements(null);
+			getSettings().setJavaScriptEnabled(false);
             loadDataWithBaseURL("", post.getHtml(), "text/html", "UTF-8", "");
+		} else {
+			getSettings().setJavaScriptEnabled(true);
+			loadDataWithBaseURL("", getWindowHtml(list), "text/html", "UTF-8", "");
 		}
     }
+
+	/**
+	 * Build the first page of a windowed Post: the first WINDOW_SIZE Elements in
+	 * a container, followed by the script that appends the rest. Only the first
+	 * WINDOW_SIZE Elements are rendered here. The bridge renders the rest from a
+	 * copy of the ElementList, because it is called on a background thread and
+	 * Elements cache their HTML without synchronization.
+	 * @param list The Elements of the Post.
+	 * @return The HTML of the page.
+	 */
+	private String getWindowHtml(ElementList list) {
+		HtmlSink sink = new HtmlSink(WINDOW_SIZE);
+		int generation = bridge.setElements(list.copy());
+
+		try {
+			sink.append("<html><body><div id=\"post\">");
+			render(sink, list, 0, WINDOW_SIZE);
+			sink.append("</div><script>var generation=").append(Integer.toString(generation))
+					.append(",next=").append(Integer.toString(WINDOW_SIZE))
+					.append(",total=").append(Integer.toString(list.getSize()))
+					.append(";</script>").append(SCRIPT).append("</body></html>");
+		} catch (IOException e) {
+			e.printStackTrace();   // Appending to a StringBuilder never fails.
+		}
+
+		return sink.toString();
+	}
+
+	/**
+	 * Serve a remote image or video of the Post from the MediaCache. Called on
+	 * a WebView thread. Other requests are left to the WebView.
+	 * @param url The URL of the request.
+	 * @param range The Range header of the request, or null.
+	 * @return The response, or null to let the WebView load the URL itself.
+	 */
+	private WebResourceResponse interceptMedia(String url, String range) {
+		if (!remoteMedia.contains(url)) {
+			return null;
+		}
+
+		try {
+			MediaCache.Response response = mediaCache.get(url, range);
+
+			if (response == null) {
+				return null;
+			}
+
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+				return new WebResourceResponse(response.getMimeType(), null, response.getStatus(), response.getReason(),
+						response.getHeaders(), response.getBody());
+			} else if (response.getStatus() == 200) {
+				return new WebResourceResponse(response.getMimeType(), null, response.getBody());
+			}
+
+			response.getBody().close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get a header of a request, ignoring the case of its name.
+	 * @param headers The headers of the request. May be null.
+	 * @param name The name of the header.
+	 * @return The value of the header, or null if the request doesn't have it.
+	 */
+	private static String getHeader(Map<String, String> headers, String name) {
+		if (headers != null) {
+			for (Map.Entry<String, String> header : headers.entrySet()) {
+				if (name.equalsIgnoreCase(header.getKey())) {
+					return header.getValue();
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Add the URLs of the remote images and videos in an ElementList to a set.
+	 * @param list The ElementList.
+	 * @param urls The set to add the URLs to.
+	 */
+	private static void addRemoteMedia(ElementList list, Set<String> urls) {
+		for (int i = 0; i < list.getSize(); i++) {
+			Element e = list.getElement(i);
+
+			if (e instanceof ImageElement && ((ImageElement) e).getLocation() == ImageElement.INTERNET) {
+				urls.add(((ImageElement) e).getSrc());
+			} else if (e instanceof VideoElement && ((VideoElement) e).getLocation() == VideoElement.INTERNET) {
+				urls.add(((VideoElement) e).getSrcURL());
+			} else if (e instanceof ElementList) {
+				addRemoteMedia((ElementList) e, urls);
+			}
+		}
+	}
+
+	/**
+	 * Write the HTML of a range of Elements into a sink.
+	 * @param sink The sink to write the HTML into.
+	 * @param elements The Elements.
+	 * @param start The index of the first Element to render.
+	 * @param count The number of Elements to render. The range is clipped to the end of the list.
+	 * @throws IOException If the sink can't be written.
+	 */
+	private static void render(HtmlSink sink, ElementList elements, int start, int count) throws IOException {
+		int end = Math.min(elements.getSize(), start + count);
+
+		for (int i = Math.max(0, start); i < end; i++) {
+			elements.getElement(i).render(sink);
+		}
+	}
+
+	/**
+	 * The object the page's script calls to get the HTML of the Elements it
+	 * hasn't shown yet. It renders a copy of the ElementList, made when the page
+	 * is built, because the script calls the bridge on a background thread. The
+	 * copy is only touched while the bridge is locked, so the fragment that is
+	 * prefetched after each call can be rendered on another thread.
+	 * Each page is tagged with a generation, so a page that is still scrolling
+	 * while a newer one loads gets nothing from the newer Post.
+	 */
+	private static class FragmentBridge {
+		private ElementList elements;   // A copy of the Elements of the Post shown in windowed mode, or null if there is none.
+		private int generation;         // Incremented each time the Elements change.
+
+		/**
+		 * Change the Elements served by this bridge, and start rendering the first
+		 * fragment the page will ask for.
+		 * @param elements A copy of the Elements of the windowed Post that nothing else uses, or null if no windowed Post is shown.
+		 * @return The generation of the new Elements.
+		 */
+		synchronized int setElements(ElementList elements) {
+			this.elements = elements;
+			generation++;
+
+			if (elements != null) {
+				prefetch(generation, WINDOW_SIZE, FRAGMENT_SIZE);
+			}
+
+			return generation;
+		}
+
+		/**
+		 * Get the HTML of a range of Elements, then start rendering the range after it.
+		 * @param generation The generation of the page asking for the HTML.
+		 * @param start The index of the first Element.
+		 * @param count The number of Elements.
+		 * @return The HTML of the Elements, or null if the page is out of date.
+		 */
+		@JavascriptInterface
+		public synchronized String getFragment(int generation, int start, int count) {
+			if (generation != this.generation || elements == null) {
+				return null;
+			}
+
+			HtmlSink sink = new HtmlSink(count);
+
+			try {
+				render(sink, elements, start, count);
+			} catch (IOException e) {
+				e.printStackTrace();   // Appending to a StringBuilder never fails.
+			}
+
+			prefetch(generation, start + count, count);
+
+			return sink.toString();
+		}
+
+		/**
+		 * Render a range of Elements in the background, so their HTML is cached by
+		 * the time the page asks for it.
+		 * @param generation The generation of the Elements.
+		 * @param start The index of the first Element.
+		 * @param count The number of Elements.
+		 */
+		private void prefetch(final int generation, final int start, final int count) {
+			if (start >= elements.getSize()) {
+				return;
+			}
+
+			PREFETCHER.execute(new Runnable() {
+				@Override public void run() {
+					synchronized (FragmentBridge.this) {
+						if (generation != FragmentBridge.this.generation) {
+							return;   // A newer Post replaced the Elements.
+						}
+
+						int end = Math.min(elements.getSize(), start + count);
+
+						for (int i = start; i < end; i++) {
+							elements.getElement(i).getHtml();
+						}
+					}
+				}
+			});
+		}
+	}
 }
@@ -0,0 +1,245 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import com.bobbyloujo.blogbuilder.post.Post;
+import com.bobbyloujo.blogbuilder.post.TextElement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that EditSession recovers the Post being edited from its snapshot and log.
+ */
+public class EditSessionTest {
+	private File directory;
+	private PostWriter writer;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("edit", "session");
+		directory.delete();
+		directory.mkdirs();
+
+		writer = new PostWriter(new FilePostStore(directory));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		writer.flush().get();   // A recovered session writes a new snapshot in the background.
+
+		File[] files = directory.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+
+		directory.delete();
+	}
+
+	@Test
+	public void editsAreReplayedOverSnapshot() throws Exception {
+		EditSession session = createSession();
+
+		session.begin(createPost());
+		session.addElement(createText("Three"));
+		session.addElement(createText("Four"));
+		session.removeElement(session.getPost().getElementList().getElement(0));
+		session.moveElementUp(session.getPost().getElementList().getElement(2));
+
+		TextElement changed = (TextElement) session.getPost().getElementList().getElement(0);
+		changed.setText(toHtml("Changed"), "Changed");
+		session.replaceElement(changed);
+		session.setTitle("New title");
+		writer.flush().get();
+
+		Post recovered = createSession().getPost();
+
+		assertEquals("New title", recovered.getTitle());
+		assertEquals(session.getPost().getHtml(), recovered.getHtml());
+		assertEquals(toHtml("Changed"), getHtml(recovered, 0));
+		assertEquals(toHtml("Four"), getHtml(recovered, 1));
+		assertEquals(toHtml("Three"), getHtml(recovered, 2));
+	}
+
+	@Test
+	public void logOfOtherGenerationIsNotReplayed() throws Exception {
+		EditSession session = createSession();
+
+		session.begin(createPost());
+		session.addElement(createText("Three"));
+		writer.flush().get();
+
+		RandomAccessFile snapshot = new RandomAccessFile(new File(directory, EditSession.SNAPSHOT_NAME), "rw");
+
+		try {
+			int generation = snapshot.readInt();
+			snapshot.seek(0);
+			snapshot.writeInt(generation + 1);   // As if the log was already folded into a newer snapshot.
+		} finally {
+			snapshot.close();
+		}
+
+		Post recovered = createSession().getPost();
+
+		assertEquals(2, recovered.getElementList().getSize());
+		assertEquals(toHtml("Two"), getHtml(recovered, 1));
+	}
+
+	@Test
+	public void tornRecordEndsReplay() throws Exception {
+		EditSession session = createSession();
+
+		session.begin(createPost());
+		session.addElement(createText("Three"));
+		session.addElement(createText("Four"));
+		writer.flush().get();
+
+		RandomAccessFile log = new RandomAccessFile(new File(directory, EditSession.LOG_NAME), "rw");
+
+		try {
+			log.setLength(log.length() - 3);   // As if the process died while the last record was written.
+		} finally {
+			log.close();
+		}
+
+		Post recovered = createSession().getPost();
+
+		assertEquals(3, recovered.getElementList().getSize());
+		assertEquals(toHtml("Three"), getHtml(recovered, 2));
+	}
+
+	@Test
+	public void corruptRecordEndsReplay() throws Exception {
+		EditSession session = createSession();
+
+		session.begin(createPost());
+		session.addElement(createText("Three"));
+		session.moveElementUp(session.getPost().getElementList().getElement(2));
+		session.setTitle("Lost title");
+		writer.flush().get();
+
+		RandomAccessFile log = new RandomAccessFile(new File(directory, EditSession.LOG_NAME), "rw");
+
+		try {
+			log.seek(log.length() - ("Lost title".length() + 4 + 1 + 4 + 4));   // The destination of the move, just before the title record.
+			log.writeInt(99);
+		} finally {
+			log.close();
+		}
+
+		Post recovered = createSession().getPost();
+
+		assertEquals("Title", recovered.getTitle());
+		assertEquals(3, recovered.getElementList().getSize());
+		assertEquals(toHtml("Three"), getHtml(recovered, 2));
+	}
+
+	@Test
+	public void recoveredSessionKeepsLogging() throws Exception {
+		EditSession session = createSession();
+
+		session.begin(createPost());
+		session.addElement(createText("Three"));
+		writer.flush().get();
+
+		EditSession recovered = createSession();
+		recovered.getPost();
+		recovered.addElement(createText("Four"));
+		writer.flush().get();
+
+		Post post = createSession().getPost();
+
+		assertEquals(4, post.getElementList().getSize());
+		assertEquals(toHtml("Four"), getHtml(post, 3));
+	}
+
+	@Test
+	public void noSessionRecoversNothing() {
+		assertNull(createSession().getPost());
+	}
+
+	/**
+	 * Create an EditSession that keeps its files in the test directory.
+	 * @return The EditSession.
+	 */
+	private EditSession createSession() {
+		return new EditSession(writer);
+	}
+
+	/**
+	 * Create a Post with two TextElements.
+	 * @return The Post.
+	 */
+	private static Post createPost() {
+		Post post = new Post();
+
+		post.setTitle("Title");
+		post.getElementList().addElement(createText("One"));
+		post.getElementList().addElement(createText("Two"));
+
+		return post;
+	}
+
+	/**
+	 * Create a TextElement containing one paragraph.
+	 * @param text The text of the paragraph.
+	 * @return The TextElement.
+	 */
+	private static TextElement createText(String text) {
+		TextElement element = new TextElement();
+
+		element.setText(toHtml(text), text);
+
+		return element;
+	}
+
+	/**
+	 * Get the HTML of a paragraph of text.
+	 * @param text The text of the paragraph.
+	 * @return The HTML.
+	 */
+	private static String toHtml(String text) {
+		return "<p dir=\"ltr\">" + text + "</p>";
+	}
+
+	/**
+	 * Get the HTML of an Element of a Post.
+	 * @param post The Post.
+	 * @param index The index of the Element.
+	 * @return The HTML of the Element.
+	 */
+	private static String getHtml(Post post, int index) {
+		return post.getElementList().getElement(index).getHtml();
+	}
+}
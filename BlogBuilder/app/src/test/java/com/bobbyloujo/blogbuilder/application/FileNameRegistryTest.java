@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the allocation of filenames by FileNameRegistry.
+ */
+public class FileNameRegistryTest {
+	@Test
+	public void emptyTitleGetsDefaultName() {
+		FileNameRegistry registry = new FileNameRegistry();
+
+		assertEquals(FileNameRegistry.DEFAULT_BASE_NAME, registry.allocate(FileNameRegistry.getBaseName("")));
+		assertEquals(FileNameRegistry.DEFAULT_BASE_NAME + "1", registry.allocate(FileNameRegistry.getBaseName("")));
+	}
+
+	@Test
+	public void whitespaceTitleGetsDefaultName() {
+		FileNameRegistry registry = new FileNameRegistry();
+
+		assertEquals(FileNameRegistry.DEFAULT_BASE_NAME, registry.allocate(FileNameRegistry.getBaseName("   ")));
+		assertEquals(FileNameRegistry.DEFAULT_BASE_NAME + "1", registry.allocate(FileNameRegistry.getBaseName(" \t\n")));
+	}
+
+	@Test
+	public void emptyBaseNameIsNeverAllocated() {
+		assertEquals(FileNameRegistry.DEFAULT_BASE_NAME, new FileNameRegistry().allocate(""));
+	}
+
+	@Test
+	public void whitespaceIsRemovedFromTitles() {
+		assertEquals("MyFirstPost", FileNameRegistry.getBaseName(" My First\tPost "));
+	}
+
+	@Test
+	public void suffixesSkipNamesInUse() {
+		FileNameRegistry registry = new FileNameRegistry();
+
+		registry.add("Trip");
+		registry.add("Trip1");
+
+		assertEquals("Trip2", registry.allocate("Trip"));
+		assertEquals("Trip3", registry.allocate("Trip"));
+		assertTrue(registry.contains("Trip3"));
+	}
+
+	@Test
+	public void removedSuffixIsNotReusedInSession() {
+		FileNameRegistry registry = new FileNameRegistry();
+
+		assertEquals("Trip", registry.allocate("Trip"));
+		registry.remove("Trip");
+
+		assertFalse(registry.contains("Trip"));
+		assertEquals("Trip1", registry.allocate("Trip"));
+	}
+
+	@Test
+	public void addedSuffixesCarryOver() {
+		FileNameRegistry registry = new FileNameRegistry();
+
+		registry.add("Trip");
+		registry.add("Trip5");
+		registry.add("Trip2");
+
+		assertEquals("Trip6", registry.allocate("Trip"));
+	}
+
+	@Test
+	public void numbersThatAreNotSuffixesAreIgnored() {
+		FileNameRegistry registry = new FileNameRegistry();
+
+		registry.add("Trip05");
+		registry.add("2016");
+
+		assertEquals("Trip0", registry.allocate("Trip0"));
+		assertEquals("20161", registry.allocate("2016"));
+	}
+}
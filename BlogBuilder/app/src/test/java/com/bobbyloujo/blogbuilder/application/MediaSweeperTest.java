@@ -0,0 +1,125 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import com.bobbyloujo.blogbuilder.post.ElementList;
+import com.bobbyloujo.blogbuilder.post.ImageElement;
+import com.bobbyloujo.blogbuilder.post.VideoElement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests how MediaSweeper finds the media of Posts and deletes the rest.
+ */
+public class MediaSweeperTest {
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("media", "sweeper");
+		directory.delete();
+		directory.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+
+		directory.delete();
+	}
+
+	@Test
+	public void mediaNamesIncludeEveryRenditionAndPoster() {
+		ElementList list = new ElementList();
+		ElementList nested = new ElementList();
+		ImageElement image = new ImageElement();
+		VideoElement video = new VideoElement();
+		HashSet<String> names = new HashSet<>();
+
+		image.setLocation(ImageElement.LOCAL);
+		image.setSrcURL("/sdcard/photo.jpg");
+		image.setRenditions("/data/files/images/a-web", "/data/files/images/a-thumb", 1600, 1200);
+		image.setSizedRenditions(new String[] {"/data/files/images/a-w800"}, new int[] {800});
+		video.setLocation(VideoElement.LOCAL);
+		video.setSrcURL("/sdcard/clip.mp4");
+		video.setPosterSrc("/data/files/posters/b-poster");
+		list.addElement(image);
+		nested.addElement(video);
+		list.addElement(nested);
+
+		MediaSweeper.addMediaNames(list, names);
+
+		assertEquals(4, names.size());
+		assertTrue(names.contains("a-web"));
+		assertTrue(names.contains("a-thumb"));
+		assertTrue(names.contains("a-w800"));
+		assertTrue(names.contains("b-poster"));
+	}
+
+	@Test
+	public void onlyOldUnusedFilesAreDeleted() throws IOException {
+		long now = System.currentTimeMillis();
+		File used = createFile("used", now - 2 * MediaSweeper.GRACE_PERIOD);
+		File unused = createFile("unused", now - 2 * MediaSweeper.GRACE_PERIOD);
+		File recent = createFile("recent", now);
+		HashSet<String> names = new HashSet<>();
+
+		names.add("used");
+
+		assertEquals(1, MediaSweeper.deleteUnused(new File[] {directory, new File(directory, "missing")}, names, now - MediaSweeper.GRACE_PERIOD));
+		assertTrue(used.exists());
+		assertFalse(unused.exists());
+		assertTrue(recent.exists());
+	}
+
+	/**
+	 * Create an empty file in the test directory.
+	 * @param name The name of the file.
+	 * @param modified The time to set as its modified time.
+	 * @return The file.
+	 * @throws IOException If the file can't be created.
+	 */
+	private File createFile(String name, long modified) throws IOException {
+		File file = new File(directory, name);
+
+		assertTrue(file.createNewFile());
+		file.setLastModified(modified);
+
+		return file;
+	}
+}
@@ -0,0 +1,220 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.application;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests SegmentedPostStore, including reopening it and compacting its segments.
+ */
+public class SegmentedPostStoreTest {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int LARGE_SIZE = 1024 * 1024;   // The size of the files written to fill segments.
+	private static final int SEGMENT_SIZE = 8 * 1024 * 1024;   // The size at which the store starts a new segment.
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("segmented", "store");
+		directory.delete();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+
+		directory.delete();
+	}
+
+	@Test
+	public void filesSurviveReopen() throws IOException {
+		SegmentedPostStore store = new SegmentedPostStore(directory);
+
+		store.write("first", createContent("one"));
+		store.write("second", createContent("two"));
+		store.write("first", createContent("one again"));
+		store.delete("second");
+		store.write("third", createContent("three"));
+
+		store = new SegmentedPostStore(directory);
+
+		assertEquals("one again", read(store, "first"));
+		assertFalse(store.contains("second"));
+		assertEquals("three", read(store, "third"));
+		assertTrue(store.lastModified("first") > 0);
+		assertEquals(0, store.lastModified("second"));
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void missingFileIsNotFound() throws IOException {
+		new SegmentedPostStore(directory).open("missing");
+	}
+
+	@Test
+	public void appendAddsToEndOfFile() throws IOException {
+		SegmentedPostStore store = new SegmentedPostStore(directory);
+
+		store.append("log", createContent("first"));
+		store.append("log", createContent(" second"));
+		assertEquals("first second", read(store, "log"));
+
+		store = new SegmentedPostStore(directory);
+		store.append("log", createContent(" third"));
+
+		assertEquals("first second third", read(store, "log"));
+	}
+
+	@Test
+	public void overwrittenSegmentsAreCompacted() throws IOException {
+		SegmentedPostStore store = new SegmentedPostStore(directory);
+		int files = 8;
+		int rounds = 4;
+
+		for (int round = 0; round < rounds; round++) {
+			for (int i = 0; i < files; i++) {
+				store.write("post" + i, createLargeContent(i, round));
+			}
+		}
+
+		long segmentBytes = 0;
+
+		for (File file : directory.listFiles()) {
+			if (file.getName().endsWith(".seg")) {
+				segmentBytes += file.length();
+			}
+		}
+
+		// Without compaction every round would still be on disk.
+		assertTrue(segmentBytes < (long) files * LARGE_SIZE + 2L * SEGMENT_SIZE);
+
+		store = new SegmentedPostStore(directory);
+
+		for (int i = 0; i < files; i++) {
+			byte[] data = readBytes(store, "post" + i);
+			assertTrue(Arrays.equals(createLargeData(i, rounds - 1), data));
+		}
+	}
+
+	/**
+	 * Create the Content of a file.
+	 * @param text The text of the file.
+	 * @return The Content.
+	 */
+	private static PostWriter.Content createContent(String text) {
+		return createContent(text.getBytes(UTF_8));
+	}
+
+	/**
+	 * Create the Content of a large file that differs for every file and round.
+	 * @param file The number of the file.
+	 * @param round The number of times the file was written before.
+	 * @return The Content.
+	 */
+	private static PostWriter.Content createLargeContent(int file, int round) {
+		return createContent(createLargeData(file, round));
+	}
+
+	/**
+	 * Create the data of a large file that differs for every file and round.
+	 * @param file The number of the file.
+	 * @param round The number of times the file was written before.
+	 * @return The data.
+	 */
+	private static byte[] createLargeData(int file, int round) {
+		byte[] data = new byte[LARGE_SIZE];
+
+		Arrays.fill(data, (byte) (file * 16 + round));
+
+		return data;
+	}
+
+	/**
+	 * Create the Content of a file.
+	 * @param data The data of the file.
+	 * @return The Content.
+	 */
+	private static PostWriter.Content createContent(final byte[] data) {
+		return new PostWriter.Content() {
+			@Override public void writeTo(OutputStream outputStream) throws IOException {
+				outputStream.write(data);
+			}
+		};
+	}
+
+	/**
+	 * Read a file from the store as text.
+	 * @param store The store.
+	 * @param name The name of the file.
+	 * @return The text of the file.
+	 * @throws IOException If the file can't be read.
+	 */
+	private static String read(PostStore store, String name) throws IOException {
+		return new String(readBytes(store, name), UTF_8);
+	}
+
+	/**
+	 * Read a file from the store.
+	 * @param store The store.
+	 * @param name The name of the file.
+	 * @return The data of the file.
+	 * @throws IOException If the file can't be read.
+	 */
+	private static byte[] readBytes(PostStore store, String name) throws IOException {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		InputStream inputStream = store.open(name);
+
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while ((read = inputStream.read(buffer)) != -1) {
+				data.write(buffer, 0, read);
+			}
+		} finally {
+			inputStream.close();
+		}
+
+		return data.toByteArray();
+	}
+}
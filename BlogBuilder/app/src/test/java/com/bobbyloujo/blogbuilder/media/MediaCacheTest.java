@@ -0,0 +1,280 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests MediaCache against a local HTTP server.
+ */
+public class MediaCacheTest {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String ETAG = "\"v1\"";
+	private static final String LAST_MODIFIED = "Mon, 01 Feb 2016 00:00:00 GMT";
+
+	private HttpServer server;
+	private File directory;
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());   // The method, path and validators of each request.
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("media", "cache");
+		directory.delete();
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override public void handle(HttpExchange exchange) throws IOException {
+				String path = exchange.getRequestURI().getPath();
+				String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+				String since = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+				byte[] body = ("0123456789 body of " + path).getBytes(UTF_8);
+
+				requests.add(path + (etag != null ? " etag" : "") + (since != null ? " since" : ""));
+				exchange.getResponseHeaders().set("Content-Type", "image/png");
+
+				if (path.startsWith("/fresh")) {
+					exchange.getResponseHeaders().set("Cache-Control", "public, max-age=3600");
+				} else if (path.startsWith("/etag")) {
+					exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+					exchange.getResponseHeaders().set("ETag", ETAG);
+				} else if (path.startsWith("/modified")) {
+					exchange.getResponseHeaders().set("Cache-Control", "max-age=0");
+					exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+				} else if (path.startsWith("/private")) {
+					exchange.getResponseHeaders().set("Cache-Control", "no-store");
+				}
+
+				if (ETAG.equals(etag) || LAST_MODIFIED.equals(since)) {
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+					return;
+				}
+
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+
+		File[] files = directory.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+
+		directory.delete();
+	}
+
+	@Test
+	public void freshResponseIsServedWithoutNetwork() throws Exception {
+		MediaCache cache = new MediaCache(directory, 1024 * 1024);
+
+		assertEquals("0123456789 body of /fresh.png", read(cache.get(url("/fresh.png"), null)));
+		assertEquals("0123456789 body of /fresh.png", read(new MediaCache(directory, 1024 * 1024).get(url("/fresh.png"), null)));
+		assertEquals(1, requests.size());
+	}
+
+	@Test
+	public void staleResponseIsRevalidatedWithETag() throws Exception {
+		MediaCache cache = new MediaCache(directory, 1024 * 1024);
+
+		read(cache.get(url("/etag.png"), null));
+		MediaCache.Response response = cache.get(url("/etag.png"), null);
+
+		assertEquals(200, response.getStatus());
+		assertEquals("image/png", response.getMimeType());
+		assertEquals("0123456789 body of /etag.png", read(response));
+		assertEquals("/etag.png etag", requests.get(1));
+	}
+
+	@Test
+	public void staleResponseIsRevalidatedWithLastModified() throws Exception {
+		MediaCache cache = new MediaCache(directory, 1024 * 1024);
+
+		read(cache.get(url("/modified.png"), null));
+
+		assertEquals("0123456789 body of /modified.png", read(cache.get(url("/modified.png"), null)));
+		assertEquals("/modified.png since", requests.get(1));
+	}
+
+	@Test
+	public void rangeIsServedFromCache() throws Exception {
+		MediaCache cache = new MediaCache(directory, 1024 * 1024);
+
+		read(cache.get(url("/fresh.mp4"), "bytes=0-"));   // Streamed whole and cached.
+		MediaCache.Response response = cache.get(url("/fresh.mp4"), "bytes=2-5");
+
+		assertEquals(206, response.getStatus());
+		assertEquals("2345", read(response));
+		assertEquals("bytes 2-5/29", response.getHeaders().get("Content-Range"));
+		assertEquals("4", response.getHeaders().get("Content-Length"));
+
+		assertEquals("h.mp4", read(cache.get(url("/fresh.mp4"), "bytes=-5")));
+		assertEquals("body of /fresh.mp4", read(cache.get(url("/fresh.mp4"), "bytes=11-")));
+		assertEquals(416, cache.get(url("/fresh.mp4"), "bytes=100-").getStatus());
+		assertEquals(1, requests.size());
+	}
+
+	@Test
+	public void uncachedBodyIsStreamedWhole() throws Exception {
+		MediaCache cache = new MediaCache(directory, 1024 * 1024);
+		MediaCache.Response response = cache.get(url("/fresh.mp4"), "bytes=0-");
+
+		assertEquals(200, response.getStatus());
+		assertEquals("29", response.getHeaders().get("Content-Length"));
+		assertNull(response.getHeaders().get("Accept-Ranges"));
+		assertEquals("0123456789 body of /fresh.mp4", read(response));
+	}
+
+	@Test
+	public void rangePastBeginningOfUncachedBodyIsLeftToCaller() throws Exception {
+		MediaCache cache = new MediaCache(directory, 1024 * 1024);
+
+		assertNull(cache.get(url("/fresh.mp4"), "bytes=10-"));
+		assertNull(cache.get(url("/fresh.mp4"), "bytes=-5"));
+		assertEquals(0, requests.size());
+	}
+
+	@Test
+	public void bodyClosedEarlyIsNotCached() throws Exception {
+		MediaCache cache = new MediaCache(directory, 1024 * 1024);
+		InputStream body = cache.get(url("/fresh.png"), null).getBody();
+
+		body.read(new byte[4]);
+		body.close();
+		read(cache.get(url("/fresh.png"), null));
+
+		assertEquals(2, requests.size());
+		assertEquals(2, directory.listFiles().length);   // The metadata and body of the second request.
+	}
+
+	@Test
+	public void bodyLargerThanCacheFractionIsNotCached() throws Exception {
+		MediaCache cache = new MediaCache(directory, 40);   // Bodies may take up to 20 bytes.
+
+		assertEquals("0123456789 body of /fresh.png", read(cache.get(url("/fresh.png"), null)));
+		assertEquals("0123456789 body of /fresh.png", read(cache.get(url("/fresh.png"), null)));
+		assertEquals(2, requests.size());
+		assertFalse(directory.isDirectory() && directory.listFiles().length > 0);
+	}
+
+	@Test
+	public void leastRecentlyUsedResponseIsEvicted() throws Exception {
+		MediaCache cache = new MediaCache(directory, 70);   // Room for two bodies.
+
+		read(cache.get(url("/fresh1.png"), null));
+		Thread.sleep(20);
+		read(cache.get(url("/fresh2.png"), null));
+		Thread.sleep(20);
+		read(cache.get(url("/fresh1.png"), null));   // Now used more recently than fresh2.
+		Thread.sleep(20);
+		read(cache.get(url("/fresh3.png"), null));   // Evicts fresh2.
+
+		read(cache.get(url("/fresh1.png"), null));
+		read(cache.get(url("/fresh2.png"), null));
+
+		assertEquals(4, requests.size());
+		assertEquals("/fresh2.png", requests.get(3));
+	}
+
+	@Test
+	public void staleResponseIsServedOffline() throws Exception {
+		MediaCache cache = new MediaCache(directory, 1024 * 1024);
+
+		read(cache.get(url("/etag.png"), null));
+		String url = url("/etag.png");
+		server.stop(0);
+
+		assertEquals("0123456789 body of /etag.png", read(cache.get(url, null)));
+	}
+
+	@Test
+	public void noStoreResponseIsNotCached() throws Exception {
+		MediaCache cache = new MediaCache(directory, 1024 * 1024);
+
+		assertNull(cache.get(url("/private.png"), null));
+		assertNull(cache.get(url("/private.png"), null));
+		assertEquals(2, requests.size());
+	}
+
+	/**
+	 * Get the URL of a path on the server.
+	 * @param path The path.
+	 * @return The URL.
+	 */
+	private String url(String path) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+	}
+
+	/**
+	 * Read and close the body of a response.
+	 * @param response The response.
+	 * @return The body.
+	 * @throws IOException If the body can't be read.
+	 */
+	private static String read(MediaCache.Response response) throws IOException {
+		InputStream body = response.getBody();
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		byte[] buffer = new byte[64];
+		int count;
+
+		try {
+			while ((count = body.read(buffer)) != -1) {
+				data.write(buffer, 0, count);
+			}
+		} finally {
+			body.close();
+		}
+
+		return new String(data.toByteArray(), UTF_8);
+	}
+}
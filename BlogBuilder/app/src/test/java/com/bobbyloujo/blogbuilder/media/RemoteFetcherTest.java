@@ -0,0 +1,223 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.media;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests RemoteFetcher against a local HTTP server.
+ */
+public class RemoteFetcherTest {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int TIMEOUT = 10;   // Seconds to wait for a result.
+
+	private HttpServer server;
+	private RemoteFetcher fetcher;
+	private final AtomicInteger hits = new AtomicInteger();          // Requests the server received.
+	private final AtomicInteger active = new AtomicInteger();        // Requests the server is handling.
+	private final AtomicInteger maxActive = new AtomicInteger();     // The most requests the server handled at once.
+	private final CountDownLatch release = new CountDownLatch(1);   // Released to let blocked responses finish.
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", new HttpHandler() {
+			@Override public void handle(HttpExchange exchange) throws IOException {
+				String path = exchange.getRequestURI().getPath();
+				int running = active.incrementAndGet();
+
+				hits.incrementAndGet();
+
+				synchronized (maxActive) {
+					maxActive.set(Math.max(maxActive.get(), running));
+				}
+
+				try {
+					if (path.startsWith("/slow")) {
+						release.await(TIMEOUT, TimeUnit.SECONDS);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				byte[] body = ("body of " + path).getBytes(UTF_8);
+				int status = path.startsWith("/missing") ? 404 : 200;
+
+				exchange.sendResponseHeaders(status, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+				active.decrementAndGet();
+			}
+		});
+		server.start();
+		fetcher = new RemoteFetcher(2);
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		fetcher.shutdown();
+		server.stop(0);
+	}
+
+	@Test
+	public void fetchDownloadsTheBody() throws Exception {
+		Result result = new Result();
+
+		fetcher.fetch(url("/image.png"), result);
+
+		assertTrue(result.done.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals("body of /image.png", new String(result.data, UTF_8));
+	}
+
+	@Test
+	public void requestsForTheSameUrlShareOneDownload() throws Exception {
+		Result[] results = new Result[5];
+
+		for (int i = 0; i < results.length; i++) {
+			results[i] = new Result();
+			fetcher.fetch(url("/slow/shared.png"), results[i]);
+		}
+
+		release.countDown();
+
+		for (Result result : results) {
+			assertTrue(result.done.await(TIMEOUT, TimeUnit.SECONDS));
+			assertEquals("body of /slow/shared.png", new String(result.data, UTF_8));
+		}
+
+		assertEquals(1, hits.get());
+		assertEquals(0, fetcher.getPendingCount());
+	}
+
+	@Test
+	public void cancelledRequestIsNotCalledBack() throws Exception {
+		Result cancelled = new Result();
+		Result kept = new Result();
+
+		RemoteFetcher.Request request = fetcher.fetch(url("/slow/a.png"), cancelled);
+		fetcher.fetch(url("/slow/a.png"), kept);
+		request.cancel();
+		release.countDown();
+
+		assertTrue(kept.done.await(TIMEOUT, TimeUnit.SECONDS));
+		assertNotNull(kept.data);
+		assertFalse(cancelled.done.await(200, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void cancellingTheLastRequestCancelsTheDownload() throws Exception {
+		Result first = new Result();
+		Result second = new Result();
+
+		fetcher.fetch(url("/slow/1.png"), new Result());
+		fetcher.fetch(url("/slow/2.png"), new Result());
+		fetcher.fetch(url("/slow/3.png"), first).cancel();   // Queued behind the two running downloads.
+		assertEquals(2, fetcher.getPendingCount());
+
+		fetcher.fetch(url("/slow/3.png"), second);           // Starts a new download of the URL.
+		release.countDown();
+
+		assertTrue(second.done.await(TIMEOUT, TimeUnit.SECONDS));
+		assertFalse(first.done.await(200, TimeUnit.MILLISECONDS));
+		assertEquals(3, hits.get());
+	}
+
+	@Test
+	public void downloadsAreBoundedByThePool() throws Exception {
+		Result[] results = new Result[6];
+
+		for (int i = 0; i < results.length; i++) {
+			results[i] = new Result();
+			fetcher.fetch(url("/slow/" + i + ".png"), results[i]);
+		}
+
+		Thread.sleep(200);
+		release.countDown();
+
+		for (Result result : results) {
+			assertTrue(result.done.await(TIMEOUT, TimeUnit.SECONDS));
+		}
+
+		assertEquals(2, maxActive.get());
+	}
+
+	@Test
+	public void errorStatusFails() throws Exception {
+		Result result = new Result();
+
+		fetcher.fetch(url("/missing.png"), result);
+
+		assertTrue(result.done.await(TIMEOUT, TimeUnit.SECONDS));
+		assertNull(result.data);
+		assertNotNull(result.failure);
+	}
+
+	/**
+	 * Get the URL of a path on the server.
+	 * @param path The path.
+	 * @return The URL.
+	 */
+	private String url(String path) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+	}
+
+	/**
+	 * A Callback that records its result.
+	 */
+	private static class Result implements RemoteFetcher.Callback {
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile byte[] data;
+		volatile IOException failure;
+
+		@Override public void onFetched(String url, byte[] data) {
+			this.data = data;
+			done.countDown();
+		}
+
+		@Override public void onFailed(String url, IOException e) {
+			this.failure = e;
+			done.countDown();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.post;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests HtmlText against the text android.text.Html.fromHtml produces for the
+ * same HTML, with trailing whitespace removed.
+ */
+public class HtmlTextTest {
+	@Test
+	public void paragraphsAreSeparatedByBlankLines() {
+		assertEquals("First\n\nSecond", HtmlText.toPlainText("<p dir=\"ltr\">First</p>\n<p dir=\"ltr\">Second</p>\n"));
+	}
+
+	@Test
+	public void lineBreaksBecomeNewlines() {
+		assertEquals("One\nTwo", HtmlText.toPlainText("<p dir=\"ltr\">One<br>\nTwo</p>\n"));
+		assertEquals("One\n\nTwo", HtmlText.toPlainText("One<br><br>Two"));
+	}
+
+	@Test
+	public void stylingTagsAreDropped() {
+		assertEquals("bold and italic text", HtmlText.toPlainText("<p dir=\"ltr\"><b>bold</b> and <i>italic</i> <u>text</u></p>"));
+	}
+
+	@Test
+	public void whitespaceIsCollapsed() {
+		assertEquals("a b c", HtmlText.toPlainText("  a \n\t b   c  "));
+	}
+
+	@Test
+	public void namedEntitiesAreDecoded() {
+		assertEquals("<tag> & \"quoted\" non\u00A0breaking", HtmlText.toPlainText("&lt;tag&gt; &amp; &quot;quoted&quot; non&nbsp;breaking"));
+	}
+
+	@Test
+	public void numericEntitiesAreDecoded() {
+		assertEquals("caf\u00E9 \u263A \uD83D\uDE00", HtmlText.toPlainText("caf&#233; &#x263A; &#x1F600;"));
+	}
+
+	@Test
+	public void unknownEntitiesAreKeptAsText() {
+		assertEquals("AT&T &bogus; a & b", HtmlText.toPlainText("AT&T &bogus; a & b"));
+	}
+
+	@Test
+	public void commentsAreDropped() {
+		assertEquals("before after", HtmlText.toPlainText("before <!-- <p>hidden</p> -->after"));
+	}
+
+	@Test
+	public void attributesContainingTagCharactersAreSkipped() {
+		assertEquals("link", HtmlText.toPlainText("<a href=\"x?a>b\">link</a>"));
+	}
+
+	@Test
+	public void extractionStopsAtMaxLength() {
+		assertEquals("Hello", HtmlText.toPlainText("<p dir=\"ltr\">Hello world</p>", 5));
+		assertEquals("First", HtmlText.toPlainText("<p dir=\"ltr\">First</p><p dir=\"ltr\">Second</p>", 6));
+	}
+
+	@Test
+	public void extractAppendsToBuilder() {
+		StringBuilder text = new StringBuilder("Title: ");
+
+		assertEquals(3, HtmlText.extract("<p dir=\"ltr\">Hello</p>", text, 3));
+		assertEquals("Title: Hel", text.toString());
+	}
+
+	@Test
+	public void emptyHtmlHasNoText() {
+		assertEquals("", HtmlText.toPlainText(""));
+		assertEquals("", HtmlText.toPlainText("<p dir=\"ltr\"></p><br>"));
+	}
+}
@@ -0,0 +1,253 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.post;
+
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that PostCodec reads back the Posts it writes, and the Posts written by
+ * earlier versions of the format.
+ */
+public class PostCodecTest {
+	private static final int MAGIC = 0x42425054;   // The magic number PostCodec starts every Post with.
+	private static final int LATEST_VERSION = 5;   // The format version PostCodec writes.
+
+	@Test
+	public void postSurvivesRoundTrip() throws IOException {
+		Post post = createPost();
+		Post read = PostCodec.readPost(new ByteArrayInputStream(encode(post)));
+
+		assertEquals(post.getFileName(), read.getFileName());
+		assertEquals(post.getTitle(), read.getTitle());
+		assertEquals(post.getHtml(), read.getHtml());
+
+		ElementList list = read.getElementList();
+		assertEquals(5, list.getSize());
+		assertEquals("Hello \u00FCber world", ((TextElement) list.getElement(0)).getPlainText());
+
+		ImageElement image = (ImageElement) list.getElement(1);
+		assertEquals(ImageElement.LOCAL, image.getLocation());
+		assertEquals("/sdcard/photo.jpg", image.getSrc());
+		assertEquals("75%", image.getWidth());
+		assertNull(image.getHeight());
+		assertEquals("web.jpg", image.getWebSrc());
+		assertEquals("thumb.jpg", image.getThumbnailSrc());
+		assertEquals(1600, image.getPixelWidth());
+		assertEquals(1200, image.getPixelHeight());
+		assertArrayEquals(new String[] {"800.jpg", "480.jpg"}, image.getSizedSrcs());
+		assertArrayEquals(new int[] {800, 480}, image.getSizedWidths());
+
+		VideoElement video = (VideoElement) list.getElement(2);
+		assertEquals(ImageElement.INTERNET, video.getLocation());
+		assertEquals("http://example.com/video.mp4", video.getSrcURL());
+		assertEquals("poster.jpg", video.getPosterSrc());
+
+		assertEquals(1, ((ElementList) list.getElement(3)).getSize());
+		assertEquals("<hr>", list.getElement(4).getHtml());
+	}
+
+	@Test
+	public void encodedPostIsRecognized() throws IOException {
+		BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(encode(createPost())));
+
+		assertTrue(PostCodec.isEncoded(in));
+		assertEquals(LATEST_VERSION, PostCodec.peekVersion(in));
+		assertEquals("Title", PostCodec.readPost(in).getTitle());
+	}
+
+	@Test
+	public void serializedPostIsNotRecognized() throws IOException {
+		byte[] serialized = {(byte) 0xAC, (byte) 0xED, 0, 5, 0x73, 0x72};
+		BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(serialized));
+
+		assertFalse(PostCodec.isEncoded(in));
+		assertEquals(-1, PostCodec.peekVersion(in));
+	}
+
+	@Test
+	public void version1PostIsRead() throws IOException {
+		Post post = PostCodec.readPost(new ByteArrayInputStream(encodeLegacy(1)));
+		TextElement text = (TextElement) post.getElementList().getElement(0);
+		ImageElement image = (ImageElement) post.getElementList().getElement(1);
+		VideoElement video = (VideoElement) post.getElementList().getElement(2);
+
+		assertEquals("Legacy", post.getTitle());
+		assertEquals("Old text", text.getPlainText());
+		assertEquals("/sdcard/photo.jpg", image.getSrc());
+		assertNull(image.getWebSrc());
+		assertNull(image.getSizedSrcs());
+		assertEquals("http://example.com/video.mp4", video.getSrcURL());
+		assertNull(video.getPosterSrc());
+	}
+
+	@Test
+	public void version2PostKeepsStoredPlainText() throws IOException {
+		Post post = PostCodec.readPost(new ByteArrayInputStream(encodeLegacy(2)));
+
+		assertEquals("stored", ((TextElement) post.getElementList().getElement(0)).getPlainText());
+		assertNull(((ImageElement) post.getElementList().getElement(1)).getWebSrc());
+	}
+
+	@Test
+	public void version3PostHasRenditions() throws IOException {
+		Post post = PostCodec.readPost(new ByteArrayInputStream(encodeLegacy(3)));
+		ImageElement image = (ImageElement) post.getElementList().getElement(1);
+
+		assertEquals("web.jpg", image.getWebSrc());
+		assertEquals("thumb.jpg", image.getThumbnailSrc());
+		assertEquals(1600, image.getPixelWidth());
+		assertNull(image.getSizedSrcs());
+	}
+
+	@Test
+	public void version4PostHasSizedRenditions() throws IOException {
+		Post post = PostCodec.readPost(new ByteArrayInputStream(encodeLegacy(4)));
+		ImageElement image = (ImageElement) post.getElementList().getElement(1);
+		VideoElement video = (VideoElement) post.getElementList().getElement(2);
+
+		assertArrayEquals(new String[] {"800.jpg"}, image.getSizedSrcs());
+		assertArrayEquals(new int[] {800}, image.getSizedWidths());
+		assertNull(video.getPosterSrc());
+	}
+
+	@Test(expected = IOException.class)
+	public void newerVersionIsRejected() throws IOException {
+		byte[] encoded = encode(createPost());
+
+		encoded[4] = LATEST_VERSION + 1;
+		PostCodec.readPost(new ByteArrayInputStream(encoded));
+	}
+
+	/**
+	 * Create a Post with one Element of each type.
+	 * @return The Post.
+	 */
+	private static Post createPost() {
+		Post post = new Post();
+		TextElement text = new TextElement();
+		ImageElement image = new ImageElement();
+		VideoElement video = new VideoElement();
+		ElementList nested = new ElementList();
+		TextElement nestedText = new TextElement();
+		Element rule = new Element();
+
+		post.setFileName("Title");
+		post.setTitle("Title");
+
+		text.setText("<p dir=\"ltr\">Hello &#252;ber <b>world</b></p>");
+		image.setSrcURL("/sdcard/photo.jpg");
+		image.setWidth("75%");
+		image.setRenditions("web.jpg", "thumb.jpg", 1600, 1200);
+		image.setSizedRenditions(new String[] {"800.jpg", "480.jpg"}, new int[] {800, 480});
+		video.setLocation(ImageElement.INTERNET);
+		video.setSrcURL("http://example.com/video.mp4");
+		video.setPosterSrc("poster.jpg");
+		nestedText.setText("<p dir=\"ltr\">Nested</p>");
+		nested.addElement(nestedText);
+		rule.setHtml("<hr>");
+
+		post.getElementList().addElement(text);
+		post.getElementList().addElement(image);
+		post.getElementList().addElement(video);
+		post.getElementList().addElement(nested);
+		post.getElementList().addElement(rule);
+
+		return post;
+	}
+
+	/**
+	 * Encode a Post with PostCodec.
+	 * @param post The Post to encode.
+	 * @return The encoded Post.
+	 * @throws IOException If the Post can't be encoded.
+	 */
+	private static byte[] encode(Post post) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		PostCodec.writePost(post, out);
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encode a Post with a text, an image, and a video the way an earlier version
+	 * of PostCodec wrote it.
+	 * @param version The format version to write.
+	 * @return The encoded Post.
+	 * @throws IOException If the Post can't be encoded.
+	 */
+	private static byte[] encodeLegacy(int version) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(out);
+
+		data.writeInt(MAGIC);
+		data.writeByte(version);
+		PostCodec.writeString(data, "Legacy");
+		PostCodec.writeString(data, "Legacy");
+		data.writeInt(3);
+
+		data.writeByte(1);
+		PostCodec.writeString(data, "<p dir=\"ltr\">Old text</p>");
+
+		if (version >= 2) {
+			PostCodec.writeString(data, "stored");
+		}
+
+		data.writeByte(2);
+		data.writeByte(ImageElement.LOCAL);
+		PostCodec.writeString(data, "/sdcard/photo.jpg");
+		PostCodec.writeString(data, null);
+		PostCodec.writeString(data, "100%");
+
+		if (version >= 3) {
+			PostCodec.writeString(data, "web.jpg");
+			PostCodec.writeString(data, "thumb.jpg");
+			data.writeInt(1600);
+			data.writeInt(1200);
+		}
+
+		if (version >= 4) {
+			data.writeInt(1);
+			PostCodec.writeString(data, "800.jpg");
+			data.writeInt(800);
+		}
+
+		data.writeByte(3);
+		data.writeByte(ImageElement.INTERNET);
+		PostCodec.writeString(data, "http://example.com/video.mp4");
+		PostCodec.writeString(data, null);
+		PostCodec.writeString(data, null);
+		data.flush();
+
+		return out.toByteArray();
+	}
+}
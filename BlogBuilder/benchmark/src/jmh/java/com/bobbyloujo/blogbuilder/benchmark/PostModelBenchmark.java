@@ -0,0 +1,98 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.benchmark;
+
+import com.bobbyloujo.blogbuilder.post.Element;
+import com.bobbyloujo.blogbuilder.post.ElementList;
+import com.bobbyloujo.blogbuilder.post.HtmlText;
+import com.bobbyloujo.blogbuilder.post.Post;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of rendering, copying, and summarizing Posts of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostModelBenchmark {
+	@Param({"10", "100", "500", "2000"})
+	public int elementCount;   // The number of Elements in the Post.
+
+	private static final int SUMMARY_LENGTH = 50;   // The number of characters extracted from each Element.
+
+	private Post post;         // The Post being measured.
+	private StringBuilder text = new StringBuilder();   // The buffer the text of Elements is extracted into.
+
+	@Setup
+	public void setUp() {
+		post = Posts.create(elementCount);
+	}
+
+	@Benchmark
+	public String elementListGetHtml() {
+		return post.getElementList().getHtml();
+	}
+
+	@Benchmark
+	public String postGetHtml() {
+		return post.getHtml();
+	}
+
+	@Benchmark
+	public Post copy() {
+		return post.copy();
+	}
+
+	@Benchmark
+	public String getSummary() {
+		return post.getSummary();
+	}
+
+	/**
+	 * Extract a summary from the HTML of every Element, as reindexing every Post would.
+	 */
+	@Benchmark
+	public int extractSummaries() {
+		ElementList list = post.getElementList();
+		int length = 0;
+
+		for (int i = 0; i < list.getSize(); i++) {
+			Element e = list.getElement(i);
+			text.setLength(0);
+			length += HtmlText.extract(e.getHtml(), text, SUMMARY_LENGTH);
+		}
+
+		return length;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.benchmark;
+
+import com.bobbyloujo.blogbuilder.post.Post;
+import com.bobbyloujo.blogbuilder.post.PostCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of writing and reading Posts of different sizes the way PostLoader
+ * does: with PostCodec, and with the Java serialization used by older versions
+ * of the app. Streams are in memory so only encoding and decoding are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostPersistenceBenchmark {
+	private static final int BUFFER_SIZE = 8192;   // The buffer size PostLoader reads posts with.
+
+	@Param({"10", "100", "500", "2000"})
+	public int elementCount;      // The number of Elements in the Post.
+
+	private Post post;            // The Post being written.
+	private byte[] encoded;       // The Post written with PostCodec.
+	private byte[] serialized;    // The Post written with Java serialization.
+
+	@Setup
+	public void setUp() throws IOException {
+		post = Posts.create(elementCount);
+		encoded = encode();
+		serialized = serialize();
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		PostCodec.writePost(post, outputStream);
+		return outputStream.toByteArray();
+	}
+
+	@Benchmark
+	public Post decode() throws IOException {
+		BufferedInputStream inputStream = new BufferedInputStream(new ByteArrayInputStream(encoded), BUFFER_SIZE);
+		PostCodec.isEncoded(inputStream);
+		return PostCodec.readPost(inputStream);
+	}
+
+	@Benchmark
+	public Post roundTrip() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		PostCodec.writePost(post, outputStream);
+		return PostCodec.readPost(new BufferedInputStream(new ByteArrayInputStream(outputStream.toByteArray()), BUFFER_SIZE));
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+		objectOutputStream.writeObject(post);
+		objectOutputStream.close();
+		return outputStream.toByteArray();
+	}
+
+	@Benchmark
+	public Post deserialize() throws IOException, ClassNotFoundException {
+		ObjectInputStream objectInputStream = new ObjectInputStream(new BufferedInputStream(new ByteArrayInputStream(serialized), BUFFER_SIZE));
+		return (Post) objectInputStream.readObject();
+	}
+}
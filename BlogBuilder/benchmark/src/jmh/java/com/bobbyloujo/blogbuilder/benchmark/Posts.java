@@ -0,0 +1,131 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package com.bobbyloujo.blogbuilder.benchmark;
+
+import com.bobbyloujo.blogbuilder.post.Element;
+import com.bobbyloujo.blogbuilder.post.ImageElement;
+import com.bobbyloujo.blogbuilder.post.Post;
+import com.bobbyloujo.blogbuilder.post.TextElement;
+import com.bobbyloujo.blogbuilder.post.VideoElement;
+
+import java.util.Random;
+
+/**
+ * Builds the Posts used by the benchmarks. Posts are generated from a fixed
+ * seed so every run measures the same content.
+ */
+final class Posts {
+	private static final long SEED = 0x42424C4FL;    // The seed of the generated content.
+	private static final int TEXT_SENTENCES = 4;     // The number of sentences in each paragraph.
+	private static final String[] WORDS = {
+			"blog", "post", "image", "video", "today", "weekend", "trip", "coffee", "river",
+			"mountain", "morning", "friends", "recipe", "garden", "update", "photo", "week"
+	};
+
+	private Posts() {
+	}
+
+	/**
+	 * Create a Post with the specified number of Elements. Most Elements are
+	 * paragraphs of styled text with an image every fifth Element and a video
+	 * every twentieth, which is typical of the posts written with the app.
+	 * @param elementCount The number of Elements in the Post.
+	 * @return The new Post.
+	 */
+	static Post create(int elementCount) {
+		Random random = new Random(SEED);
+		Post post = new Post();
+
+		post.setTitle("Benchmark Post " + elementCount);
+		post.setFileName("BenchmarkPost" + elementCount);
+
+		for (int i = 0; i < elementCount; i++) {
+			post.getElementList().addElement(createElement(i, random));
+		}
+
+		return post;
+	}
+
+	/**
+	 * Create the Element at the specified position of a Post.
+	 * @param i The position of the Element.
+	 * @param random The source of the content.
+	 * @return The new Element.
+	 */
+	private static Element createElement(int i, Random random) {
+		if (i % 20 == 19) {
+			VideoElement video = new VideoElement();
+			video.setLocation(VideoElement.INTERNET);
+			video.setSrcURL("http://example.com/video/" + random.nextInt(100000) + ".mp4");
+			video.setWidth("100%");
+			video.setHeight("360");
+			return video;
+		}
+
+		if (i % 5 == 4) {
+			ImageElement image = new ImageElement();
+			image.setLocation(i % 2 == 0 ? ImageElement.LOCAL : ImageElement.INTERNET);
+			image.setSrcURL((i % 2 == 0 ? "/storage/emulated/0/DCIM/Camera/IMG_" : "http://example.com/images/")
+					+ random.nextInt(100000) + ".jpg");
+			return image;
+		}
+
+		TextElement text = new TextElement();
+		text.setText(createParagraph(random));
+		return text;
+	}
+
+	/**
+	 * Create a paragraph of HTML text with some bold and italic words.
+	 * @param random The source of the words.
+	 * @return The paragraph as HTML.
+	 */
+	private static String createParagraph(Random random) {
+		StringBuilder html = new StringBuilder("<p dir=\"ltr\">");
+
+		for (int s = 0; s < TEXT_SENTENCES; s++) {
+			int length = 6 + random.nextInt(10);
+
+			for (int w = 0; w < length; w++) {
+				String word = WORDS[random.nextInt(WORDS.length)];
+
+				if (w > 0) {
+					html.append(' ');
+				}
+
+				if (random.nextInt(12) == 0) {
+					html.append("<b>").append(word).append("</b>");
+				} else if (random.nextInt(12) == 0) {
+					html.append("<i>").append(word).append("</i>");
+				} else {
+					html.append(word);
+				}
+			}
+
+			html.append(". ");
+		}
+
+		return html.append("</p>\n").toString();
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Benjamin Blaszczak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+package android.text;
+
+/**
+ * A stand-in for android.text.Html so the post package can be benchmarked on
+ * the JVM. Tags are removed, line breaks and paragraphs become newlines, and
+ * the common entities are decoded. The work done is comparable to the Android
+ * implementation, but styling spans are not produced.
+ */
+public class Html {
+	private Html() {
+	}
+
+	/**
+	 * Get the text of a String of HTML.
+	 * @param source The HTML.
+	 * @return The text of the HTML.
+	 */
+	public static CharSequence fromHtml(String source) {
+		StringBuilder text = new StringBuilder(source.length());
+		int i = 0;
+
+		while (i < source.length()) {
+			char c = source.charAt(i);
+
+			if (c == '<') {
+				int end = source.indexOf('>', i);
+
+				if (end < 0) {
+					break;
+				}
+
+				String tag = source.substring(i + 1, end).toLowerCase();
+
+				if (tag.startsWith("br") || tag.startsWith("/p") || tag.startsWith("p")) {
+					text.append('\n');
+				}
+
+				i = end + 1;
+			} else if (c == '&') {
+				int end = source.indexOf(';', i);
+
+				if (end < 0) {
+					text.append(c);
+					i++;
+					continue;
+				}
+
+				text.append(decodeEntity(source.substring(i + 1, end)));
+				i = end + 1;
+			} else {
+				text.append(c);
+				i++;
+			}
+		}
+
+		return text;
+	}
+
+	/**
+	 * Decode an HTML entity.
+	 * @param entity The name of the entity without the leading '&' and trailing ';'.
+	 * @return The decoded text of the entity.
+	 */
+	private static String decodeEntity(String entity) {
+		switch (entity) {
+			case "amp":
+				return "&";
+			case "lt":
+				return "<";
+			case "gt":
+				return ">";
+			case "quot":
+				return "\"";
+			case "nbsp":
+				return " ";
+			default:
+				return "&" + entity + ";";
+		}
+	}
+}